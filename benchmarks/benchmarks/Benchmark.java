@@ -0,0 +1,133 @@
+package benchmarks;
+
+import java.util.Locale;
+
+/**
+ * A small harness for micro benchmarks of the renderer.
+ * Each benchmark is an operation which is run in batches - first for a warm-up time, so the JIT compiler
+ * optimizes it, and then for several measured iterations. The average time of an operation is reported
+ * together with the standard deviation between the iterations.<br/>
+ * The results of the operations are consumed by the harness, so the JIT compiler can't drop the calculations.
+ * <p>
+ * Settings (system properties):
+ * <ul>
+ * <li>{@code bench.filter} - run only the benchmarks whose names contain the text</li>
+ * <li>{@code bench.warmup} - warm-up time of each benchmark in milliseconds (default 1000)</li>
+ * <li>{@code bench.iterations} - amount of measured iterations (default 5)</li>
+ * <li>{@code bench.time} - time of a measured iteration in milliseconds (default 1000)</li>
+ * </ul>
+ */
+public final class Benchmark {
+
+    /**
+     * An operation to measure
+     */
+    @FunctionalInterface
+    public interface Operation {
+        /**
+         * Runs the operation once.
+         *
+         * @param i the number of the run - benchmarks use it to cycle through prepared inputs
+         * @return the result of the operation (may be null)
+         */
+        Object run(int i);
+    }
+
+    /**
+     * Runs the operations of the batches in a loop - a batch should take about this time
+     */
+    private static final long BATCH_NANOS = 10_000_000L;
+
+    private static final String FILTER = System.getProperty("bench.filter", "");
+    private static final long WARMUP_MILLIS = Long.getLong("bench.warmup", 1000);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    private static final long ITERATION_MILLIS = Long.getLong("bench.time", 1000);
+
+    /**
+     * Mask of the pseudo-random numbers choosing the results which are published - about one in 1024
+     */
+    private static final int PUBLISH_MASK = 1023;
+    /**
+     * Receives some of the results, chosen by pseudo-random numbers the JIT compiler can't predict,
+     * so every result may escape and has to be calculated
+     */
+    private static volatile Object sink;
+    /**
+     * The state of the pseudo-random numbers (a linear congruential generator)
+     */
+    private static int seed = (int) System.nanoTime();
+
+    private Benchmark() {
+    }
+
+    /**
+     * Measures an operation and prints the average time of a run.
+     *
+     * @param name      the name of the benchmark
+     * @param operation the operation
+     */
+    public static void run(String name, Operation operation) {
+        if (!name.contains(FILTER))
+            return;
+
+        // warm up, and find the size of a batch taking about BATCH_NANOS
+        int batch = 1;
+        long warmupEnd = System.nanoTime() + WARMUP_MILLIS * 1_000_000L;
+        do {
+            long time = runBatch(operation, batch);
+            if (time < BATCH_NANOS && batch < Integer.MAX_VALUE / 2)
+                batch *= 2;
+        } while (System.nanoTime() < warmupEnd);
+
+        double[] results = new double[ITERATIONS];
+        for (int iteration = 0; iteration < ITERATIONS; ++iteration) {
+            long runs = 0, time = 0;
+            while (time < ITERATION_MILLIS * 1_000_000L) {
+                time += runBatch(operation, batch);
+                runs += batch;
+            }
+            results[iteration] = (double) time / runs;
+        }
+
+        double mean = 0;
+        for (double result : results)
+            mean += result;
+        mean /= ITERATIONS;
+        double variance = 0;
+        for (double result : results)
+            variance += (result - mean) * (result - mean);
+        double deviation = ITERATIONS > 1 ? Math.sqrt(variance / (ITERATIONS - 1)) : 0;
+        System.out.printf(Locale.ROOT, "%-45s %14.1f +- %10.1f ns/op%n", name, mean, deviation);
+    }
+
+    /**
+     * Runs a batch of operations
+     *
+     * @param operation the operation
+     * @param batch     the amount of runs
+     * @return the time of the batch in nanoseconds
+     */
+    private static long runBatch(Operation operation, int batch) {
+        int random = seed;
+        long start = System.nanoTime();
+        for (int i = 0; i < batch; ++i) {
+            Object result = operation.run(i);
+            random = random * 1664525 + 1013904223;
+            if ((random & PUBLISH_MASK) == 0)
+                sink = result;
+        }
+        long time = System.nanoTime() - start;
+        seed = random;
+        return time;
+    }
+
+    /**
+     * Runs all the benchmarks
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        IntersectionBenchmarks.main(args);
+        RenderBenchmarks.main(args);
+    }
+}
@@ -0,0 +1,133 @@
+package benchmarks;
+
+import geometries.*;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Random;
+
+/**
+ * Micro benchmarks of the intersections of rays with the geometries.
+ * Each geometry is hit by a fixed set of random rays aimed around it, about half of them missing it,
+ * so both the hit and the miss paths are measured.
+ */
+public class IntersectionBenchmarks {
+
+    /**
+     * Amount of prepared rays - a power of 2
+     */
+    private static final int RAYS = 1024;
+
+    /**
+     * Prepares rays starting around a point and aimed at random points of a cube around a target
+     *
+     * @param target the center of the target
+     * @param size   the size of the cube the rays are aimed at
+     * @return the rays
+     */
+    static Ray[] rays(Point target, double size) {
+        Random random = new Random(42);
+        Ray[] rays = new Ray[RAYS];
+        Point head = target.add(new Vector(3 * size, 2 * size, 4 * size));
+        for (int i = 0; i < RAYS; ++i) {
+            Point aim = target.add(new Vector((random.nextDouble() - 0.5) * size,
+                    (random.nextDouble() - 0.5) * size, (random.nextDouble() - 0.5) * size));
+            rays[i] = new Ray(head, aim.subtract(head));
+        }
+        return rays;
+    }
+
+    /**
+     * Measures the intersections of a geometry with rays aimed at it
+     *
+     * @param name     the name of the geometry
+     * @param geometry the geometry
+     * @param target   the center of the geometry
+     * @param size     the size of the area around the center the rays are aimed at
+     */
+    private static void benchmark(String name, Intersectable geometry, Point target, double size) {
+        Ray[] rays = rays(target, size);
+        Benchmark.run(name + ".findGeoIntersections", i -> geometry.findGeoIntersections(rays[i & (RAYS - 1)]));
+        Benchmark.run(name + ".findClosestGeoIntersection",
+                i -> geometry.findClosestGeoIntersection(rays[i & (RAYS - 1)]));
+    }
+
+    /**
+     * Runs the benchmarks
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        Point center = new Point(1, 2, 3);
+        benchmark("Sphere", new Sphere(center, 1d), center, 3);
+        benchmark("Plane", new Plane(center, new Vector(1, 1, 1)), center, 3);
+        benchmark("Triangle", new Triangle(new Point(0, 0, 3), new Point(2, 2, 3), new Point(1, 4, 3)), center, 4);
+        benchmark("Polygon",
+                new Polygon(new Point(0, 0, 3), new Point(2, 0, 3), new Point(2.5, 3, 3), new Point(0, 4, 3)),
+                center, 5);
+        benchmark("Cylinder", new Cylinder(2d, new Ray(new Point(1, 2, 2), new Vector(0, 0, 1)), 1), center, 4);
+        benchmark("TriangleMesh", sphereMesh(center, 1, 32), center, 3);
+        Geometries spheres = scatteredSpheres(center, 20, 4000);
+        benchmark("BVH", new BVH(spheres), center, 20);
+        benchmark("UniformGrid", new UniformGrid(spheres), center, 20);
+    }
+
+    /**
+     * Builds a group of small spheres spread evenly in a cube
+     *
+     * @param center the center of the cube
+     * @param size   the size of the cube
+     * @param amount the amount of spheres
+     * @return the group of the spheres
+     */
+    static Geometries scatteredSpheres(Point center, double size, int amount) {
+        Random random = new Random(7);
+        Geometries spheres = new Geometries();
+        for (int i = 0; i < amount; ++i)
+            spheres.add(new Sphere(center.add(new Vector((random.nextDouble() - 0.5) * size,
+                    (random.nextDouble() - 0.5) * size, (random.nextDouble() - 0.5) * size)), size / 100));
+        return spheres;
+    }
+
+    /**
+     * Builds a mesh approximating a sphere with latitude and longitude bands
+     *
+     * @param center the center of the sphere
+     * @param radius the radius of the sphere
+     * @param bands  the amount of bands
+     * @return the mesh, with 2 * bands * (bands - 1) faces
+     */
+    static TriangleMesh sphereMesh(Point center, double radius, int bands) {
+        double[] vertices = new double[(bands + 1) * bands * 3];
+        int k = 0;
+        for (int i = 0; i <= bands; ++i) {
+            double theta = Math.PI * i / bands;
+            for (int j = 0; j < bands; ++j) {
+                double phi = 2 * Math.PI * j / bands;
+                vertices[k++] = center.getX() + radius * Math.sin(theta) * Math.cos(phi);
+                vertices[k++] = center.getY() + radius * Math.sin(theta) * Math.sin(phi);
+                vertices[k++] = center.getZ() + radius * Math.cos(theta);
+            }
+        }
+        // the poles are repeated in their rows, so the faces touching them are skipped on the degenerated side
+        int[] indices = new int[2 * bands * (bands - 1) * 3];
+        k = 0;
+        for (int i = 0; i < bands; ++i)
+            for (int j = 0; j < bands; ++j) {
+                int a = i * bands + j, b = i * bands + (j + 1) % bands;
+                int c = a + bands, d = b + bands;
+                if (i > 0) {
+                    indices[k++] = a;
+                    indices[k++] = c;
+                    indices[k++] = b;
+                }
+                if (i < bands - 1) {
+                    indices[k++] = b;
+                    indices[k++] = c;
+                    indices[k++] = d;
+                }
+            }
+        return new TriangleMesh(vertices, indices);
+    }
+}
@@ -0,0 +1,162 @@
+package benchmarks;
+
+import geometries.Sphere;
+import geometries.Triangle;
+import lighting.AmbientLight;
+import lighting.SpotLight;
+import primitives.*;
+import renderer.Camera;
+import renderer.ImageWriter;
+import renderer.SimpleRayTracer;
+import scene.Scene;
+
+import static java.awt.Color.BLUE;
+import static java.awt.Color.RED;
+
+/**
+ * Micro benchmarks of the camera and the ray tracer on fixed scenes.
+ * The traced rays are the rays of the pixels of a small image, prepared in advance,
+ * so only the tracing is measured.
+ */
+public class RenderBenchmarks {
+
+    /**
+     * Width and height of the image whose pixel rays are traced
+     */
+    private static final int N = 64;
+    /**
+     * Width and height of the image whose pixel rays are traced in packets - packets of neighboring pixels
+     * are coherent only in images of common sizes
+     */
+    private static final int PACKET_N = 512;
+
+    /**
+     * Builds a scene of a sphere and a triangle lighted by a spot light, with a shadow
+     *
+     * @return the scene
+     */
+    private static Scene shadowScene() {
+        Scene scene = new Scene("Shadow benchmark");
+        Material material = new Material().setKd(0.5).setKs(0.5).setShininess(30);
+        scene.geometries.add(
+                new Sphere(new Point(0, 0, -200), 60d).setEmission(new Color(BLUE)).setMaterial(material),
+                new Triangle(new Point(-70, -40, 0), new Point(-40, -70, 0), new Point(-68, -68, -4))
+                        .setEmission(new Color(BLUE)).setMaterial(material));
+        scene.lights.add(new SpotLight(new Color(400, 240, 0), new Point(-100, -100, 200), new Vector(1, 1, -3))
+                .setKl(1E-5).setKq(1.5E-7));
+        scene.setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.15));
+        return scene;
+    }
+
+    /**
+     * Builds a scene of a transparent sphere around a sphere, in front of a mirror
+     *
+     * @return the scene
+     */
+    private static Scene refractionScene() {
+        Scene scene = new Scene("Refraction benchmark");
+        scene.geometries.add(
+                new Sphere(new Point(0, 0, -50), 50d).setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKd(0.4).setKs(0.3).setShininess(100).setKt(0.3)),
+                new Sphere(new Point(0, 0, -50), 25d).setEmission(new Color(RED))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(100)),
+                new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135), new Point(75, 75, -150))
+                        .setEmission(new Color(20, 20, 20)).setMaterial(new Material().setKr(0.8)));
+        scene.lights.add(new SpotLight(new Color(1000, 600, 0), new Point(-100, -100, 500), new Vector(-1, -1, -2))
+                .setKl(0.0004).setKq(0.0000006));
+        return scene;
+    }
+
+    /**
+     * Builds a scene of a grid of small spheres over a floor, lighted by a spot light -
+     * enough geometries for tracing through a bounding volume hierarchy
+     *
+     * @return the scene
+     */
+    private static Scene spheresScene() {
+        Scene scene = new Scene("Spheres benchmark");
+        Material material = new Material().setKd(0.5).setKs(0.5).setShininess(30);
+        for (int x = -15; x < 15; ++x)
+            for (int y = -15; y < 15; ++y)
+                scene.geometries.add(new Sphere(new Point(x * 6 + 3, y * 6 + 3, -100), 2.5)
+                        .setEmission(new Color(BLUE)).setMaterial(material));
+        scene.geometries.add(
+                new Triangle(new Point(-100, -100, -120), new Point(100, -100, -120), new Point(100, 100, -120))
+                        .setEmission(new Color(20, 20, 20)).setMaterial(material),
+                new Triangle(new Point(-100, -100, -120), new Point(100, 100, -120), new Point(-100, 100, -120))
+                        .setEmission(new Color(20, 20, 20)).setMaterial(material));
+        scene.lights.add(new SpotLight(new Color(400, 240, 0), new Point(-100, -100, 200), new Vector(1, 1, -3))
+                .setKl(1E-5).setKq(1.5E-7));
+        return scene;
+    }
+
+    /**
+     * Builds a camera looking at the scenes
+     *
+     * @param scene the scene
+     * @return the camera
+     */
+    private static Camera camera(Scene scene) {
+        return Camera.getBuilder()
+                .setLocation(new Point(0, 0, 1000))
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpDistance(1000).setVpSize(200, 200)
+                .setRayTracer(new SimpleRayTracer(scene))
+                .setImageWriter(new ImageWriter("benchmark", N, N))
+                .build();
+    }
+
+    /**
+     * Measures the tracing of the pixel rays of a scene
+     *
+     * @param name  the name of the scene
+     * @param scene the scene
+     */
+    private static void benchmark(String name, Scene scene) {
+        Camera camera = camera(scene);
+        Ray[] rays = new Ray[N * N];
+        for (int i = 0; i < N; ++i)
+            for (int j = 0; j < N; ++j)
+                rays[i * N + j] = camera.constructRay(N, N, j, i);
+        SimpleRayTracer tracer = new SimpleRayTracer(scene);
+        Benchmark.run("SimpleRayTracer.traceRay." + name, i -> tracer.traceRay(rays[i & (N * N - 1)]));
+    }
+
+    /**
+     * Measures the tracing of the pixel rays of a scene in packets of 8x8 neighboring pixels,
+     * against tracing the same rays one by one (the time of a run is the time of 64 rays)
+     *
+     * @param name  the name of the scene
+     * @param scene the scene
+     */
+    private static void packetBenchmark(String name, Scene scene) {
+        Camera camera = camera(scene);
+        int blocks = PACKET_N / 8;
+        Ray[][] packets = new Ray[blocks * blocks][64];
+        for (int i = 0; i < PACKET_N; ++i)
+            for (int j = 0; j < PACKET_N; ++j)
+                packets[i / 8 * blocks + j / 8][i % 8 * 8 + j % 8] = camera.constructRay(PACKET_N, PACKET_N, j, i);
+        SimpleRayTracer tracer = new SimpleRayTracer(scene);
+        Benchmark.run("SimpleRayTracer.traceRay.64." + name, i -> {
+            Ray[] packet = packets[i % packets.length];
+            Color color = Color.BLACK;
+            for (Ray ray : packet)
+                color = tracer.traceRay(ray);
+            return color;
+        });
+        Benchmark.run("SimpleRayTracer.traceRays.64." + name, i -> tracer.traceRays(packets[i % packets.length]));
+    }
+
+    /**
+     * Runs the benchmarks
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        Camera camera = camera(new Scene("Empty"));
+        Benchmark.run("Camera.constructRay", i -> camera.constructRay(N, N, i % N, i / N % N));
+        benchmark("shadow", shadowScene());
+        benchmark("refraction", refractionScene());
+        packetBenchmark("spheres", spheresScene());
+    }
+}
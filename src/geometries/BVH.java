@@ -0,0 +1,1183 @@
+package geometries;
+
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Bounding volume hierarchy (BVH) over a group of intersectable objects.
+ * The hierarchy is a binary tree of axis aligned bounding boxes built with the surface area heuristic (SAH),
+ * so a ray visits only the branches whose boxes it passes through instead of testing every object.
+ * Single rays traverse a wide copy of the tree, with up to 4 children in a node, and the boxes of the children
+ * of a node are tested at once by the {@link Kernel}.
+ * The split of each node is chosen among a few bins of the objects, and big sub-trees are built in parallel
+ * on a fork/join pool, so the construction over hundreds of thousands of objects takes a fraction of a second.
+ * Unbounded objects (e.g. infinite planes) can't be placed in the tree, so they are tested for every ray
+ * (their own partially infinite boxes still reject some of the rays).
+ * Packets of coherent rays traverse the tree together - the box of a node is tested against all the rays
+ * of the packet at once, and the rays which miss it are dropped from the packet below the node.
+ */
+public class BVH extends Intersectable {
+
+    /**
+     * Maximal amount of objects in a leaf - bigger groups are always split
+     */
+    private static final int MAX_LEAF_SIZE = 4;
+    /**
+     * Amount of bins the objects are sorted into when looking for the best split of a node
+     */
+    private static final int BINS = 12;
+    /**
+     * Cost of visiting a node relative to the cost of intersecting an object
+     */
+    private static final double TRAVERSAL_COST = 0.125;
+    /**
+     * Maximal depth of the hierarchy - deep enough for any scene that fits in memory
+     */
+    static final int MAX_DEPTH = 64;
+    /**
+     * Minimal amount of objects in a sub-tree for building its two halves in parallel - smaller sub-trees
+     * are built by a single task, since forking them costs more than it saves
+     */
+    private static final int PARALLEL_THRESHOLD = 4096;
+    /**
+     * Amount of numbers kept for each object while building - minimal x, y, z and maximal x, y, z of its box,
+     * and the x, y, z of the center of the box
+     */
+    private static final int BOUNDS = 9;
+    /**
+     * Minimal amount of rays for tracing them through a sub-tree as a packet - fewer rays are left
+     * of a packet where the rays spread apart, and they are traced one by one
+     */
+    private static final int MIN_PACKET = 4;
+    /**
+     * Amount of lanes of a block of boxes
+     */
+    private static final int WIDTH = Kernel.WIDTH;
+
+    /**
+     * The root of the hierarchy, null if there are no bounded objects
+     */
+    private final Node root;
+    /**
+     * The hierarchy with up to 4 children in a node, for tracing single rays - null if there are no
+     * bounded objects
+     */
+    private final Wide wide;
+    /**
+     * The objects without a bounding box
+     */
+    private final List<Intersectable> unbounded = new LinkedList<>();
+    /**
+     * Statistics of the construction of the hierarchy
+     */
+    private final Stats stats;
+
+    /**
+     * Node of the hierarchy - an inner node has two children, a leaf holds objects
+     *
+     * @param box   the box bounding everything below the node
+     * @param left  the left child (null in a leaf)
+     * @param right the right child (null in a leaf)
+     * @param items the objects of a leaf (null in an inner node)
+     */
+    record Node(BoundingBox box, Node left, Node right, Intersectable[] items) {
+    }
+
+    /**
+     * Statistics of the construction of a hierarchy
+     *
+     * @param objects   the amount of bounded objects placed in the tree
+     * @param unbounded the amount of unbounded objects kept out of the tree
+     * @param nodes     the amount of nodes of the tree, including the leaves
+     * @param leaves    the amount of leaves of the tree
+     * @param depth     the depth of the deepest leaf (0 if the root is a leaf, -1 if there is no tree)
+     * @param nanos     the time the construction took, in nanoseconds
+     */
+    public record Stats(int objects, int unbounded, int nodes, int leaves, int depth, long nanos) {
+    }
+
+    /**
+     * Constructs a hierarchy over the given objects. Nested {@link Geometries} (and compiled ones) are flattened,
+     * so the hierarchy is built over their members.
+     *
+     * @param geometries the objects to put in the hierarchy
+     */
+    public BVH(Intersectable... geometries) {
+        this(List.of(geometries));
+    }
+
+    /**
+     * Constructs a hierarchy over the given objects, building big sub-trees in parallel on the common pool.
+     * Nested {@link Geometries} (and compiled ones) are flattened, so the hierarchy is built over their members.
+     *
+     * @param geometries the objects to put in the hierarchy
+     */
+    public BVH(List<Intersectable> geometries) {
+        this(geometries, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a hierarchy over the given objects, building big sub-trees in parallel on the given pool.
+     * Nested {@link Geometries} (and compiled ones) are flattened, so the hierarchy is built over their members.
+     * The tree doesn't depend on the pool - any pool builds the same tree.
+     *
+     * @param geometries the objects to put in the hierarchy
+     * @param pool       the pool running the construction tasks
+     */
+    public BVH(List<Intersectable> geometries, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        List<Intersectable> bounded = new ArrayList<>();
+        flatten(geometries, bounded, unbounded);
+        Intersectable[] items = bounded.toArray(new Intersectable[0]);
+        double[] bounds = new double[items.length * BOUNDS];
+        for (int i = 0; i < items.length; ++i) {
+            BoundingBox box = items[i].getBoundingBox();
+            bounds[BOUNDS * i] = box.minX;
+            bounds[BOUNDS * i + 1] = box.minY;
+            bounds[BOUNDS * i + 2] = box.minZ;
+            bounds[BOUNDS * i + 3] = box.maxX;
+            bounds[BOUNDS * i + 4] = box.maxY;
+            bounds[BOUNDS * i + 5] = box.maxZ;
+            for (int axis = 0; axis < 3; ++axis)
+                bounds[BOUNDS * i + 6 + axis] = box.center(axis);
+        }
+        int[] order = new int[items.length];
+        for (int i = 0; i < items.length; ++i)
+            order[i] = i;
+        BuildTask task = new BuildTask(items, order, bounds, 0, items.length, 0);
+        if (items.length == 0)
+            root = null;
+        else if (items.length < PARALLEL_THRESHOLD)
+            root = task.compute();
+        else
+            root = pool.invoke(task);
+        wide = root == null ? null : new Wide(root);
+        stats = stats(items.length, System.nanoTime() - start);
+    }
+
+    /**
+     * Constructs a hierarchy from a tree built before (loaded by {@link BVHCache})
+     *
+     * @param root      the root of the tree, null if there are no bounded objects
+     * @param objects   the amount of bounded objects in the tree
+     * @param unbounded the objects without a bounding box
+     * @param start     the time the construction started, by {@link System#nanoTime()}
+     */
+    BVH(Node root, int objects, List<Intersectable> unbounded, long start) {
+        this.root = root;
+        this.unbounded.addAll(unbounded);
+        wide = root == null ? null : new Wide(root);
+        stats = stats(objects, System.nanoTime() - start);
+    }
+
+    /**
+     * Gathers the statistics of the constructed hierarchy
+     *
+     * @param objects the amount of bounded objects in the tree
+     * @param nanos   the time the construction took, in nanoseconds
+     * @return the statistics
+     */
+    private Stats stats(int objects, long nanos) {
+        int[] counts = new int[3]; // nodes, leaves, depth
+        counts[2] = -1;
+        if (root != null)
+            count(root, 0, counts);
+        return new Stats(objects, unbounded.size(), counts[0], counts[1], counts[2], nanos);
+    }
+
+    /**
+     * Collects the bounded objects into a list, and the unbounded ones into another list.
+     * Nested {@link Geometries} (and compiled ones) are flattened, and empty objects are dropped
+     * since no ray can hit them.
+     *
+     * @param geometries the objects
+     * @param bounded    the list of the bounded objects to fill
+     * @param unbounded  the list of the unbounded objects to fill
+     */
+    static void flatten(List<Intersectable> geometries, List<Intersectable> bounded, List<Intersectable> unbounded) {
+        for (Intersectable geo : geometries) {
+            if (geo instanceof Geometries group)
+                flatten(group.getGeometries(), bounded, unbounded);
+            else if (geo instanceof CompiledGeometries group)
+                flatten(group.getGeometries(), bounded, unbounded);
+            else {
+                BoundingBox box = geo.getBoundingBox();
+                if (box.isEmpty())
+                    continue;
+                if (box.isBounded())
+                    bounded.add(geo);
+                else
+                    unbounded.add(geo);
+            }
+        }
+    }
+
+    /**
+     * Counts the nodes and the leaves of a sub-tree and finds its deepest leaf
+     *
+     * @param node   the root of the sub-tree
+     * @param depth  the depth of the root
+     * @param counts the amount of nodes, the amount of leaves and the maximal depth, updated in place
+     */
+    private static void count(Node node, int depth, int[] counts) {
+        ++counts[0];
+        if (node.items() != null) {
+            ++counts[1];
+            counts[2] = Math.max(counts[2], depth);
+            return;
+        }
+        count(node.left(), depth + 1, counts);
+        count(node.right(), depth + 1, counts);
+    }
+
+    /**
+     * Gets the statistics of the construction of the hierarchy.
+     *
+     * @return The statistics.
+     */
+    public Stats getStats() {
+        return stats;
+    }
+
+    /**
+     * Gets the root of the hierarchy
+     *
+     * @return the root, null if there are no bounded objects
+     */
+    Node getRoot() {
+        return root;
+    }
+
+    /**
+     * The hierarchy with up to 4 children in a node, built over the binary tree by replacing the inner child
+     * with the biggest box by its two children until a node has 4 children or all of them are leaves.
+     * The boxes of the children of a node are kept in a block of boxes of the {@link Kernel},
+     * so a ray is tested against all of them at once, and the tree is kept in flat arrays.
+     */
+    private static final class Wide {
+        /**
+         * The boxes of the children of the nodes - a block of boxes of the {@link Kernel} for each node.
+         * The lanes of the missing children hold a box at infinity, so every block is tested whole
+         */
+        private double[] boxes;
+        /**
+         * For each child of each node: for a leaf - the index of its first object, for an inner node - its index
+         */
+        private int[] children;
+        /**
+         * For each child of each node: the amount of objects of a leaf, 0 for an inner node, -1 for no child
+         */
+        private int[] counts;
+        /**
+         * The objects of the leaves, in the order of the leaves
+         */
+        private final Intersectable[] items;
+        /**
+         * Maximal amount of children waiting on the stack of a traversal - all the children but one of a node
+         * at each level of the tree, and all the children of the deepest node
+         */
+        private final int stackSize;
+        /**
+         * The amount of nodes built so far
+         */
+        private int nodes = 0;
+        /**
+         * The depth of the deepest node built so far
+         */
+        private int depth = 0;
+
+        /**
+         * Builds the wide tree over a binary tree
+         *
+         * @param root the root of the binary tree
+         */
+        Wide(Node root) {
+            // every node but the root replaces at least one inner node of the binary tree
+            int[] sizes = new int[3];
+            count(root, 0, sizes);
+            int capacity = sizes[0] - sizes[1] + 1;
+            boxes = new double[capacity * Kernel.BOX_BLOCK];
+            children = new int[capacity * WIDTH];
+            this.counts = new int[capacity * WIDTH];
+            List<Intersectable> leafItems = new ArrayList<>();
+            widen(root, 0, leafItems);
+            boxes = Arrays.copyOf(boxes, nodes * Kernel.BOX_BLOCK);
+            children = Arrays.copyOf(children, nodes * WIDTH);
+            this.counts = Arrays.copyOf(this.counts, nodes * WIDTH);
+            items = leafItems.toArray(new Intersectable[0]);
+            stackSize = (WIDTH - 1) * depth + WIDTH;
+        }
+
+        /**
+         * Builds the node over a node of the binary tree, and the nodes below it
+         *
+         * @param node      the node of the binary tree
+         * @param level     the depth of the node
+         * @param leafItems the objects of the leaves built so far, to add the objects of the new leaves to
+         * @return the index of the node
+         */
+        private int widen(Node node, int level, List<Intersectable> leafItems) {
+            Node[] lanes = new Node[WIDTH];
+            lanes[0] = node;
+            int size = 1;
+            while (size < WIDTH) {
+                int open = -1;
+                double openArea = -1;
+                for (int l = 0; l < size; ++l)
+                    if (lanes[l].items() == null && lanes[l].box().surfaceArea() > openArea) {
+                        open = l;
+                        openArea = lanes[l].box().surfaceArea();
+                    }
+                if (open < 0)
+                    break;
+                Node inner = lanes[open];
+                lanes[open] = inner.left();
+                lanes[size++] = inner.right();
+            }
+
+            int index = nodes++;
+            depth = Math.max(depth, level);
+            for (int l = 0; l < WIDTH; ++l) {
+                int lane = WIDTH * index + l;
+                if (l >= size) {
+                    // a box at infinity, which every ray misses
+                    for (int k = 0; k < 6; ++k)
+                        boxes[index * Kernel.BOX_BLOCK + k * WIDTH + l] = Double.POSITIVE_INFINITY;
+                    counts[lane] = -1;
+                    continue;
+                }
+                BoundingBox box = lanes[l].box();
+                int offset = index * Kernel.BOX_BLOCK + l;
+                boxes[offset] = box.minX;
+                boxes[offset + WIDTH] = box.minY;
+                boxes[offset + 2 * WIDTH] = box.minZ;
+                boxes[offset + 3 * WIDTH] = box.maxX;
+                boxes[offset + 4 * WIDTH] = box.maxY;
+                boxes[offset + 5 * WIDTH] = box.maxZ;
+                Intersectable[] leaf = lanes[l].items();
+                if (leaf == null) {
+                    counts[lane] = 0;
+                    children[lane] = widen(lanes[l], level + 1, leafItems);
+                } else {
+                    counts[lane] = leaf.length;
+                    children[lane] = leafItems.size();
+                    leafItems.addAll(List.of(leaf));
+                }
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Builds the sub-tree over a range of objects. The objects are sorted into bins by the centers of their boxes
+     * along each axis, and the range is split between the bins where the surface area heuristic estimates
+     * the lowest cost of tracing a ray, or turned into a leaf if splitting doesn't pay off.
+     * The objects of the range (their indices and their bounds) are reordered in place, so the two halves of a split are
+     * adjacent ranges and the tasks building them never touch the same objects. The left half of a big
+     * sub-tree is built by a forked task while the current task builds the right half.
+     */
+    private static final class BuildTask extends RecursiveTask<Node> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        // the tasks are never serialized - they live only during the construction
+        /**
+         * The objects
+         */
+        private final transient Intersectable[] items;
+        /**
+         * The indices of the objects, reordered so the objects of each sub-tree are adjacent
+         */
+        private final transient int[] order;
+        /**
+         * The boxes and the centers of the objects, reordered together with their indices
+         */
+        private final transient double[] bounds;
+        /**
+         * The first index of the range (included)
+         */
+        private final int from;
+        /**
+         * The last index of the range (excluded)
+         */
+        private final int to;
+        /**
+         * The depth of the root of the sub-tree
+         */
+        private final int depth;
+
+        /**
+         * Constructs a task building the sub-tree over a range of objects
+         *
+         * @param items  the objects
+         * @param order  the indices of the objects, in the order of the ranges of the sub-trees
+         * @param bounds the boxes and the centers of the objects, in the same order ({@link #BOUNDS} numbers for each)
+         * @param from   the first index of the range (included)
+         * @param to     the last index of the range (excluded)
+         * @param depth  the depth of the root of the sub-tree
+         */
+        BuildTask(Intersectable[] items, int[] order, double[] bounds, int from, int to, int depth) {
+            this.items = items;
+            this.order = order;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Node compute() {
+            int n = to - from;
+            double[] box = emptyBox();
+            double[] centers = emptyBox();
+            for (int i = from; i < to; ++i)
+                for (int axis = 0; axis < 3; ++axis) {
+                    box[axis] = Math.min(box[axis], bounds[BOUNDS * i + axis]);
+                    box[3 + axis] = Math.max(box[3 + axis], bounds[BOUNDS * i + 3 + axis]);
+                    double center = bounds[BOUNDS * i + 6 + axis];
+                    centers[axis] = Math.min(centers[axis], center);
+                    centers[3 + axis] = Math.max(centers[3 + axis], center);
+                }
+            BoundingBox nodeBox = new BoundingBox(box[0], box[1], box[2], box[3], box[4], box[5]);
+            if (n == 1 || depth == MAX_DEPTH)
+                return leaf(nodeBox);
+
+            double bestCost = Double.POSITIVE_INFINITY;
+            int bestAxis = -1;
+            int bestSplit = -1;
+            int[] counts = new int[BINS];
+            double[] binBoxes = new double[BINS * 6];
+            double[] rightAreas = new double[BINS];
+            double[] side = new double[6];
+            for (int axis = 0; axis < 3; ++axis) {
+                double extent = centers[3 + axis] - centers[axis];
+                if (extent <= 0)
+                    continue;
+                double scale = BINS / extent;
+                Arrays.fill(counts, 0);
+                fillEmpty(binBoxes);
+                for (int i = from; i < to; ++i) {
+                    int b = bin(i, axis, centers[axis], scale);
+                    ++counts[b];
+                    for (int k = 0; k < 3; ++k) {
+                        binBoxes[6 * b + k] = Math.min(binBoxes[6 * b + k], bounds[BOUNDS * i + k]);
+                        binBoxes[6 * b + 3 + k] = Math.max(binBoxes[6 * b + 3 + k], bounds[BOUNDS * i + 3 + k]);
+                    }
+                }
+                // sweep from the right to get the areas of all the possible right groups
+                fillEmpty(side);
+                for (int b = BINS - 1; b > 0; --b) {
+                    unite(side, binBoxes, b);
+                    rightAreas[b] = surfaceArea(side);
+                }
+                // sweep from the left, evaluating the cost of splitting before bin b
+                fillEmpty(side);
+                int leftCount = 0;
+                for (int b = 1; b < BINS; ++b) {
+                    unite(side, binBoxes, b - 1);
+                    leftCount += counts[b - 1];
+                    int rightCount = n - leftCount;
+                    if (leftCount == 0 || rightCount == 0)
+                        continue;
+                    double cost = surfaceArea(side) * leftCount + rightAreas[b] * rightCount;
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestAxis = axis;
+                        bestSplit = b;
+                    }
+                }
+            }
+
+            int middle;
+            if (bestAxis < 0) {
+                // all the centers coincide - no heuristic, split in the middle
+                if (n <= MAX_LEAF_SIZE)
+                    return leaf(nodeBox);
+                middle = from + n / 2;
+            } else {
+                double parentArea = surfaceArea(box);
+                if (parentArea > 0 && n <= MAX_LEAF_SIZE && TRAVERSAL_COST + bestCost / parentArea >= n)
+                    return leaf(nodeBox);
+                // move the objects of the left bins to the start of the range
+                double scale = BINS / (centers[3 + bestAxis] - centers[bestAxis]);
+                middle = from;
+                for (int i = from; i < to; ++i)
+                    if (bin(i, bestAxis, centers[bestAxis], scale) < bestSplit)
+                        swap(i, middle++);
+            }
+
+            BuildTask leftTask = new BuildTask(items, order, bounds, from, middle, depth + 1);
+            BuildTask rightTask = new BuildTask(items, order, bounds, middle, to, depth + 1);
+            if (n < PARALLEL_THRESHOLD)
+                return new Node(nodeBox, leftTask.compute(), rightTask.compute(), null);
+            leftTask.fork();
+            Node right = rightTask.compute();
+            return new Node(nodeBox, leftTask.join(), right, null);
+        }
+
+        /**
+         * Finds the bin of an object by the center of its box along an axis
+         *
+         * @param i      the index of the object
+         * @param axis   0 for x, 1 for y and 2 for z
+         * @param min    the minimal center along the axis
+         * @param scale  the amount of bins divided by the distance between the minimal and the maximal center
+         *               along the axis
+         * @return the index of the bin
+         */
+        private int bin(int i, int axis, double min, double scale) {
+            return Math.min(BINS - 1, (int) ((bounds[BOUNDS * i + 6 + axis] - min) * scale));
+        }
+
+        /**
+         * Swaps two objects of the order together with their bounds
+         *
+         * @param i the place of one object
+         * @param j the place of the other object
+         */
+        private void swap(int i, int j) {
+            if (i == j)
+                return;
+            int item = order[i];
+            order[i] = order[j];
+            order[j] = item;
+            for (int k = 0; k < BOUNDS; ++k) {
+                double bound = bounds[BOUNDS * i + k];
+                bounds[BOUNDS * i + k] = bounds[BOUNDS * j + k];
+                bounds[BOUNDS * j + k] = bound;
+            }
+        }
+
+        /**
+         * Creates a leaf holding the range of objects
+         *
+         * @param box the box bounding the objects
+         * @return the leaf
+         */
+        private Node leaf(BoundingBox box) {
+            Intersectable[] geometries = new Intersectable[to - from];
+            for (int i = from; i < to; ++i)
+                geometries[i - from] = items[order[i]];
+            return new Node(box, null, null, geometries);
+        }
+    }
+
+    /**
+     * Creates the coordinates of an empty box
+     *
+     * @return minimal x, y, z and maximal x, y, z of the empty box
+     */
+    private static double[] emptyBox() {
+        double[] box = new double[6];
+        fillEmpty(box);
+        return box;
+    }
+
+    /**
+     * Resets all the boxes of an array of boxes to the empty box
+     *
+     * @param boxes minimal x, y, z and maximal x, y, z of each box
+     */
+    private static void fillEmpty(double[] boxes) {
+        for (int i = 0; i < boxes.length; i += 6) {
+            Arrays.fill(boxes, i, i + 3, Double.POSITIVE_INFINITY);
+            Arrays.fill(boxes, i + 3, i + 6, Double.NEGATIVE_INFINITY);
+        }
+    }
+
+    /**
+     * Extends a box to contain a box of an array of boxes
+     *
+     * @param box   minimal x, y, z and maximal x, y, z of the box to extend
+     * @param boxes minimal x, y, z and maximal x, y, z of each box of the array
+     * @param index the index of the box to contain
+     */
+    private static void unite(double[] box, double[] boxes, int index) {
+        for (int k = 0; k < 3; ++k) {
+            box[k] = Math.min(box[k], boxes[6 * index + k]);
+            box[3 + k] = Math.max(box[3 + k], boxes[6 * index + 3 + k]);
+        }
+    }
+
+    /**
+     * Calculates the surface area of a box
+     *
+     * @param box minimal x, y, z and maximal x, y, z of the box
+     * @return the surface area, 0 for an empty box
+     */
+    private static double surfaceArea(double[] box) {
+        double dx = box[3] - box[0];
+        if (dx < 0) return 0;
+        double dy = box[4] - box[1];
+        double dz = box[5] - box[2];
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    @Override
+    protected BoundingBox calcBoundingBox() {
+        BoundingBox box = root == null ? BoundingBox.EMPTY : root.box();
+        for (Intersectable geo : unbounded)
+            box = box.union(geo.getBoundingBox());
+        return box;
+    }
+
+    /**
+     * Collects the intersections of a ray with the objects, skipping the branches whose boxes
+     * the ray doesn't pass through
+     */
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        List<GeoPoint> intersections = new LinkedList<>();
+        for (Intersectable geo : unbounded) {
+            var geoPoints = geo.findGeoIntersections(ray, maxDistance);
+            if (geoPoints != null)
+                intersections.addAll(geoPoints);
+        }
+        if (wide != null) {
+            Point head = ray.getHead();
+            Vector direction = ray.getDirection();
+            double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+            double ix = 1 / direction.getX(), iy = 1 / direction.getY(), iz = 1 / direction.getZ();
+            double[] distances = new double[WIDTH];
+            int[] stack = new int[wide.stackSize];
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int node = stack[--top];
+                Kernel.DEFAULT.boxDistances(wide.boxes, node * Kernel.BOX_BLOCK, 0, WIDTH, ox, oy, oz, ix, iy, iz,
+                        maxDistance, distances);
+                for (int l = 0; l < WIDTH; ++l) {
+                    if (distances[l] == Double.POSITIVE_INFINITY)
+                        continue;
+                    int lane = WIDTH * node + l, first = wide.children[lane];
+                    if (wide.counts[lane] == 0) {
+                        stack[top++] = first;
+                        continue;
+                    }
+                    for (int i = first; i < first + wide.counts[lane]; ++i) {
+                        var geoPoints = wide.items[i].findGeoIntersections(ray, maxDistance);
+                        if (geoPoints != null)
+                            intersections.addAll(geoPoints);
+                    }
+                }
+            }
+        }
+        if (intersections.isEmpty())
+            return null;
+        return intersections.stream().sorted(Comparator.comparingDouble(p -> p.point.distance(ray.getHead()))).toList();
+    }
+
+    /**
+     * Finds the closest intersection of a ray with the objects. The children of the nodes are visited
+     * front to back and the distance shrinks with every hit, so the farther children are skipped if a hit
+     * was found before the ray enters their boxes.
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        GeoPoint closest = null;
+        Point head = ray.getHead();
+        for (Intersectable geo : unbounded) {
+            GeoPoint geoPoint = geo.findClosestGeoIntersection(ray, maxDistance);
+            if (geoPoint != null) {
+                closest = geoPoint;
+                maxDistance = geoPoint.point.distance(head);
+            }
+        }
+        if (wide == null)
+            return closest;
+
+        Vector direction = ray.getDirection();
+        double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+        double ix = 1 / direction.getX(), iy = 1 / direction.getY(), iz = 1 / direction.getZ();
+        double[] distances = new double[WIDTH];
+        int[] lanes = new int[WIDTH];
+        // the children waiting to be visited, by their lanes (-1 for the root), and the distances the ray enters them
+        int[] stack = new int[wide.stackSize];
+        double[] entries = new double[wide.stackSize];
+        int top = 0;
+        stack[top] = -1;
+        entries[top++] = 0;
+        while (top > 0) {
+            int lane = stack[--top];
+            if (entries[top] > maxDistance)
+                continue;
+            int count = lane < 0 ? 0 : wide.counts[lane];
+            if (count > 0) {
+                int first = wide.children[lane];
+                for (int i = first; i < first + count; ++i) {
+                    GeoPoint geoPoint = wide.items[i].findClosestGeoIntersection(ray, maxDistance);
+                    if (geoPoint != null) {
+                        double distance = geoPoint.point.distance(head);
+                        if (distance < maxDistance || closest == null) {
+                            closest = geoPoint;
+                            maxDistance = distance;
+                        }
+                    }
+                }
+                continue;
+            }
+
+            int node = lane < 0 ? 0 : wide.children[lane];
+            Kernel.DEFAULT.boxDistances(wide.boxes, node * Kernel.BOX_BLOCK, 0, WIDTH, ox, oy, oz, ix, iy, iz,
+                    maxDistance, distances);
+            // sort the children the ray enters by their distances...
+            int size = 0;
+            for (int l = 0; l < WIDTH; ++l) {
+                if (distances[l] == Double.POSITIVE_INFINITY)
+                    continue;
+                int k = size++;
+                for (; k > 0 && distances[lanes[k - 1]] > distances[l]; --k)
+                    lanes[k] = lanes[k - 1];
+                lanes[k] = l;
+            }
+            // ...and push them back to front, so the nearest one is visited first
+            for (int k = size - 1; k >= 0; --k) {
+                stack[top] = WIDTH * node + lanes[k];
+                entries[top++] = distances[lanes[k]];
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Finds the closest intersection of a ray with the objects of a sub-tree of the binary tree, for the rays
+     * left of a packet. The children are visited front to back, and the farther child is skipped if a hit
+     * was found before the ray enters its box.
+     *
+     * @param node        the root of the sub-tree - the ray is known to pass through its box
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray head
+     * @return the closest intersection, or null if there is none closer than the distance
+     */
+    private GeoPoint findClosestGeoIntersection(Node node, Ray ray, double maxDistance) {
+        GeoPoint closest = null;
+        if (node.items() != null) {
+            for (Intersectable geo : node.items()) {
+                GeoPoint geoPoint = geo.findClosestGeoIntersection(ray, maxDistance);
+                if (geoPoint != null) {
+                    double distance = geoPoint.point.distance(ray.getHead());
+                    if (closest == null || distance < maxDistance) {
+                        closest = geoPoint;
+                        maxDistance = distance;
+                    }
+                }
+            }
+            return closest;
+        }
+
+        Node near = node.left();
+        Node far = node.right();
+        double nearDistance = near.box().distance(ray, maxDistance);
+        double farDistance = far.box().distance(ray, maxDistance);
+        if (farDistance < nearDistance) {
+            near = node.right();
+            far = node.left();
+            double distance = nearDistance;
+            nearDistance = farDistance;
+            farDistance = distance;
+        }
+        if (nearDistance == Double.POSITIVE_INFINITY)
+            return null;
+
+        closest = findClosestGeoIntersection(near, ray, maxDistance);
+        if (closest != null)
+            maxDistance = closest.point.distance(ray.getHead());
+        if (farDistance != Double.POSITIVE_INFINITY && farDistance <= maxDistance) {
+            GeoPoint geoPoint = findClosestGeoIntersection(far, ray, maxDistance);
+            if (geoPoint != null && (closest == null || geoPoint.point.distance(ray.getHead()) < maxDistance))
+                closest = geoPoint;
+        }
+        return closest;
+    }
+
+    /**
+     * Calculates how much light passes along a ray through the objects, stopping as soon as the ray is blocked
+     */
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, double minK) {
+        Double3 ktr = Double3.ONE;
+        for (Intersectable geo : unbounded) {
+            ktr = ktr.product(geo.findTransparency(ray, maxDistance, minK));
+            if (ktr.lowerThan(minK))
+                return Double3.ZERO;
+        }
+        if (wide == null)
+            return ktr;
+
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+        double ix = 1 / direction.getX(), iy = 1 / direction.getY(), iz = 1 / direction.getZ();
+        double[] distances = new double[WIDTH];
+        int[] stack = new int[wide.stackSize];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            Kernel.DEFAULT.boxDistances(wide.boxes, node * Kernel.BOX_BLOCK, 0, WIDTH, ox, oy, oz, ix, iy, iz,
+                    maxDistance, distances);
+            for (int l = 0; l < WIDTH; ++l) {
+                if (distances[l] == Double.POSITIVE_INFINITY)
+                    continue;
+                int lane = WIDTH * node + l, first = wide.children[lane];
+                if (wide.counts[lane] == 0) {
+                    stack[top++] = first;
+                    continue;
+                }
+                for (int i = first; i < first + wide.counts[lane]; ++i) {
+                    ktr = ktr.product(wide.items[i].findTransparency(ray, maxDistance, minK));
+                    if (ktr.lowerThan(minK))
+                        return Double3.ZERO;
+                }
+            }
+        }
+        return ktr;
+    }
+
+    @Override
+    protected GeoPoint[] findClosestGeoIntersectionsHelper(Ray[] rays) {
+        Packet packet = new Packet(rays);
+        GeoPoint[] closest = new GeoPoint[rays.length];
+        int[] active = new int[rays.length];
+        for (int r = 0; r < rays.length; ++r) {
+            active[r] = r;
+            for (Intersectable geo : unbounded) {
+                GeoPoint geoPoint = geo.findClosestGeoIntersection(rays[r], packet.maxDistances[r]);
+                if (geoPoint != null) {
+                    closest[r] = geoPoint;
+                    packet.maxDistances[r] = geoPoint.point.distance(rays[r].getHead());
+                }
+            }
+        }
+        if (root == null)
+            return closest;
+        double[] distances = packet.distances(0, 0);
+        packet.distances(root.box(), active, rays.length, distances);
+        int count = 0;
+        for (int r = 0; r < rays.length; ++r)
+            if (distances[r] != Double.POSITIVE_INFINITY)
+                active[count++] = r;
+        if (count > 0)
+            findClosestGeoIntersections(root, 0, packet, active, count, closest);
+        return closest;
+    }
+
+    /**
+     * Finds the closest intersections of the rays of a packet with the objects of a sub-tree. The children
+     * are visited in the order that is front to back for most of the rays, and each ray skips the farther
+     * child if it found a hit before entering its box.
+     *
+     * @param node    the root of the sub-tree - the active rays are known to pass through its box
+     * @param depth   the depth of the root of the sub-tree
+     * @param packet  the packet
+     * @param active  the indices of the rays of the packet which visit the sub-tree
+     * @param count   the amount of the active rays
+     * @param closest the closest intersection of each ray found so far, updated with the hits in the sub-tree
+     */
+    private void findClosestGeoIntersections(Node node, int depth, Packet packet, int[] active, int count,
+                                             GeoPoint[] closest) {
+        if (node.items() != null) {
+            for (int k = 0; k < count; ++k) {
+                int r = active[k];
+                Ray ray = packet.rays[r];
+                for (Intersectable geo : node.items()) {
+                    GeoPoint geoPoint = geo.findClosestGeoIntersection(ray, packet.maxDistances[r]);
+                    if (geoPoint != null) {
+                        double distance = geoPoint.point.distance(ray.getHead());
+                        if (closest[r] == null || distance < packet.maxDistances[r]) {
+                            closest[r] = geoPoint;
+                            packet.maxDistances[r] = distance;
+                        }
+                    }
+                }
+            }
+            return;
+        }
+        if (count < MIN_PACKET) {
+            for (int k = 0; k < count; ++k) {
+                int r = active[k];
+                GeoPoint geoPoint = findClosestGeoIntersection(node, packet.rays[r], packet.maxDistances[r]);
+                if (geoPoint != null) {
+                    double distance = geoPoint.point.distance(packet.rays[r].getHead());
+                    if (closest[r] == null || distance < packet.maxDistances[r]) {
+                        closest[r] = geoPoint;
+                        packet.maxDistances[r] = distance;
+                    }
+                }
+            }
+            return;
+        }
+
+        double[] leftDistances = packet.distances(depth, 0);
+        double[] rightDistances = packet.distances(depth, 1);
+        packet.distances(node.left().box(), active, count, leftDistances);
+        packet.distances(node.right().box(), active, count, rightDistances);
+        int leftFirst = 0;
+        for (int k = 0; k < count; ++k) {
+            if (leftDistances[k] <= rightDistances[k])
+                ++leftFirst;
+            else
+                --leftFirst;
+        }
+        Node near = node.left(), far = node.right();
+        double[] nearDistances = leftDistances, farDistances = rightDistances;
+        if (leftFirst < 0) {
+            near = node.right();
+            far = node.left();
+            nearDistances = rightDistances;
+            farDistances = leftDistances;
+        }
+
+        int[] visiting = packet.visiting(depth);
+        int visitors = 0;
+        for (int k = 0; k < count; ++k)
+            if (nearDistances[k] != Double.POSITIVE_INFINITY)
+                visiting[visitors++] = active[k];
+        if (visitors > 0)
+            findClosestGeoIntersections(near, depth + 1, packet, visiting, visitors, closest);
+        visitors = 0;
+        for (int k = 0; k < count; ++k)
+            if (farDistances[k] != Double.POSITIVE_INFINITY && farDistances[k] <= packet.maxDistances[active[k]])
+                visiting[visitors++] = active[k];
+        if (visitors > 0)
+            findClosestGeoIntersections(far, depth + 1, packet, visiting, visitors, closest);
+    }
+
+    /**
+     * Packet of rays traversing the hierarchy together. The heads and the directions of the rays are copied
+     * into arrays, so the box of a node is loaded once and tested against all the rays of the packet.
+     */
+    private static final class Packet {
+        /**
+         * The rays
+         */
+        private final Ray[] rays;
+        /**
+         * The maximal distance from the head of each ray - shrinks with the hits of the closest search
+         */
+        private final double[] maxDistances;
+        /**
+         * The coordinates of the heads of the rays
+         */
+        private final double[] ox, oy, oz;
+        /**
+         * The coordinates of the directions of the rays
+         */
+        private final double[] dx, dy, dz;
+        /**
+         * The bounds of the packet along each axis - the lowest and the highest coordinate of the heads,
+         * and the lowest and the highest coordinate of the directions, or NaN if the directions along the axis
+         * don't have the same sign
+         */
+        private final double[] bounds = new double[3 * 4];
+        /**
+         * Scratch arrays of the traversal for each depth of the tree, allocated on first use - the indices
+         * of the rays visiting a child of a node, and the distances of the rays to the boxes of both children
+         */
+        private final int[][] visiting = new int[MAX_DEPTH + 1][];
+        private final double[][] distances = new double[2 * (MAX_DEPTH + 1)][];
+
+        /**
+         * Constructs a packet of rays
+         *
+         * @param rays the rays
+         */
+        Packet(Ray[] rays) {
+            int n = rays.length;
+            this.rays = rays;
+            maxDistances = new double[n];
+            Arrays.fill(maxDistances, Double.POSITIVE_INFINITY);
+            ox = new double[n];
+            oy = new double[n];
+            oz = new double[n];
+            dx = new double[n];
+            dy = new double[n];
+            dz = new double[n];
+            for (int r = 0; r < n; ++r) {
+                Point head = rays[r].getHead();
+                Vector direction = rays[r].getDirection();
+                ox[r] = head.getX();
+                oy[r] = head.getY();
+                oz[r] = head.getZ();
+                dx[r] = direction.getX();
+                dy[r] = direction.getY();
+                dz[r] = direction.getZ();
+            }
+            bound(0, ox, dx);
+            bound(1, oy, dy);
+            bound(2, oz, dz);
+        }
+
+        /**
+         * Calculates the bounds of the packet along an axis
+         *
+         * @param axis       0 for x, 1 for y and 2 for z
+         * @param heads      the coordinates of the heads along the axis
+         * @param directions the coordinates of the directions along the axis
+         */
+        private void bound(int axis, double[] heads, double[] directions) {
+            double headMin = Double.POSITIVE_INFINITY, headMax = Double.NEGATIVE_INFINITY;
+            double directionMin = Double.POSITIVE_INFINITY, directionMax = Double.NEGATIVE_INFINITY;
+            int positive = 0, negative = 0;
+            for (int r = 0; r < heads.length; ++r) {
+                headMin = Math.min(headMin, heads[r]);
+                headMax = Math.max(headMax, heads[r]);
+                directionMin = Math.min(directionMin, directions[r]);
+                directionMax = Math.max(directionMax, directions[r]);
+                if (directions[r] > 0) ++positive;
+                else if (directions[r] < 0) ++negative;
+            }
+            bounds[4 * axis] = headMin;
+            bounds[4 * axis + 1] = headMax;
+            boolean sameSign = positive == heads.length || negative == heads.length;
+            bounds[4 * axis + 2] = sameSign ? directionMin : Double.NaN;
+            bounds[4 * axis + 3] = sameSign ? directionMax : Double.NaN;
+        }
+
+        /**
+         * Tests a box against the whole packet at once, by interval arithmetic on the bounds of the packet.
+         * The bounds of the slabs are calculated by the same subtractions and divisions as in the tests of
+         * the rays - rounding keeps the order of the results of both, so the result holds for every ray of
+         * the packet.
+         *
+         * @param box the box
+         * @return positive infinity if no ray passes through the box, a distance no ray enters the box before
+         * if every ray passes through it (ignoring the maximal distances), or NaN if it depends on the ray
+         */
+        double cover(BoundingBox box) {
+            double entryMin = 0, exitMax = Double.POSITIVE_INFINITY;
+            double entryMax = 0, exitMin = Double.POSITIVE_INFINITY;
+            boolean bounded = true;
+            for (int axis = 0; axis < 3; ++axis) {
+                double directionMin = bounds[4 * axis + 2];
+                if (Double.isNaN(directionMin)) {
+                    bounded = false;
+                    continue;
+                }
+                double directionMax = bounds[4 * axis + 3];
+                double headMin = bounds[4 * axis], headMax = bounds[4 * axis + 1];
+                double min = axis == 0 ? box.minX : axis == 1 ? box.minY : box.minZ;
+                double max = axis == 0 ? box.maxX : axis == 1 ? box.maxY : box.maxZ;
+                // the rays enter at the minimal side and exit at the maximal side, or the opposite
+                double enter = directionMin > 0 ? min : max, leave = directionMin > 0 ? max : min;
+                double a = enter - headMax, b = enter - headMin, c = leave - headMax, d = leave - headMin;
+                if (directionMin < 0) {
+                    double t = a; a = b; b = t;
+                    t = c; c = d; d = t;
+                }
+                // the earliest and the latest entry and exit of the rays along the axis - the quotients
+                // of the same sign are farther from zero the closer the direction is to zero
+                double near = a / (a >= 0 ? directionMax : directionMin);
+                double lateNear = b / (b >= 0 ? directionMin : directionMax);
+                double earlyFar = c / (c >= 0 ? directionMax : directionMin);
+                double far = d / (d >= 0 ? directionMin : directionMax);
+                if (near > entryMin) entryMin = near;
+                if (far < exitMax) exitMax = far;
+                if (entryMin > exitMax) return Double.POSITIVE_INFINITY;
+                if (lateNear > entryMax) entryMax = lateNear;
+                if (earlyFar < exitMin) exitMin = earlyFar;
+            }
+            return bounded && entryMax <= exitMin ? entryMin : Double.NaN;
+        }
+
+        /**
+         * Gets the array for the indices of the rays visiting a child of a node
+         *
+         * @param depth the depth of the node
+         * @return the array, as long as the packet
+         */
+        int[] visiting(int depth) {
+            if (visiting[depth] == null)
+                visiting[depth] = new int[rays.length];
+            return visiting[depth];
+        }
+
+        /**
+         * Gets the array for the distances of the rays to the box of a child of a node
+         *
+         * @param depth the depth of the node
+         * @param child 0 for the left child, 1 for the right child
+         * @return the array, as long as the packet
+         */
+        double[] distances(int depth, int child) {
+            int index = 2 * depth + child;
+            if (distances[index] == null)
+                distances[index] = new double[rays.length];
+            return distances[index];
+        }
+
+        /**
+         * Calculates the distances along rays of the packet to the points where they enter a box - the slab
+         * test of {@link BoundingBox#distance(Ray, double)}, up to the maximal distance of each ray. The box
+         * is first tested against the whole packet - if all the rays miss it, or all pass through it,
+         * they are not tested one by one, and a distance no ray enters the box before stands for the
+         * entry distances. Otherwise the box is loaded once for all the rays, which are tested with the same
+         * divisions as a single ray, so both find the same boxes.
+         *
+         * @param box       the box
+         * @param active    the indices of the rays
+         * @param count     the amount of the rays
+         * @param distances the array to write the entry distance of each ray to - exact or lower
+         *                  (positive infinity for a ray which misses the box within its distance)
+         */
+        void distances(BoundingBox box, int[] active, int count, double[] distances) {
+            double cover = box.isEmpty() ? Double.POSITIVE_INFINITY : cover(box);
+            if (!Double.isNaN(cover)) {
+                // the same for all the rays - the rays whose search ended before the box skip it
+                for (int k = 0; k < count; ++k)
+                    distances[k] = cover <= maxDistances[active[k]] ? cover : Double.POSITIVE_INFINITY;
+                return;
+            }
+            double minX = box.minX, minY = box.minY, minZ = box.minZ;
+            double maxX = box.maxX, maxY = box.maxY, maxZ = box.maxZ;
+            for (int k = 0; k < count; ++k) {
+                int r = active[k];
+                double tNear = 0;
+                double tFar = maxDistances[r];
+                distances[k] = Double.POSITIVE_INFINITY;
+
+                double o = ox[r];
+                if (dx[r] == 0) {
+                    if (o < minX || o > maxX) continue;
+                } else {
+                    double t1 = (minX - o) / dx[r], t2 = (maxX - o) / dx[r];
+                    if (t1 > t2) { double t = t1; t1 = t2; t2 = t; }
+                    if (t1 > tNear) tNear = t1;
+                    if (t2 < tFar) tFar = t2;
+                    if (tNear > tFar) continue;
+                }
+                o = oy[r];
+                if (dy[r] == 0) {
+                    if (o < minY || o > maxY) continue;
+                } else {
+                    double t1 = (minY - o) / dy[r], t2 = (maxY - o) / dy[r];
+                    if (t1 > t2) { double t = t1; t1 = t2; t2 = t; }
+                    if (t1 > tNear) tNear = t1;
+                    if (t2 < tFar) tFar = t2;
+                    if (tNear > tFar) continue;
+                }
+                o = oz[r];
+                if (dz[r] == 0) {
+                    if (o < minZ || o > maxZ) continue;
+                } else {
+                    double t1 = (minZ - o) / dz[r], t2 = (maxZ - o) / dz[r];
+                    if (t1 > t2) { double t = t1; t1 = t2; t2 = t; }
+                    if (t1 > tNear) tNear = t1;
+                    if (t2 < tFar) tFar = t2;
+                    if (tNear > tFar) continue;
+                }
+                distances[k] = tNear;
+            }
+        }
+    }
+}
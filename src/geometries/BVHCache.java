@@ -0,0 +1,311 @@
+package geometries;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Cache of built bounding volume hierarchies in files, so re-rendering an unchanged scene skips
+ * the construction of its hierarchy.<br/>
+ * A hierarchy depends only on the bounding boxes of its objects (in the order the objects are given),
+ * so the file of a hierarchy is named by a hash of these boxes, and keeps the boxes of the nodes and,
+ * in the leaves, the indices of the objects in that order. The objects themselves are still created by
+ * the code of the scene - loading a hierarchy maps its file into memory and links the nodes to the objects.
+ * A changed scene gets a different hash, so it is built and cached in a new file; stale files are never
+ * read, and may be deleted at any time.
+ * <p>
+ * A file which can't be written is only logged - the built hierarchy is used anyway.
+ * <p>
+ * File format (big endian): the magic number, the format version, the hash (32 bytes), the amount of
+ * objects, the CRC-32 checksum of the nodes, and the nodes in pre-order - each with its box
+ * (minimal x, y, z and maximal x, y, z) and the amount of its objects (-1 for an inner node)
+ * followed by their indices.
+ */
+public final class BVHCache {
+
+    /**
+     * The first 4 bytes of a cache file - "BVHC"
+     */
+    private static final int MAGIC = 0x42564843;
+    /**
+     * The version of the file format and of the construction of the hierarchy - changing either
+     * must change the version, so older files are not used
+     */
+    private static final int VERSION = 2;
+    /**
+     * The extension of the cache files
+     */
+    private static final String EXTENSION = ".bvh";
+    /**
+     * The size of the header of a file in bytes - magic, version, hash, the amount of objects and the checksum
+     */
+    private static final int HEADER_BYTES = 4 + 4 + 32 + 4 + 4;
+    /**
+     * The size of a node in a file in bytes, without the indices of its objects
+     */
+    private static final int NODE_BYTES = 6 * 8 + 4;
+
+    /**
+     * The folder of the cache files
+     */
+    private final Path directory;
+    /**
+     * Amount of hierarchies loaded from files
+     */
+    private final AtomicInteger hits = new AtomicInteger();
+    /**
+     * Amount of hierarchies built (and written to files)
+     */
+    private final AtomicInteger misses = new AtomicInteger();
+    /**
+     * logger for reporting I/O failures
+     */
+    private final Logger logger = Logger.getLogger("BVHCache");
+
+    /**
+     * Constructs a cache keeping its files in a folder
+     *
+     * @param directory the folder, created on the first write if it doesn't exist
+     */
+    public BVHCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Gets a hierarchy over the given objects - loads it from its file if the objects were cached before,
+     * otherwise builds it and writes it to a file. Nested {@link Geometries} (and compiled ones)
+     * are flattened as in {@link BVH#BVH(List)}.
+     *
+     * @param geometries the objects to put in the hierarchy
+     * @return the hierarchy
+     */
+    public BVH get(List<Intersectable> geometries) {
+        long start = System.nanoTime();
+        List<Intersectable> bounded = new ArrayList<>();
+        List<Intersectable> unbounded = new ArrayList<>();
+        BVH.flatten(geometries, bounded, unbounded);
+        Intersectable[] items = bounded.toArray(new Intersectable[0]);
+        if (items.length == 0)
+            return new BVH(geometries);
+
+        byte[] hash = hash(items);
+        Path file = directory.resolve(HexFormat.of().formatHex(hash) + EXTENSION);
+        BVH.Node root = read(file, hash, items);
+        if (root != null) {
+            hits.incrementAndGet();
+            return new BVH(root, items.length, unbounded, start);
+        }
+        misses.incrementAndGet();
+        BVH bvh = new BVH(geometries);
+        write(file, hash, bvh.getRoot(), items);
+        return bvh;
+    }
+
+    /**
+     * Gets the amount of hierarchies loaded from files.
+     *
+     * @return The amount of hits.
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the amount of hierarchies built since their objects were not cached.
+     *
+     * @return The amount of misses.
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Calculates the hash of the bounding boxes of objects
+     *
+     * @param items the objects
+     * @return the hash (SHA-256, 32 bytes)
+     */
+    private static byte[] hash(Intersectable[] items) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(6 * 8 * 1024);
+        buffer.putInt(VERSION).putInt(items.length);
+        for (Intersectable item : items) {
+            if (buffer.remaining() < 6 * 8) {
+                digest.update(buffer.flip());
+                buffer.clear();
+            }
+            BoundingBox box = item.getBoundingBox();
+            buffer.putDouble(box.minX).putDouble(box.minY).putDouble(box.minZ)
+                    .putDouble(box.maxX).putDouble(box.maxY).putDouble(box.maxZ);
+        }
+        digest.update(buffer.flip());
+        return digest.digest();
+    }
+
+    /**
+     * Loads a hierarchy from a cache file
+     *
+     * @param file  the file
+     * @param hash  the hash of the objects
+     * @param items the objects, in the order of their indices in the file
+     * @return the root of the hierarchy, or null if the file doesn't exist, doesn't match the objects
+     * or is corrupted
+     */
+    private static BVH.Node read(Path file, byte[] hash, Intersectable[] items) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            return null; // a missing or unreadable file - the hierarchy is built and written again
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                return null;
+            byte[] fileHash = new byte[hash.length];
+            buffer.get(fileHash);
+            if (!Arrays.equals(hash, fileHash) || buffer.getInt() != items.length)
+                return null;
+            int checksum = buffer.getInt();
+            if (checksum(buffer.duplicate()) != checksum)
+                return null;
+            BVH.Node root = readNode(buffer, items, 0);
+            return buffer.hasRemaining() ? null : root;
+        } catch (RuntimeException e) {
+            return null; // a truncated or corrupted file
+        }
+    }
+
+    /**
+     * Reads a sub-tree from a cache file
+     *
+     * @param buffer the content of the file, positioned at the root of the sub-tree
+     * @param items  the objects, in the order of their indices in the file
+     * @param depth  the depth of the root of the sub-tree
+     * @return the root of the sub-tree
+     * @throws IllegalArgumentException if the sub-tree is broken
+     */
+    private static BVH.Node readNode(ByteBuffer buffer, Intersectable[] items, int depth) {
+        if (depth > BVH.MAX_DEPTH)
+            throw new IllegalArgumentException("ERROR:the hierarchy in the file is too deep");
+        BoundingBox box = new BoundingBox(buffer.getDouble(), buffer.getDouble(), buffer.getDouble(),
+                buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        int count = buffer.getInt();
+        if (count < 0) {
+            BVH.Node left = readNode(buffer, items, depth + 1);
+            return new BVH.Node(box, left, readNode(buffer, items, depth + 1), null);
+        }
+        if (count > buffer.remaining() / 4)
+            throw new IllegalArgumentException("ERROR:the leaf in the file is cut");
+        Intersectable[] leaf = new Intersectable[count];
+        for (int i = 0; i < count; ++i)
+            leaf[i] = items[buffer.getInt()];
+        return new BVH.Node(box, null, null, leaf);
+    }
+
+    /**
+     * Calculates the checksum of the nodes in a cache file
+     *
+     * @param nodes the nodes, from the position of the buffer to its limit
+     * @return the CRC-32 checksum
+     */
+    private static int checksum(ByteBuffer nodes) {
+        CRC32 crc = new CRC32();
+        crc.update(nodes);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Writes a hierarchy to a cache file. The file is written under a temporary name and then renamed,
+     * so concurrent renders never read a partial file. A failure is logged, and the temporary file deleted.
+     *
+     * @param file  the file
+     * @param hash  the hash of the objects
+     * @param root  the root of the hierarchy
+     * @param items the objects, in the order of their indices in the file
+     */
+    private void write(Path file, byte[] hash, BVH.Node root, Intersectable[] items) {
+        Map<Intersectable, Integer> indices = new IdentityHashMap<>(items.length);
+        for (int i = 0; i < items.length; ++i)
+            indices.put(items[i], i);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + size(root));
+        buffer.putInt(MAGIC).putInt(VERSION).put(hash).putInt(items.length).putInt(0);
+        writeNode(buffer, root, indices);
+        buffer.putInt(HEADER_BYTES - 4, checksum(buffer.slice(HEADER_BYTES, buffer.position() - HEADER_BYTES)));
+        buffer.flip();
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, "bvh", ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the hierarchy is built anyway - only the next render has to build it again
+            logger.log(Level.WARNING, "I/O error - can't write the hierarchy cache " + file, e);
+            if (temporary != null)
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignore) {
+                    // the stale temporary file is never read
+                }
+        }
+    }
+
+    /**
+     * Calculates the size of a sub-tree in a cache file
+     *
+     * @param node the root of the sub-tree
+     * @return the size in bytes
+     */
+    private static int size(BVH.Node node) {
+        if (node.items() != null)
+            return NODE_BYTES + 4 * node.items().length;
+        return NODE_BYTES + size(node.left()) + size(node.right());
+    }
+
+    /**
+     * Writes a sub-tree in pre-order
+     *
+     * @param buffer  the buffer to write to
+     * @param node    the root of the sub-tree
+     * @param indices the indices of the objects
+     */
+    private static void writeNode(ByteBuffer buffer, BVH.Node node, Map<Intersectable, Integer> indices) {
+        BoundingBox box = node.box();
+        buffer.putDouble(box.minX).putDouble(box.minY).putDouble(box.minZ)
+                .putDouble(box.maxX).putDouble(box.maxY).putDouble(box.maxZ);
+        if (node.items() == null) {
+            buffer.putInt(-1);
+            writeNode(buffer, node.left(), indices);
+            writeNode(buffer, node.right(), indices);
+            return;
+        }
+        buffer.putInt(node.items().length);
+        for (Intersectable item : node.items())
+            buffer.putInt(indices.get(item));
+    }
+}
@@ -0,0 +1,269 @@
+package geometries;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static primitives.Util.isZero;
+
+/**
+ * Axis aligned bounding box (AABB) in 3D space, defined by its minimal and maximal corners.
+ * Used by the acceleration structures to reject whole groups of geometries with one cheap test.
+ */
+public class BoundingBox {
+
+    /**
+     * Box of the whole space - for unbounded geometries (e.g. a plane which is not parallel to two axes)
+     */
+    public static final BoundingBox INFINITE = new BoundingBox(
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+            Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+    /**
+     * Box containing nothing - for empty groups of geometries, no ray passes through it
+     */
+    public static final BoundingBox EMPTY = new BoundingBox();
+
+    /**
+     * The minimal corner coordinates of the box
+     */
+    final double minX, minY, minZ;
+    /**
+     * The maximal corner coordinates of the box
+     */
+    final double maxX, maxY, maxZ;
+
+    /**
+     * Default constructor - to generate the empty box (privately)
+     */
+    private BoundingBox() {
+        minX = minY = minZ = Double.POSITIVE_INFINITY;
+        maxX = maxY = maxZ = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Constructs a bounding box from its minimal and maximal corners.
+     *
+     * @param min The minimal corner of the box.
+     * @param max The maximal corner of the box.
+     */
+    public BoundingBox(Point min, Point max) {
+        this(min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ());
+    }
+
+    /**
+     * Constructs a bounding box from the coordinates of its minimal and maximal corners.
+     *
+     * @param minX minimal x
+     * @param minY minimal y
+     * @param minZ minimal z
+     * @param maxX maximal x
+     * @param maxY maximal y
+     * @param maxZ maximal z
+     */
+    BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        if (minX > maxX || minY > maxY || minZ > maxZ)
+            throw new IllegalArgumentException("ERROR:the minimal corner of a box must be below its maximal corner");
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Constructs the smallest bounding box containing all the given points.
+     *
+     * @param points The points to contain.
+     * @return The bounding box of the points.
+     */
+    public static BoundingBox of(Point... points) {
+        if (points.length == 0)
+            return EMPTY;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (Point p : points) {
+            minX = Math.min(minX, p.getX());
+            minY = Math.min(minY, p.getY());
+            minZ = Math.min(minZ, p.getZ());
+            maxX = Math.max(maxX, p.getX());
+            maxY = Math.max(maxY, p.getY());
+            maxZ = Math.max(maxZ, p.getZ());
+        }
+        return new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Gets the minimal corner of the box.
+     *
+     * @return The minimal corner.
+     */
+    public Point getMin() {
+        return new Point(minX, minY, minZ);
+    }
+
+    /**
+     * Gets the maximal corner of the box.
+     *
+     * @return The maximal corner.
+     */
+    public Point getMax() {
+        return new Point(maxX, maxY, maxZ);
+    }
+
+    /**
+     * Checks whether the box is finite in all the axes - only such boxes can be placed in a hierarchy.
+     *
+     * @return true if all the coordinates of the box are finite, false otherwise
+     */
+    public boolean isBounded() {
+        return Double.isFinite(minX) && Double.isFinite(minY) && Double.isFinite(minZ)
+                && Double.isFinite(maxX) && Double.isFinite(maxY) && Double.isFinite(maxZ);
+    }
+
+    /**
+     * Checks whether the box contains nothing.
+     *
+     * @return true if the box is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return minX > maxX;
+    }
+
+    /**
+     * Constructs the smallest bounding box containing both this box and another one.
+     *
+     * @param other The other box.
+     * @return The united box.
+     */
+    public BoundingBox union(BoundingBox other) {
+        if (isEmpty()) return other;
+        if (other.isEmpty()) return this;
+        return new BoundingBox(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+    }
+
+    /**
+     * Gets the coordinate of the box center along one of the axes.
+     *
+     * @param axis 0 for x, 1 for y and 2 for z
+     * @return The center coordinate along the axis.
+     */
+    double center(int axis) {
+        return switch (axis) {
+            case 0 -> (minX + maxX) / 2;
+            case 1 -> (minY + maxY) / 2;
+            default -> (minZ + maxZ) / 2;
+        };
+    }
+
+    /**
+     * Calculates the surface area of the box, used by the surface area heuristic.
+     *
+     * @return The surface area.
+     */
+    double surfaceArea() {
+        double dx = maxX - minX;
+        double dy = maxY - minY;
+        double dz = maxZ - minZ;
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Checks whether a ray passes through the box closer than a given distance (slab test).
+     *
+     * @param ray         The ray.
+     * @param maxDistance The maximal distance from the ray head.
+     * @return true if the ray enters the box within the distance, false otherwise.
+     */
+    public boolean intersects(Ray ray, double maxDistance) {
+        return distance(ray, maxDistance) != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Calculates the distance along a ray to the point where it enters the box (slab test).
+     *
+     * @param ray         The ray.
+     * @param maxDistance The maximal distance from the ray head.
+     * @return The entry distance (0 if the ray head is inside the box),
+     * or positive infinity if the ray misses the box within the distance.
+     */
+    double distance(Ray ray, double maxDistance) {
+        if (isEmpty()) return Double.POSITIVE_INFINITY;
+        Point head = ray.getHead();
+        Vector dir = ray.getDirection();
+        double tNear = 0;
+        double tFar = maxDistance;
+
+        // x slab
+        double o = head.getX(), d = dir.getX();
+        if (d == 0) {
+            if (o < minX || o > maxX) return Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (minX - o) / d, t2 = (maxX - o) / d;
+            if (t1 > t2) { double t = t1; t1 = t2; t2 = t; }
+            if (t1 > tNear) tNear = t1;
+            if (t2 < tFar) tFar = t2;
+            if (tNear > tFar) return Double.POSITIVE_INFINITY;
+        }
+        // y slab
+        o = head.getY();
+        d = dir.getY();
+        if (d == 0) {
+            if (o < minY || o > maxY) return Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (minY - o) / d, t2 = (maxY - o) / d;
+            if (t1 > t2) { double t = t1; t1 = t2; t2 = t; }
+            if (t1 > tNear) tNear = t1;
+            if (t2 < tFar) tFar = t2;
+            if (tNear > tFar) return Double.POSITIVE_INFINITY;
+        }
+        // z slab
+        o = head.getZ();
+        d = dir.getZ();
+        if (d == 0) {
+            if (o < minZ || o > maxZ) return Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (minZ - o) / d, t2 = (maxZ - o) / d;
+            if (t1 > t2) { double t = t1; t1 = t2; t2 = t; }
+            if (t1 > tNear) tNear = t1;
+            if (t2 < tFar) tFar = t2;
+            if (tNear > tFar) return Double.POSITIVE_INFINITY;
+        }
+        return tNear;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        return (obj instanceof BoundingBox other)
+                && same(minX, other.minX) && same(minY, other.minY) && same(minZ, other.minZ)
+                && same(maxX, other.maxX) && same(maxY, other.maxY) && same(maxZ, other.maxZ);
+    }
+
+    @Override
+    public int hashCode() {
+        // equals accepts almost equal coordinates, and such a tolerance isn't transitive,
+        // so no hash of the coordinates would agree with it for every pair of equal boxes
+        return 0;
+    }
+
+    /**
+     * Compares two coordinates of boxes, which may be infinite
+     *
+     * @param a first coordinate
+     * @param b second coordinate
+     * @return true if the coordinates are equal or almost equal
+     */
+    private static boolean same(double a, double b) {
+        return a == b || isZero(a - b);
+    }
+
+    @Override
+    public String toString() {
+        return "BoundingBox{" +
+                "min=" + getMin() +
+                ", max=" + getMax() +
+                '}';
+    }
+}
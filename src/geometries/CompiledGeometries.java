@@ -0,0 +1,152 @@
+package geometries;
+
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable, array backed form of a group of geometries, for rendering.
+ * Nested {@link Geometries} are flattened into a single array, so a ray walks one contiguous array instead
+ * of chasing the nodes of linked lists, and the members are grouped by their concrete class, so consecutive
+ * calls of the intersection loop go to the same method (and the branch of the call stays predicted).
+ * The group can't be changed after it is compiled (see {@link Geometries#compile()}), so rendering threads
+ * can share it safely.
+ */
+public final class CompiledGeometries extends Intersectable {
+
+    /**
+     * The members of the group, grouped by their class
+     */
+    private final Intersectable[] geometries;
+
+    /**
+     * Compiles a group of geometries
+     *
+     * @param geometries the geometries, nested groups are flattened
+     */
+    CompiledGeometries(List<Intersectable> geometries) {
+        List<Intersectable> members = new ArrayList<>();
+        flatten(geometries, members);
+        this.geometries = members.toArray(new Intersectable[0]);
+        // stable, so the order of the members of each class is kept
+        Arrays.sort(this.geometries, Comparator.comparing(geo -> geo.getClass().getName()));
+    }
+
+    /**
+     * Collects the members of nested groups
+     *
+     * @param geometries the geometries
+     * @param members    the list to fill
+     */
+    private static void flatten(List<Intersectable> geometries, List<Intersectable> members) {
+        for (Intersectable geo : geometries)
+            if (geo instanceof Geometries group)
+                flatten(group.getGeometries(), members);
+            else if (geo instanceof CompiledGeometries group)
+                members.addAll(group.getGeometries());
+            else
+                members.add(geo);
+    }
+
+    /**
+     * Gets the amount of members of the group
+     *
+     * @return the amount of members
+     */
+    public int size() {
+        return geometries.length;
+    }
+
+    /**
+     * Gets the members of the group
+     *
+     * @return an unmodifiable list of the members
+     */
+    List<Intersectable> getGeometries() {
+        return Collections.unmodifiableList(Arrays.asList(geometries));
+    }
+
+    @Override
+    protected BoundingBox calcBoundingBox() {
+        BoundingBox box = BoundingBox.EMPTY;
+        for (Intersectable geo : geometries)
+            box = box.union(geo.getBoundingBox());
+        return box;
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        List<GeoPoint> intersections = null;
+        for (Intersectable geo : geometries) {
+            List<GeoPoint> geoPoints = geo.findGeoIntersections(ray, maxDistance);
+            if (geoPoints != null) {
+                if (intersections == null)
+                    intersections = new ArrayList<>();
+                intersections.addAll(geoPoints);
+            }
+        }
+        if (intersections == null)
+            return null;
+        Point head = ray.getHead();
+        intersections.sort(Comparator.comparingDouble(p -> p.point.distance(head)));
+        return intersections;
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        GeoPoint closest = null;
+        Point head = ray.getHead();
+        for (Intersectable geo : geometries) {
+            GeoPoint geoPoint = geo.findClosestGeoIntersection(ray, maxDistance);
+            if (geoPoint != null) {
+                // the next geometries are searched only up to the closest intersection so far
+                double distance = geoPoint.point.distance(head);
+                if (closest == null || distance < maxDistance) {
+                    closest = geoPoint;
+                    maxDistance = distance;
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Finds the closest intersections of a packet of rays. The whole packet is passed to each member,
+     * so members which trace packets together (e.g. a bounding volume hierarchy) share the work between the rays.
+     */
+    @Override
+    protected GeoPoint[] findClosestGeoIntersectionsHelper(Ray[] rays) {
+        GeoPoint[] closest = new GeoPoint[rays.length];
+        double[] distances = new double[rays.length];
+        for (Intersectable geo : geometries) {
+            GeoPoint[] geoPoints = geo.findClosestGeoIntersections(rays);
+            for (int i = 0; i < rays.length; ++i)
+                if (geoPoints[i] != null) {
+                    // as in the search of a single ray, the first of equally close intersections is kept
+                    double distance = geoPoints[i].point.distance(rays[i].getHead());
+                    if (closest[i] == null || distance < distances[i]) {
+                        closest[i] = geoPoints[i];
+                        distances[i] = distance;
+                    }
+                }
+        }
+        return closest;
+    }
+
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, double minK) {
+        Double3 ktr = Double3.ONE;
+        for (Intersectable geo : geometries) {
+            ktr = ktr.product(geo.findTransparency(ray, maxDistance, minK));
+            if (ktr.lowerThan(minK))
+                return Double3.ZERO;
+        }
+        return ktr;
+    }
+}
@@ -50,6 +50,23 @@ public class Cylinder extends Tube {
     }
 
 
+    @Override
+    protected BoundingBox calcBoundingBox() {
+        Point bottom = axis.getHead();
+        Point top = bottom.add(axis.getDirection().scale(height));
+        Vector v = axis.getDirection();
+        // the extent of a base disc along each axis is r * sin of the angle between the axis and the cylinder axis
+        double ex = radius * Math.sqrt(Math.max(0, 1 - v.getX() * v.getX()));
+        double ey = radius * Math.sqrt(Math.max(0, 1 - v.getY() * v.getY()));
+        double ez = radius * Math.sqrt(Math.max(0, 1 - v.getZ() * v.getZ()));
+        return new BoundingBox(Math.min(bottom.getX(), top.getX()) - ex,
+                Math.min(bottom.getY(), top.getY()) - ey,
+                Math.min(bottom.getZ(), top.getZ()) - ez,
+                Math.max(bottom.getX(), top.getX()) + ex,
+                Math.max(bottom.getY(), top.getY()) + ey,
+                Math.max(bottom.getZ(), top.getZ()) + ez);
+    }
+
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
         List<GeoPoint> intersections = new LinkedList<>();
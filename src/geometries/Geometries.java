@@ -1,22 +1,104 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Ray;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 
 public class Geometries extends Intersectable {
 
-    private List<Intersectable> geometries = new LinkedList<Intersectable>();
+    private List<Intersectable> geometries = new ArrayList<>();
+    /**
+     * The groups this group was added to - their boxes contain its box, so they are reset with it
+     */
+    private final List<Geometries> parents = new ArrayList<>(1);
 
     public Geometries(Intersectable... geometries) {
         add(geometries);
     }
 
     public void add(Intersectable... geometries) {
-        if (geometries != null)
-            this.geometries.addAll(List.of(geometries));
+        if (geometries != null) {
+            Collections.addAll(this.geometries, geometries);
+            for (Intersectable geo : geometries)
+                if (geo instanceof Geometries group)
+                    group.parents.add(this);
+            resetBoundingBox();
+        }
+    }
+
+    /**
+     * Drops the calculated bounding box of the group and of all the groups containing it,
+     * so a nested group getting new members can't leave a stale box in the groups above it.
+     */
+    @Override
+    protected void resetBoundingBox() {
+        super.resetBoundingBox();
+        for (Geometries parent : parents)
+            parent.resetBoundingBox();
+    }
+
+    /**
+     * Replaces the flat list of the geometries with a bounding volume hierarchy built over them,
+     * so the cost of intersecting a ray grows logarithmically with the amount of geometries.
+     * Should be called after all the geometries have been added.
+     *
+     * @return this object for chaining
+     */
+    public Geometries buildBVH() {
+        if (geometries.size() > 1 || (geometries.size() == 1 && geometries.getFirst() instanceof Geometries)) {
+            BVH bvh = new BVH(geometries);
+            geometries = new ArrayList<>();
+            geometries.add(bvh);
+        }
+        return this;
+    }
+
+    /**
+     * Replaces the flat list of the geometries with a uniform grid built over them, so a ray tests only
+     * the geometries along its path. Suits evenly spread scenes better than {@link #buildBVH()}.
+     * Should be called after all the geometries have been added.
+     *
+     * @return this object for chaining
+     */
+    public Geometries buildGrid() {
+        if (geometries.size() > 1 || (geometries.size() == 1 && geometries.getFirst() instanceof Geometries)) {
+            UniformGrid grid = new UniformGrid(geometries);
+            geometries = new ArrayList<>();
+            geometries.add(grid);
+        }
+        return this;
+    }
+
+    /**
+     * Compiles the group into an immutable array backed form for rendering - nested groups are flattened,
+     * and the members are grouped by their class. Later changes of this group don't affect the compiled one.
+     *
+     * @return the compiled group
+     */
+    public CompiledGeometries compile() {
+        return new CompiledGeometries(geometries);
+    }
+
+    /**
+     * Gets the geometries of the group
+     *
+     * @return the list of the geometries
+     */
+    List<Intersectable> getGeometries() {
+        return geometries;
+    }
+
+    @Override
+    protected BoundingBox calcBoundingBox() {
+        BoundingBox box = BoundingBox.EMPTY;
+        for (Intersectable geo : geometries)
+            box = box.union(geo.getBoundingBox());
+        return box;
     }
 
     @Override
@@ -35,4 +117,32 @@ public class Geometries extends Intersectable {
         else return null;
     }
 
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        GeoPoint closest = null;
+        for (Intersectable geo : geometries) {
+            GeoPoint geoPoint = geo.findClosestGeoIntersection(ray, maxDistance);
+            if (geoPoint != null) {
+                // the next geometries are searched only up to the closest intersection so far
+                double distance = geoPoint.point.distance(ray.getHead());
+                if (closest == null || distance < maxDistance) {
+                    closest = geoPoint;
+                    maxDistance = distance;
+                }
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, double minK) {
+        Double3 ktr = Double3.ONE;
+        for (Intersectable geo : geometries) {
+            ktr = ktr.product(geo.findTransparency(ray, maxDistance, minK));
+            if (ktr.lowerThan(minK))
+                return Double3.ZERO;
+        }
+        return ktr;
+    }
+
 }
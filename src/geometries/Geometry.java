@@ -1,8 +1,10 @@
 package geometries;
 
 import primitives.Color;
+import primitives.Double3;
 import primitives.Material;
 import primitives.Point;
+import primitives.Ray;
 import primitives.Vector;
 
 /**
@@ -61,4 +63,15 @@ public abstract class Geometry extends Intersectable {
         this.material = material;
         return this;
     }
+
+    /**
+     * Calculates how much light passes along a ray. An opaque geometry blocks the ray at any
+     * intersection, so it is enough to look for one.
+     */
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, double minK) {
+        if (material.kT.lowerThan(minK))
+            return findClosestGeoIntersectionHelper(ray, maxDistance) == null ? Double3.ONE : Double3.ZERO;
+        return super.findTransparencyHelper(ray, maxDistance, minK);
+    }
 }
@@ -1,7 +1,9 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
+import primitives.Vector;
 
 import java.util.List;
 
@@ -10,6 +12,10 @@ import java.util.List;
  */
 public abstract class Intersectable {
 
+    /**
+     * The bounding box of the geometry, calculated on first use
+     */
+    private BoundingBox boundingBox = null;
 
     public final List<Point> findIntersections(Ray ray) {
         List<GeoPoint> geoList = findGeoIntersections(ray);
@@ -21,12 +27,153 @@ public abstract class Intersectable {
         return findGeoIntersections(ray, Double.POSITIVE_INFINITY);
     }
 
+    /**
+     * Finds the intersections of a ray with the geometry up to a given distance.
+     * A ray which doesn't pass through the bounding box of the geometry is rejected without
+     * calculating the intersections.
+     *
+     * @param ray         The ray.
+     * @param maxDistance The maximal distance from the ray head.
+     * @return The list of the intersections, or null if there are none.
+     */
     public final List<GeoPoint> findGeoIntersections(Ray ray, double maxDistance) {
+        if (!getBoundingBox().intersects(ray, maxDistance))
+            return null;
         return findGeoIntersectionsHelper(ray, maxDistance);
     }
 
     protected abstract List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance);
 
+    /**
+     * Finds the closest intersection of a ray with the geometry.
+     *
+     * @param ray The ray.
+     * @return The closest intersection, or null if there is none.
+     */
+    public final GeoPoint findClosestGeoIntersection(Ray ray) {
+        return findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Finds the closest intersection of a ray with the geometry up to a given distance.
+     * Unlike {@link #findGeoIntersections(Ray, double)} it doesn't need to gather and sort all the
+     * intersections, so groups of geometries can narrow the distance as soon as they find a hit.
+     *
+     * @param ray         The ray.
+     * @param maxDistance The maximal distance from the ray head.
+     * @return The closest intersection, or null if there is none.
+     */
+    public final GeoPoint findClosestGeoIntersection(Ray ray, double maxDistance) {
+        if (!getBoundingBox().intersects(ray, maxDistance))
+            return null;
+        return findClosestGeoIntersectionHelper(ray, maxDistance);
+    }
+
+    /**
+     * Finds the closest intersection of a ray with the geometry up to a given distance.
+     * The default implementation picks the closest of all the intersections - geometries which
+     * can do better should override it.
+     *
+     * @param ray         The ray.
+     * @param maxDistance The maximal distance from the ray head.
+     * @return The closest intersection, or null if there is none.
+     */
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        return ray.findClosestGeoPoint(findGeoIntersectionsHelper(ray, maxDistance));
+    }
+
+    /**
+     * Calculates how much light passes along a ray up to a given distance (e.g. from a point to a light
+     * source) - the product of the transparency coefficients of the geometries at all the intersections.
+     * The search stops as soon as the transparency falls below a threshold, so an opaque blocker
+     * ends it at the first hit.
+     *
+     * @param ray         The ray.
+     * @param maxDistance The maximal distance from the ray head.
+     * @param minK        The threshold below which the ray is considered fully blocked.
+     * @return The transparency along the ray, {@link Double3#ZERO} if the ray is blocked.
+     */
+    public final Double3 findTransparency(Ray ray, double maxDistance, double minK) {
+        if (!getBoundingBox().intersects(ray, maxDistance))
+            return Double3.ONE;
+        return findTransparencyHelper(ray, maxDistance, minK);
+    }
+
+    /**
+     * Calculates how much light passes along a ray up to a given distance.
+     * The default implementation multiplies the coefficients of all the intersections - geometries
+     * which can do better should override it.
+     *
+     * @param ray         The ray.
+     * @param maxDistance The maximal distance from the ray head.
+     * @param minK        The threshold below which the ray is considered fully blocked.
+     * @return The transparency along the ray, {@link Double3#ZERO} if the ray is blocked.
+     */
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, double minK) {
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray, maxDistance);
+        Double3 ktr = Double3.ONE;
+        if (intersections != null)
+            for (GeoPoint intersection : intersections) {
+                ktr = ktr.product(intersection.geometry.getMaterial().kT);
+                if (ktr.lowerThan(minK))
+                    return Double3.ZERO;
+            }
+        return ktr;
+    }
+
+    /**
+     * Finds the closest intersections of a packet of rays with the geometry - the same intersections as
+     * {@link #findClosestGeoIntersection(Ray)} finds for each of the rays. Groups of geometries can trace
+     * coherent rays (e.g. the rays of neighboring pixels) together, sharing the tests of their branches.
+     *
+     * @param rays The rays.
+     * @return The closest intersection of each ray (null for a ray without intersections).
+     */
+    public final GeoPoint[] findClosestGeoIntersections(Ray[] rays) {
+        return findClosestGeoIntersectionsHelper(rays);
+    }
+
+    /**
+     * Finds the closest intersections of a packet of rays with the geometry.
+     * The default implementation traces the rays one by one - groups which can do better should override it.
+     *
+     * @param rays The rays.
+     * @return The closest intersection of each ray (null for a ray without intersections).
+     */
+    protected GeoPoint[] findClosestGeoIntersectionsHelper(Ray[] rays) {
+        GeoPoint[] closest = new GeoPoint[rays.length];
+        for (int i = 0; i < rays.length; ++i)
+            closest[i] = findClosestGeoIntersection(rays[i]);
+        return closest;
+    }
+
+    /**
+     * Gets the axis aligned bounding box of the geometry. The box is calculated on the first call.
+     *
+     * @return The bounding box - {@link BoundingBox#INFINITE} (or infinite along some of the axes)
+     * for unbounded geometries, {@link BoundingBox#EMPTY} for empty groups.
+     */
+    public final BoundingBox getBoundingBox() {
+        if (boundingBox == null)
+            boundingBox = calcBoundingBox();
+        return boundingBox;
+    }
+
+    /**
+     * Calculates the axis aligned bounding box of the geometry.
+     *
+     * @return The bounding box of the geometry.
+     */
+    protected abstract BoundingBox calcBoundingBox();
+
+    /**
+     * Drops the calculated bounding box, so it will be recalculated on the next use.
+     * Must be called whenever the geometry changes its extent (e.g. a group gets new members).
+     */
+    protected void resetBoundingBox() {
+        boundingBox = null;
+    }
+
 
     /**
      * A class that represents a point in the 3D space.
@@ -43,6 +190,12 @@ public abstract class Intersectable {
          */
         public Point point;
 
+        /**
+         * The normal to the geometry at the point - known in advance for some geometries
+         * (e.g. the face of a mesh), otherwise calculated on first use.
+         */
+        private Vector normal;
+
         /**
          * Constructs a new GeoPoint object with the given geometry and point.
          *
@@ -54,6 +207,31 @@ public abstract class Intersectable {
             this.point = point;
         }
 
+        /**
+         * Constructs a new GeoPoint object with the given geometry, point and the normal at the point.
+         *
+         * @param geometry The geometry associated with the point.
+         * @param point    The point associated with the geometry.
+         * @param normal   The normal to the geometry at the point.
+         */
+        public GeoPoint(Geometry geometry, Point point, Vector normal) {
+            this.geometry = geometry;
+            this.point = point;
+            this.normal = normal;
+        }
+
+        /**
+         * Gets the normal to the geometry at the point. The normal is calculated once, so the
+         * shading and the secondary rays of the same point share it.
+         *
+         * @return The normal vector.
+         */
+        public Vector getNormal() {
+            if (normal == null)
+                normal = geometry.getNormal(point);
+            return normal;
+        }
+
         @Override
         public boolean equals(Object obj) {
             if (this == obj) return true;
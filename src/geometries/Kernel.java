@@ -0,0 +1,81 @@
+package geometries;
+
+/**
+ * Intersection tests of a ray with a block of {@link #WIDTH} boxes or triangles at once, for the wide nodes
+ * of the hierarchies and the leaves of the meshes.<br/>
+ * The blocks are kept in struct-of-arrays layout: each coordinate of all the boxes (or the triangles)
+ * of a block is kept in {@link #WIDTH} adjacent numbers, so the test of every lane is the same operations
+ * on the numbers next to those of the other lanes - the shape the vector units of the processor work on.
+ * <p>
+ * A box block holds {@link #BOX_BLOCK} numbers - minimal x of the lanes, minimal y, minimal z,
+ * then maximal x, maximal y and maximal z.<br/>
+ * A triangle block holds {@link #TRIANGLE_BLOCK} numbers - x, y and z of the first vertex of the lanes,
+ * then of the second vertex and of the third vertex.
+ * <p>
+ * The tests take the range of the lanes in use. The portable kernel tests only these lanes, while a kernel
+ * on vector registers may test all the lanes of the block - the distances of the other lanes are garbage.
+ */
+interface Kernel {
+
+    /**
+     * The amount of lanes of a block - 4 doubles fill a 256-bit vector register
+     */
+    int WIDTH = 4;
+    /**
+     * The amount of numbers of a block of boxes
+     */
+    int BOX_BLOCK = 6 * WIDTH;
+    /**
+     * The amount of numbers of a block of triangles
+     */
+    int TRIANGLE_BLOCK = 9 * WIDTH;
+
+    /**
+     * The kernel of the geometries. Only the portable {@link ScalarKernel} exists for now - a backend on the
+     * vector API of the JDK, when its module is present, would be chosen here.
+     */
+    Kernel DEFAULT = new ScalarKernel();
+
+    /**
+     * Calculates the distances along a ray to the points where it enters the boxes of a block -
+     * the slab test of {@link BoundingBox#distance(primitives.Ray, double)} for each lane. The ray direction
+     * is given by its inverse, computed once for the ray, so the test of a lane has no divisions
+     *
+     * @param boxes       the blocks of boxes
+     * @param offset      the index of the first number of the block
+     * @param from        the first lane to test (included)
+     * @param to          the last lane to test (excluded)
+     * @param ox          x of the ray head
+     * @param oy          y of the ray head
+     * @param oz          z of the ray head
+     * @param ix          1 / x of the ray direction
+     * @param iy          1 / y of the ray direction
+     * @param iz          1 / z of the ray direction
+     * @param maxDistance the maximal distance from the ray head
+     * @param distances   the array to write the entry distance of each lane to (0 if the ray head is inside
+     *                    the box, positive infinity if the ray misses the box within the distance)
+     */
+    void boxDistances(double[] boxes, int offset, int from, int to, double ox, double oy, double oz,
+                      double ix, double iy, double iz, double maxDistance, double[] distances);
+
+    /**
+     * Calculates the distances along a ray to the triangles of a block (Möller–Trumbore),
+     * the edges of the triangles included
+     *
+     * @param triangles   the blocks of triangles
+     * @param offset      the index of the first number of the block
+     * @param from        the first lane to test (included)
+     * @param to          the last lane to test (excluded)
+     * @param ox          x of the ray head
+     * @param oy          y of the ray head
+     * @param oz          z of the ray head
+     * @param dx          x of the ray direction
+     * @param dy          y of the ray direction
+     * @param dz          z of the ray direction
+     * @param maxDistance the maximal distance from the ray head
+     * @param distances   the array to write the distance of each lane to
+     *                    (NaN if the ray doesn't hit the triangle within the distance)
+     */
+    void triangleDistances(double[] triangles, int offset, int from, int to, double ox, double oy, double oz,
+                           double dx, double dy, double dz, double maxDistance, double[] distances);
+}
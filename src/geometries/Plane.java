@@ -70,6 +70,24 @@ public class Plane extends Geometry {
         return normal;
     }
 
+    /**
+     * Calculates the bounding box of the plane. A plane is unbounded unless it is perpendicular
+     * to one of the axes - then it is flat along this axis.
+     *
+     * @return The bounding box of the plane.
+     */
+    @Override
+    protected BoundingBox calcBoundingBox() {
+        double inf = Double.POSITIVE_INFINITY;
+        if (isZero(normal.getY()) && isZero(normal.getZ()))
+            return new BoundingBox(q.getX(), -inf, -inf, q.getX(), inf, inf);
+        if (isZero(normal.getX()) && isZero(normal.getZ()))
+            return new BoundingBox(-inf, q.getY(), -inf, inf, q.getY(), inf);
+        if (isZero(normal.getX()) && isZero(normal.getY()))
+            return new BoundingBox(-inf, -inf, q.getZ(), inf, inf, q.getZ());
+        return BoundingBox.INFINITE;
+    }
+
     /**
      * Finds the intersection points between the given ray and the plane.
      *
@@ -79,26 +97,53 @@ public class Plane extends Geometry {
 
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray,  double maxDistance) {
+        GeoPoint intersection = findClosestGeoIntersectionHelper(ray, maxDistance);
+        return intersection == null ? null : List.of(intersection);
+    }
+
+    /**
+     * Finds the intersection point between the given ray and the plane - a plane has at most one.
+     *
+     * @param ray The ray to find intersections with.
+     * @return The intersection point, or null if there is no intersection.
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        double t = intersectionDistance(ray, maxDistance);
+        //calculate the point of intersection
+        return Double.isNaN(t) ? null : new GeoPoint(this, ray.getPoint(t));
+    }
+
+    /**
+     * Calculates the distance along the ray to its intersection with the plane. Works on plain coordinates,
+     * so it doesn't create any objects - polygons use it before they know whether they are hit.
+     *
+     * @param ray         The ray to find the intersection with.
+     * @param maxDistance The maximal distance from the ray head.
+     * @return The distance, or NaN if there is no intersection within the maximal distance.
+     */
+    double intersectionDistance(Ray ray, double maxDistance) {
+        Point p0 = ray.getHead();
         //calculate the t value for the distance between the head of the ray and the point of intersection
         double nv = ray.getDirection().dotProduct(normal);
         //if the ray is parallel to the plane
         if (isZero(nv))
-            return null;
+            return Double.NaN;
 
         //if the head of the ray is on the plane
-        if (this.q.equals(ray.getHead()))
-            return null;
-        double t = normal.dotProduct(this.q.subtract(ray.getHead())) / nv;
+        if (this.q.equals(p0))
+            return Double.NaN;
+        double t = (normal.getX() * (q.getX() - p0.getX())
+                + normal.getY() * (q.getY() - p0.getY())
+                + normal.getZ() * (q.getZ() - p0.getZ())) / nv;
         //if the ray is on the plane
         if (alignZero(t) == 0)
-            return null;
+            return Double.NaN;
         // if the ray is on the other direction of the plane
         if (t < 0)
-            return null;
-        if(alignZero(t-maxDistance)>0)
-            return null;
-        //calculate the point of intersection
-        Point p = ray.getPoint(t);
-        return List.of(new GeoPoint(this, p));
+            return Double.NaN;
+        if (alignZero(t - maxDistance) > 0)
+            return Double.NaN;
+        return t;
     }
-}
\ No newline at end of file
+}
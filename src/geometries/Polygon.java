@@ -95,10 +95,21 @@ public class Polygon extends Geometry {
         return plane.getNormal();
     }
 
+    @Override
+    protected BoundingBox calcBoundingBox() {
+        return BoundingBox.of(vertices.toArray(new Point[0]));
+    }
+
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
-        List<GeoPoint> intersections = plane.findGeoIntersections(ray,maxDistance);
-        if (intersections == null)
+        GeoPoint intersection = findClosestGeoIntersectionHelper(ray, maxDistance);
+        return intersection == null ? null : List.of(intersection);
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        GeoPoint intersection = plane.findClosestGeoIntersection(ray, maxDistance);
+        if (intersection == null)
             return null;
         Point start = ray.getHead();
         Vector direction = ray.getDirection();
@@ -115,7 +126,7 @@ public class Polygon extends Geometry {
             if (t * direction.dotProduct(v1.crossProduct(v2).normalize()) < 0)
                 return null;
         }
-        return List.of(new GeoPoint(this,intersections.getFirst().point));
+        return new GeoPoint(this, intersection.point);
     }
 
 
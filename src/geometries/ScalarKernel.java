@@ -0,0 +1,93 @@
+package geometries;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * The portable kernel - plain Java loops over the lanes of a block, with no lane depending on the lanes
+ * before it. The box test has no early exits (a missed slab is found by a selection at the end), so the
+ * test of a full block is a loop of 4 rounds the just-in-time compiler unrolls; the triangle test leaves
+ * a lane as soon as the ray misses the triangle, since most of the triangles tested are missed.
+ */
+final class ScalarKernel implements Kernel {
+
+    @Override
+    public void boxDistances(double[] boxes, int offset, int from, int to, double ox, double oy, double oz,
+                             double ix, double iy, double iz, double maxDistance, double[] distances) {
+        for (int l = from; l < to; ++l) {
+            int i = offset + l;
+            // a zero direction gives infinite distances (or NaN on the slab border, which the comparisons ignore)
+            double x1 = (boxes[i] - ox) * ix, x2 = (boxes[i + 3 * WIDTH] - ox) * ix;
+            double y1 = (boxes[i + WIDTH] - oy) * iy, y2 = (boxes[i + 4 * WIDTH] - oy) * iy;
+            double z1 = (boxes[i + 2 * WIDTH] - oz) * iz, z2 = (boxes[i + 5 * WIDTH] - oz) * iz;
+            double tNear = near(near(near(0, x1, x2), y1, y2), z1, z2);
+            double tFar = far(far(far(maxDistance, x1, x2), y1, y2), z1, z2);
+            distances[l] = tNear <= tFar ? tNear : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Narrows the entry distance of a ray into a box by a slab of the box
+     *
+     * @param tNear the entry distance so far
+     * @param t1    the distance to one side of the slab
+     * @param t2    the distance to the other side of the slab
+     * @return the later of the entry distance and the entry into the slab
+     */
+    private static double near(double tNear, double t1, double t2) {
+        double t = t1 > t2 ? t2 : t1;
+        return t > tNear ? t : tNear;
+    }
+
+    /**
+     * Narrows the exit distance of a ray from a box by a slab of the box
+     *
+     * @param tFar the exit distance so far
+     * @param t1   the distance to one side of the slab
+     * @param t2   the distance to the other side of the slab
+     * @return the earlier of the exit distance and the exit from the slab
+     */
+    private static double far(double tFar, double t1, double t2) {
+        double t = t1 > t2 ? t1 : t2;
+        return t < tFar ? t : tFar;
+    }
+
+    @Override
+    public void triangleDistances(double[] triangles, int offset, int from, int to, double ox, double oy, double oz,
+                                  double dx, double dy, double dz, double maxDistance, double[] distances) {
+        for (int l = from; l < to; ++l) {
+            distances[l] = Double.NaN;
+            int i = offset + l;
+            double ax = triangles[i], ay = triangles[i + WIDTH], az = triangles[i + 2 * WIDTH];
+            double e1x = triangles[i + 3 * WIDTH] - ax, e1y = triangles[i + 4 * WIDTH] - ay,
+                    e1z = triangles[i + 5 * WIDTH] - az;
+            double e2x = triangles[i + 6 * WIDTH] - ax, e2y = triangles[i + 7 * WIDTH] - ay,
+                    e2z = triangles[i + 8 * WIDTH] - az;
+            // p = d x e2
+            double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+            double det = e1x * px + e1y * py + e1z * pz;
+            if (isZero(det)) // the ray is parallel to the triangle
+                continue;
+            double sx = ox - ax, sy = oy - ay, sz = oz - az;
+            double u = (sx * px + sy * py + sz * pz) / det;
+            if (u < 0)
+                continue;
+            // q = s x e1
+            double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+            double v = (dx * qx + dy * qy + dz * qz) / det;
+            if (v >= 0 && u + v <= 1)
+                distances[l] = within((e2x * qx + e2y * qy + e2z * qz) / det, maxDistance);
+        }
+    }
+
+    /**
+     * Keeps a distance along a ray if it lies after the ray head and within the maximal distance
+     *
+     * @param t           the distance
+     * @param maxDistance the maximal distance from the ray head
+     * @return the distance, or NaN if it lies out of the range
+     */
+    private static double within(double t, double maxDistance) {
+        return alignZero(t) > 0 && alignZero(t - maxDistance) <= 0 ? t : Double.NaN;
+    }
+}
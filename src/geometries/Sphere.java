@@ -7,6 +7,7 @@ import primitives.Vector;
 import java.util.List;
 
 import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
 
 /**
  * Represents a sphere in 3D space.
@@ -31,43 +32,83 @@ public class Sphere extends RadialGeometry {
         Point p0 = ray.getHead(); // the head of the ray
         Vector v = ray.getDirection(); // the direction of the ray
 
-        Vector x = this.center.subtract(p0); // the vector from the head of the ray to the center of the sphere
-        // Check if the ray head is on the sphere
-        if (alignZero(x.length() - this.radius) == 0) {
-            // If the direction of the ray is pointing outwards from the sphere
-            if (alignZero(v.dotProduct(x)) >= 0) {
-                return null; // The ray is directed outwards from the sphere
-            }
-        }
-
-        if (ray.getHead().equals(this.center)) // if the head of the ray is the center of the sphere
-            if(this.radius<=maxDistance)
-              return List.of(new GeoPoint(this, p0.add(v.scale(this.radius)))); // return the point of intersection
-        Vector u = this.center.subtract(p0); // the vector from the head of the ray to the center of the sphere
-        double tm = v.dotProduct(u); // the projection of u on the ray
-        double d = Math.sqrt(u.lengthSquared() - tm * tm); // the distance between the center of the sphere and the ray
-        if (d >= this.radius) // if the distance is bigger or equal to the radius of the sphere
+        // the vector u from the head of the ray to the center of the sphere, kept in its coordinates
+        double ux = center.getX() - p0.getX();
+        double uy = center.getY() - p0.getY();
+        double uz = center.getZ() - p0.getZ();
+        if (isZero(ux) && isZero(uy) && isZero(uz)) // if the head of the ray is the center of the sphere
+            return this.radius <= maxDistance ? List.of(new GeoPoint(this, ray.getPoint(this.radius))) : null;
+        double tm = v.getX() * ux + v.getY() * uy + v.getZ() * uz; // the projection of u on the ray
+        double th = halfChord(ux, uy, uz, tm);
+        if (Double.isNaN(th))
             return null;
-        double th = Math.sqrt(this.radius * this.radius - d * d);// the distance between the point of intersection
-        // and the projection of the center of the sphere on the ray
-        double t1 = tm - th; // the distance between the head of the ray and the point of intersection
-        double t2 =tm + th; // the distance between the head of the ray and the point of intersection
-        if (t1 > 0 && t2 > 0) { // if the ray is in the direction of the sphere
-            if (t1 <= maxDistance && t2 <= maxDistance)
-                return List.of(new GeoPoint(this, ray.getPoint(t1)),
-                        new GeoPoint(this, ray.getPoint(t2))); // return the points of intersection
-            if (t1 <= maxDistance)
-                return List.of(new GeoPoint(this, ray.getPoint(t1))); // return the point of intersection
-            if (t2 <= maxDistance)
-                return List.of(new GeoPoint(this, ray.getPoint(t2))); // return the point of intersection
-        }
-        if (t1 > 0 && t1<= maxDistance) // if the ray is in the direction of the sphere
+        double t1 = tm - th; // the distance between the head of the ray and the first point of intersection
+        double t2 = tm + th; // the distance between the head of the ray and the second point of intersection
+        boolean first = t1 > 0 && t1 <= maxDistance;
+        boolean second = t2 > 0 && t2 <= maxDistance;
+        if (first && second)
+            return List.of(new GeoPoint(this, ray.getPoint(t1)),
+                    new GeoPoint(this, ray.getPoint(t2))); // return the points of intersection
+        if (first)
             return List.of(new GeoPoint(this, ray.getPoint(t1))); // return the point of intersection
-        if (t2 > 0 && t2<= maxDistance) // if the ray is in the direction of the sphere
+        if (second)
             return List.of(new GeoPoint(this, ray.getPoint(t2))); // return the point of intersection
         return null;
     }
 
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        Point p0 = ray.getHead(); // the head of the ray
+        Vector v = ray.getDirection(); // the direction of the ray
+
+        // the vector u from the head of the ray to the center of the sphere, kept in its coordinates
+        double ux = center.getX() - p0.getX();
+        double uy = center.getY() - p0.getY();
+        double uz = center.getZ() - p0.getZ();
+        if (isZero(ux) && isZero(uy) && isZero(uz)) // if the head of the ray is the center of the sphere
+            return this.radius <= maxDistance ? new GeoPoint(this, ray.getPoint(this.radius)) : null;
+        double tm = v.getX() * ux + v.getY() * uy + v.getZ() * uz; // the projection of u on the ray
+        double th = halfChord(ux, uy, uz, tm);
+        if (Double.isNaN(th))
+            return null;
+        // the closer point of intersection is the first one which is in front of the ray head and within the distance
+        double t1 = tm - th;
+        if (t1 > 0 && t1 <= maxDistance)
+            return new GeoPoint(this, ray.getPoint(t1));
+        double t2 = tm + th;
+        if (t2 > 0 && t2 <= maxDistance)
+            return new GeoPoint(this, ray.getPoint(t2));
+        return null;
+    }
+
+    /**
+     * Calculates half of the chord which the line of a ray cuts in the sphere. Works on plain coordinates,
+     * so a ray which misses the sphere doesn't create any objects.
+     *
+     * @param ux x of the vector from the ray head to the center of the sphere
+     * @param uy y of the vector from the ray head to the center of the sphere
+     * @param uz z of the vector from the ray head to the center of the sphere
+     * @param tm the projection of this vector on the ray direction
+     * @return half of the chord, or NaN if the ray misses the sphere or starts on it and is directed outwards
+     */
+    private double halfChord(double ux, double uy, double uz, double tm) {
+        double u2 = ux * ux + uy * uy + uz * uz;
+        // Check if the ray head is on the sphere and the ray is pointing outwards from the sphere
+        if (alignZero(Math.sqrt(u2) - this.radius) == 0 && alignZero(tm) >= 0)
+            return Double.NaN;
+        double d = Math.sqrt(u2 - tm * tm); // the distance between the center of the sphere and the ray
+        if (d >= this.radius) // if the distance is bigger or equal to the radius of the sphere
+            return Double.NaN;
+        // the distance between the points of intersection and the projection of the center of the sphere on the ray
+        return Math.sqrt(this.radius * this.radius - d * d);
+    }
+
+    @Override
+    protected BoundingBox calcBoundingBox() {
+        return new BoundingBox(center.getX() - radius, center.getY() - radius, center.getZ() - radius,
+                center.getX() + radius, center.getY() + radius, center.getZ() + radius);
+    }
+
     /**
      * Computes the normal vector to the sphere at a given point.
      * Since the sphere is a curved surface, the normal vector at any point on its surface
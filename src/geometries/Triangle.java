@@ -4,37 +4,68 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
-import java.util.List;
-
 /**
  * This is a class that defines a triangle (a geometric body)
  * it implements a polygon since a triangle is a polygon with 3 vertices
  */
 public class Triangle extends Polygon {
 
+    /**
+     * The coordinates of the vertices, kept for the intersection test which works on plain numbers
+     */
+    private final double ax, ay, az, bx, by, bz, cx, cy, cz;
+
     public Triangle(Point p1, Point p2, Point p3) {
         super(new Point[]{p1, p2, p3});
+        ax = p1.getX();
+        ay = p1.getY();
+        az = p1.getZ();
+        bx = p2.getX();
+        by = p2.getY();
+        bz = p2.getZ();
+        cx = p3.getX();
+        cy = p3.getY();
+        cz = p3.getZ();
     }
 
     @Override
-    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
-        if (plane.findGeoIntersections(ray,maxDistance) == null)
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        double t = plane.intersectionDistance(ray, maxDistance);
+        if (Double.isNaN(t))
             return null;
         Point start = ray.getHead();
         Vector direction = ray.getDirection();
-        Vector v1 = vertices.get(0).subtract(start);
-        Vector v2 = vertices.get(1).subtract(start);
-        Vector v3 = vertices.get(2).subtract(start);
-        Vector n1 = v1.crossProduct(v2).normalize();
-        Vector n2 = v2.crossProduct(v3).normalize();
-        Vector n3 = v3.crossProduct(v1).normalize();
+        double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+        // the vectors from the head of the ray to the vertices
+        double v1x = ax - start.getX(), v1y = ay - start.getY(), v1z = az - start.getZ();
+        double v2x = bx - start.getX(), v2y = by - start.getY(), v2z = bz - start.getZ();
+        double v3x = cx - start.getX(), v3y = cy - start.getY(), v3z = cz - start.getZ();
 
-        double t1 = direction.dotProduct(n1);
-        double t2 = direction.dotProduct(n2);
-        double t3 = direction.dotProduct(n3);
+        // the ray is inside the triangle if it is on the same side of the three sides of the pyramid
+        // formed by the head of the ray and the triangle
+        double t1 = tripleProduct(dx, dy, dz, v1x, v1y, v1z, v2x, v2y, v2z);
+        double t2 = tripleProduct(dx, dy, dz, v2x, v2y, v2z, v3x, v3y, v3z);
+        double t3 = tripleProduct(dx, dy, dz, v3x, v3y, v3z, v1x, v1y, v1z);
 
         if (t1 > 0 && t2 > 0 && t3 > 0 || t1 < 0 && t2 < 0 && t3 < 0)
-            return List.of(new GeoPoint(this, plane.findIntersections(ray).getFirst()));
+            return new GeoPoint(this, ray.getPoint(t));
         return null;
     }
+
+    /**
+     * Calculates the dot product of a direction with the normalized cross product of two vectors - its sign
+     * tells on which side of the plane spanned by the two vectors the direction is. Same calculation as
+     * {@code d.dotProduct(u.crossProduct(v).normalize())}, without creating the vectors.
+     *
+     * @return d . (u x v) / |u x v|, or NaN if u and v are parallel
+     */
+    private static double tripleProduct(double dx, double dy, double dz,
+                                        double ux, double uy, double uz,
+                                        double vx, double vy, double vz) {
+        double nx = uy * vz - uz * vy;
+        double ny = uz * vx - ux * vz;
+        double nz = ux * vy - uy * vx;
+        double scale = 1d / Math.sqrt(nx * nx + ny * ny + nz * nz);
+        return dx * (nx * scale) + dy * (ny * scale) + dz * (nz * scale);
+    }
 }
@@ -0,0 +1,725 @@
+package geometries;
+
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * A mesh of triangles sharing one emission and one material.
+ * Unlike a group of {@link Triangle} objects, the mesh keeps the coordinates of the vertices of its faces
+ * in a flat array of plain numbers, so a big model takes about a hundred bytes per triangle
+ * and the intersection test (Möller–Trumbore) runs over adjacent memory.
+ * The faces are organized in a bounding volume hierarchy of their own, kept in flat arrays as well.
+ * The faces are stored in blocks of 4 in the order of the leaves, each coordinate of the 4 faces next to
+ * each other, and every node of the hierarchy keeps the boxes of its (up to 4) children in such a block,
+ * so a ray is tested against a whole block of faces or boxes at once.
+ * The edges of the faces are included, so a ray can't slip between two faces sharing an edge.
+ */
+public class TriangleMesh extends Geometry {
+
+    /**
+     * Maximal amount of faces in a leaf - bigger groups are always split
+     */
+    private static final int MAX_LEAF_SIZE = 4;
+    /**
+     * Amount of bins the faces are sorted into when looking for the best split of a node
+     */
+    private static final int BINS = 12;
+    /**
+     * Cost of visiting a node relative to the cost of intersecting a face
+     */
+    private static final double TRAVERSAL_COST = 0.125;
+    /**
+     * Maximal depth of the hierarchy - deep enough for any mesh that fits in memory
+     */
+    private static final int MAX_DEPTH = 64;
+    /**
+     * Amount of lanes of a block of faces or boxes
+     */
+    private static final int WIDTH = Kernel.WIDTH;
+
+    /**
+     * The amount of faces
+     */
+    private final int faces;
+    /**
+     * The faces in blocks of triangles of the {@link Kernel}, in the order of the leaves of the hierarchy -
+     * face f is lane f % 4 of block f / 4
+     */
+    private final double[] triangles;
+
+    /**
+     * The boxes of the children of the nodes of the hierarchy - a block of boxes of the {@link Kernel} for each node.
+     * The lanes of the missing children hold a box at infinity, so every block is tested whole
+     */
+    private final double[] nodeBoxes;
+    /**
+     * For each child of each node: for a leaf - its first face, for an inner node - its index
+     */
+    private final int[] nodeChildren;
+    /**
+     * For each child of each node: the amount of faces of a leaf, 0 for an inner node, -1 for no child
+     */
+    private final int[] nodeCounts;
+    /**
+     * Maximal amount of children waiting on the stack of a traversal - all the children but one of a node
+     * at each level of the hierarchy, and all the children of the deepest node
+     */
+    private final int stackSize;
+
+    /**
+     * Constructs a mesh from arrays of coordinates and indices. The arrays are not kept.
+     *
+     * @param vertices the coordinates of the vertices - x, y and z of each vertex
+     * @param indices  the indices of the vertices of the faces - three for each face
+     * @throws IllegalArgumentException if the arrays are not made of triples, an index is out of range,
+     *                                  or a face is degenerated into a line or a point
+     */
+    public TriangleMesh(double[] vertices, int[] indices) {
+        if (vertices.length % 3 != 0)
+            throw new IllegalArgumentException("ERROR: the coordinates must be triples of x, y, z");
+        if (indices.length % 3 != 0)
+            throw new IllegalArgumentException("ERROR: the faces must have 3 vertices each");
+        int vertexCount = vertices.length / 3;
+        for (int index : indices)
+            if (index < 0 || index >= vertexCount)
+                throw new IllegalArgumentException("ERROR: vertex index " + index + " is out of range");
+
+        faces = indices.length / 3;
+        for (int f = 0; f < faces; ++f) {
+            int a = indices[3 * f] * 3, b = indices[3 * f + 1] * 3, c = indices[3 * f + 2] * 3;
+            double e1x = vertices[b] - vertices[a], e1y = vertices[b + 1] - vertices[a + 1], e1z = vertices[b + 2] - vertices[a + 2];
+            double e2x = vertices[c] - vertices[a], e2y = vertices[c + 1] - vertices[a + 1], e2z = vertices[c + 2] - vertices[a + 2];
+            double nx = e1y * e2z - e1z * e2y;
+            double ny = e1z * e2x - e1x * e2z;
+            double nz = e1x * e2y - e1y * e2x;
+            if (isZero(Math.sqrt(nx * nx + ny * ny + nz * nz)))
+                throw new IllegalArgumentException("ERROR: face " + f + " has its vertices on the same line");
+        }
+
+        // build the hierarchy over the faces, then store the faces in the order of its leaves
+        int[] order = new int[faces];
+        for (int f = 0; f < faces; ++f)
+            order[f] = f;
+        Tree tree = new Tree(faces);
+        if (faces > 0) {
+            tree.build(order, faceBoxes(vertices, indices), 0, faces, 0);
+            tree.widen(0, 0);
+        }
+        // the wide arrays were sized for a wide node over every inner node - keep only the nodes built
+        nodeBoxes = Arrays.copyOf(tree.wideBoxes, tree.wideNodes * Kernel.BOX_BLOCK);
+        nodeChildren = Arrays.copyOf(tree.wideChildren, tree.wideNodes * WIDTH);
+        nodeCounts = Arrays.copyOf(tree.wideCounts, tree.wideNodes * WIDTH);
+        stackSize = (WIDTH - 1) * tree.wideDepth + WIDTH;
+
+        triangles = new double[(faces + WIDTH - 1) / WIDTH * Kernel.TRIANGLE_BLOCK];
+        for (int f = 0; f < faces; ++f)
+            for (int k = 0; k < 9; ++k)
+                triangles[offset(f, k)] = vertices[indices[3 * order[f] + k / 3] * 3 + k % 3];
+    }
+
+    /**
+     * Constructs a mesh from an array of vertices and indices.
+     *
+     * @param vertices the vertices
+     * @param indices  the indices of the vertices of the faces - three for each face
+     * @throws IllegalArgumentException if the indices are not triples, an index is out of range,
+     *                                  or a face is degenerated into a line or a point
+     */
+    public TriangleMesh(Point[] vertices, int[] indices) {
+        this(coordinates(vertices), indices);
+    }
+
+    /**
+     * Flattens an array of points into their coordinates
+     *
+     * @param points the points
+     * @return x, y and z of each point
+     */
+    private static double[] coordinates(Point[] points) {
+        double[] coordinates = new double[points.length * 3];
+        for (int i = 0; i < points.length; ++i) {
+            coordinates[3 * i] = points[i].getX();
+            coordinates[3 * i + 1] = points[i].getY();
+            coordinates[3 * i + 2] = points[i].getZ();
+        }
+        return coordinates;
+    }
+
+    /**
+     * Calculates the bounding boxes of the faces
+     *
+     * @param vertices the coordinates of the vertices
+     * @param indices  the indices of the vertices of the faces
+     * @return minimal x, y, z and maximal x, y, z of each face
+     */
+    private static double[] faceBoxes(double[] vertices, int[] indices) {
+        int faces = indices.length / 3;
+        double[] boxes = new double[faces * 6];
+        for (int f = 0; f < faces; ++f)
+            for (int axis = 0; axis < 3; ++axis) {
+                double a = vertices[indices[3 * f] * 3 + axis];
+                double b = vertices[indices[3 * f + 1] * 3 + axis];
+                double c = vertices[indices[3 * f + 2] * 3 + axis];
+                boxes[6 * f + axis] = Math.min(a, Math.min(b, c));
+                boxes[6 * f + 3 + axis] = Math.max(a, Math.max(b, c));
+            }
+        return boxes;
+    }
+
+    /**
+     * Finds the place of a coordinate of a face in the blocks of the faces
+     *
+     * @param face  the face
+     * @param index the coordinate - x, y and z of the first vertex (0 - 2), of the second vertex (3 - 5)
+     *              and of the third vertex (6 - 8)
+     * @return the index of the coordinate in the blocks
+     */
+    private static int offset(int face, int index) {
+        return face / WIDTH * Kernel.TRIANGLE_BLOCK + index * WIDTH + face % WIDTH;
+    }
+
+    /**
+     * Binary hierarchy over the faces, built with the surface area heuristic and then gathered into
+     * the wide nodes of the mesh. Its arrays are sized for the worst case and dropped once the mesh is built.
+     */
+    private static final class Tree {
+        /**
+         * The boxes of the nodes - minimal x, y, z and maximal x, y, z of each node
+         */
+        private final double[] boxes;
+        /**
+         * For a leaf - its first face, for an inner node - its right child (the left child follows the node)
+         */
+        private final int[] first;
+        /**
+         * The amount of faces of a leaf, 0 for an inner node
+         */
+        private final int[] count;
+        /**
+         * The amount of nodes built
+         */
+        private int nodes = 0;
+        /**
+         * The blocks of the boxes of the children of the wide nodes
+         */
+        private final double[] wideBoxes;
+        /**
+         * The children of the wide nodes - the first face of a leaf, the index of an inner node
+         */
+        private final int[] wideChildren;
+        /**
+         * The amounts of faces of the children of the wide nodes - 0 for an inner node, -1 for no child
+         */
+        private final int[] wideCounts;
+        /**
+         * The amount of wide nodes built
+         */
+        private int wideNodes = 0;
+        /**
+         * The depth of the deepest wide node
+         */
+        private int wideDepth = 0;
+
+        /**
+         * Allocates the arrays of a hierarchy over a given amount of faces
+         *
+         * @param faces the amount of faces
+         */
+        Tree(int faces) {
+            int nodes = Math.max(2 * faces - 1, 0);
+            boxes = new double[nodes * 6];
+            first = new int[nodes];
+            count = new int[nodes];
+            // every wide node gathers the children below an inner node (or below the root)
+            int wide = Math.max(faces - 1, faces > 0 ? 1 : 0);
+            wideBoxes = new double[wide * Kernel.BOX_BLOCK];
+            wideChildren = new int[wide * WIDTH];
+            wideCounts = new int[wide * WIDTH];
+        }
+
+        /**
+         * Builds the sub-tree over a range of faces. The faces are sorted into bins by the centers of their boxes
+         * along each axis, and the range is split between the bins where the surface area heuristic estimates
+         * the lowest cost of tracing a ray, or turned into a leaf if splitting doesn't pay off.
+         *
+         * @param order     the faces, reordered so the faces of each sub-tree are adjacent
+         * @param faceBoxes the bounding boxes of the faces
+         * @param from      the first index of the range in the order (included)
+         * @param to        the last index of the range in the order (excluded)
+         * @param depth     the depth of the node
+         */
+        void build(int[] order, double[] faceBoxes, int from, int to, int depth) {
+            int node = nodes++;
+            int n = to - from;
+            double[] box = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                    Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            double[] centers = box.clone();
+            for (int i = from; i < to; ++i) {
+                int f = order[i];
+                for (int axis = 0; axis < 3; ++axis) {
+                    box[axis] = Math.min(box[axis], faceBoxes[6 * f + axis]);
+                    box[3 + axis] = Math.max(box[3 + axis], faceBoxes[6 * f + 3 + axis]);
+                    double center = (faceBoxes[6 * f + axis] + faceBoxes[6 * f + 3 + axis]) / 2;
+                    centers[axis] = Math.min(centers[axis], center);
+                    centers[3 + axis] = Math.max(centers[3 + axis], center);
+                }
+            }
+            System.arraycopy(box, 0, boxes, node * 6, 6);
+            if (n == 1 || depth == MAX_DEPTH) {
+                leaf(node, from, n);
+                return;
+            }
+
+            double bestCost = Double.POSITIVE_INFINITY;
+            int bestAxis = -1;
+            int bestSplit = -1;
+            int[] counts = new int[BINS];
+            double[] binBoxes = new double[BINS * 6];
+            double[] rightAreas = new double[BINS];
+            for (int axis = 0; axis < 3; ++axis) {
+                double extent = centers[3 + axis] - centers[axis];
+                if (extent <= 0)
+                    continue;
+                Arrays.fill(counts, 0);
+                for (int b = 0; b < BINS; ++b)
+                    emptyBox(binBoxes, b);
+                for (int i = from; i < to; ++i) {
+                    int f = order[i];
+                    int b = bin(faceBoxes, f, axis, centers[axis], extent);
+                    ++counts[b];
+                    for (int k = 0; k < 3; ++k) {
+                        binBoxes[6 * b + k] = Math.min(binBoxes[6 * b + k], faceBoxes[6 * f + k]);
+                        binBoxes[6 * b + 3 + k] = Math.max(binBoxes[6 * b + 3 + k], faceBoxes[6 * f + 3 + k]);
+                    }
+                }
+                // sweep from the right to get the areas of all the possible right groups
+                double[] right = new double[6];
+                emptyBox(right, 0);
+                for (int b = BINS - 1; b > 0; --b) {
+                    unite(right, binBoxes, b);
+                    rightAreas[b] = surfaceArea(right, 0);
+                }
+                // sweep from the left, evaluating the cost of splitting before bin b
+                double[] left = new double[6];
+                emptyBox(left, 0);
+                int leftCount = 0;
+                for (int b = 1; b < BINS; ++b) {
+                    unite(left, binBoxes, b - 1);
+                    leftCount += counts[b - 1];
+                    int rightCount = n - leftCount;
+                    if (leftCount == 0 || rightCount == 0)
+                        continue;
+                    double cost = surfaceArea(left, 0) * leftCount + rightAreas[b] * rightCount;
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestAxis = axis;
+                        bestSplit = b;
+                    }
+                }
+            }
+
+            int middle;
+            if (bestAxis < 0) {
+                // all the centers coincide - no heuristic, split in the middle
+                if (n <= MAX_LEAF_SIZE) {
+                    leaf(node, from, n);
+                    return;
+                }
+                middle = from + n / 2;
+            } else {
+                double parentArea = surfaceArea(box, 0);
+                if (parentArea > 0 && n <= MAX_LEAF_SIZE && TRAVERSAL_COST + bestCost / parentArea >= n) {
+                    leaf(node, from, n);
+                    return;
+                }
+                // move the faces of the left bins to the start of the range
+                double extent = centers[3 + bestAxis] - centers[bestAxis];
+                middle = from;
+                for (int i = from; i < to; ++i)
+                    if (bin(faceBoxes, order[i], bestAxis, centers[bestAxis], extent) < bestSplit) {
+                        int f = order[i];
+                        order[i] = order[middle];
+                        order[middle++] = f;
+                    }
+            }
+            build(order, faceBoxes, from, middle, depth + 1);
+            first[node] = nodes;
+            count[node] = 0;
+            build(order, faceBoxes, middle, to, depth + 1);
+        }
+
+        /**
+         * Turns a node into a leaf
+         *
+         * @param node  the node
+         * @param from  the index of its first face in the order
+         * @param faces the amount of its faces
+         */
+        private void leaf(int node, int from, int faces) {
+            first[node] = from;
+            count[node] = faces;
+        }
+
+        /**
+         * Builds the wide node over a node of the binary hierarchy, and the wide nodes below it. The children
+         * of the wide node are found by replacing the inner node of the biggest box among them by its two
+         * children, until there are 4 children or all of them are leaves.
+         *
+         * @param node  the node of the binary hierarchy
+         * @param depth the depth of the wide node
+         * @return the index of the wide node
+         */
+        int widen(int node, int depth) {
+            int[] lanes = new int[WIDTH];
+            lanes[0] = node;
+            int size = 1;
+            while (size < WIDTH) {
+                int open = -1;
+                double openArea = -1;
+                for (int l = 0; l < size; ++l)
+                    if (count[lanes[l]] == 0 && surfaceArea(boxes, lanes[l]) > openArea) {
+                        open = l;
+                        openArea = surfaceArea(boxes, lanes[l]);
+                    }
+                if (open < 0)
+                    break;
+                int inner = lanes[open];
+                lanes[open] = inner + 1;
+                lanes[size++] = first[inner];
+            }
+
+            int wide = wideNodes++;
+            wideDepth = Math.max(wideDepth, depth);
+            for (int l = 0; l < WIDTH; ++l) {
+                if (l >= size) {
+                    // a box at infinity, which every ray misses
+                    for (int k = 0; k < 6; ++k)
+                        wideBoxes[wide * Kernel.BOX_BLOCK + k * WIDTH + l] = Double.POSITIVE_INFINITY;
+                    wideCounts[WIDTH * wide + l] = -1;
+                    continue;
+                }
+                int child = lanes[l];
+                for (int k = 0; k < 6; ++k)
+                    wideBoxes[wide * Kernel.BOX_BLOCK + k * WIDTH + l] = boxes[6 * child + k];
+                wideCounts[WIDTH * wide + l] = count[child];
+                wideChildren[WIDTH * wide + l] = count[child] > 0 ? first[child] : widen(child, depth + 1);
+            }
+            return wide;
+        }
+    }
+
+    /**
+     * Finds the bin of a face by the center of its box along an axis
+     *
+     * @param boxes  the bounding boxes of the faces
+     * @param face   the face
+     * @param axis   0 for x, 1 for y and 2 for z
+     * @param min    the minimal center along the axis
+     * @param extent the distance between the minimal and the maximal center along the axis
+     * @return the index of the bin
+     */
+    private static int bin(double[] boxes, int face, int axis, double min, double extent) {
+        double center = (boxes[6 * face + axis] + boxes[6 * face + 3 + axis]) / 2;
+        return Math.min(BINS - 1, (int) ((center - min) / extent * BINS));
+    }
+
+    /**
+     * Resets a box in an array of boxes to the empty box
+     *
+     * @param boxes the array of boxes
+     * @param index the index of the box
+     */
+    private static void emptyBox(double[] boxes, int index) {
+        for (int k = 0; k < 3; ++k) {
+            boxes[6 * index + k] = Double.POSITIVE_INFINITY;
+            boxes[6 * index + 3 + k] = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Extends a box to contain a box of an array of boxes
+     *
+     * @param box   the box to extend
+     * @param boxes the array of boxes
+     * @param index the index of the box to contain
+     */
+    private static void unite(double[] box, double[] boxes, int index) {
+        for (int k = 0; k < 3; ++k) {
+            box[k] = Math.min(box[k], boxes[6 * index + k]);
+            box[3 + k] = Math.max(box[3 + k], boxes[6 * index + 3 + k]);
+        }
+    }
+
+    /**
+     * Calculates the surface area of a box of an array of boxes
+     *
+     * @param boxes the array of boxes
+     * @param index the index of the box
+     * @return the surface area, 0 for an empty box
+     */
+    private static double surfaceArea(double[] boxes, int index) {
+        double dx = boxes[6 * index + 3] - boxes[6 * index];
+        if (dx < 0) return 0;
+        double dy = boxes[6 * index + 4] - boxes[6 * index + 1];
+        double dz = boxes[6 * index + 5] - boxes[6 * index + 2];
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Gets the amount of faces of the mesh.
+     *
+     * @return The amount of faces.
+     */
+    public int size() {
+        return faces;
+    }
+
+    @Override
+    protected BoundingBox calcBoundingBox() {
+        if (faces == 0)
+            return BoundingBox.EMPTY;
+        // the box of the root is the union of the boxes of its children
+        double[] box = new double[6];
+        emptyBox(box, 0);
+        for (int l = 0; l < WIDTH; ++l)
+            if (nodeCounts[l] >= 0)
+                for (int k = 0; k < 3; ++k) {
+                    box[k] = Math.min(box[k], nodeBoxes[k * WIDTH + l]);
+                    box[3 + k] = Math.max(box[3 + k], nodeBoxes[(3 + k) * WIDTH + l]);
+                }
+        return new BoundingBox(box[0], box[1], box[2], box[3], box[4], box[5]);
+    }
+
+    /**
+     * Gets the normal of the face the point is on. The face is searched for, so prefer
+     * {@link GeoPoint#getNormal()} for the intersections of the mesh, which already know their face.
+     *
+     * @param p The point on the mesh.
+     * @return The normal of the face.
+     * @throws IllegalArgumentException if the point is not on the mesh
+     */
+    @Override
+    public Vector getNormal(Point p) {
+        double px = p.getX(), py = p.getY(), pz = p.getZ();
+        for (int f = 0; f < faces; ++f) {
+            Vector normal = faceNormal(f);
+            double nx = normal.getX(), ny = normal.getY(), nz = normal.getZ();
+            // the point must be on the plane of the face...
+            double wx = px - triangles[offset(f, 0)], wy = py - triangles[offset(f, 1)], wz = pz - triangles[offset(f, 2)];
+            if (!isZero(wx * nx + wy * ny + wz * nz))
+                continue;
+            // ...and on the inner side of its three edges
+            if (alignZero(edgeSide(f, 0, 1, px, py, pz, nx, ny, nz)) >= 0
+                    && alignZero(edgeSide(f, 1, 2, px, py, pz, nx, ny, nz)) >= 0
+                    && alignZero(edgeSide(f, 2, 0, px, py, pz, nx, ny, nz)) >= 0)
+                return normal;
+        }
+        throw new IllegalArgumentException("ERROR: the point is not on the mesh");
+    }
+
+    /**
+     * Calculates on which side of an edge of a face a point on the plane of the face is
+     *
+     * @param face the face
+     * @param from the first vertex of the edge - 0, 1 or 2
+     * @param to   the second vertex of the edge - 0, 1 or 2
+     * @return positive if the point is on the inner side of the edge, negative if it is on the outer side
+     */
+    private double edgeSide(int face, int from, int to, double px, double py, double pz, double nx, double ny, double nz) {
+        double fx = triangles[offset(face, 3 * from)], fy = triangles[offset(face, 3 * from + 1)],
+                fz = triangles[offset(face, 3 * from + 2)];
+        double ex = triangles[offset(face, 3 * to)] - fx, ey = triangles[offset(face, 3 * to + 1)] - fy,
+                ez = triangles[offset(face, 3 * to + 2)] - fz;
+        double wx = px - fx, wy = py - fy, wz = pz - fz;
+        return nx * (ey * wz - ez * wy) + ny * (ez * wx - ex * wz) + nz * (ex * wy - ey * wx);
+    }
+
+    /**
+     * Calculates the normal of a face
+     *
+     * @param face the face
+     * @return the normal
+     */
+    private Vector faceNormal(int face) {
+        double ax = triangles[offset(face, 0)], ay = triangles[offset(face, 1)], az = triangles[offset(face, 2)];
+        double e1x = triangles[offset(face, 3)] - ax, e1y = triangles[offset(face, 4)] - ay, e1z = triangles[offset(face, 5)] - az;
+        double e2x = triangles[offset(face, 6)] - ax, e2y = triangles[offset(face, 7)] - ay, e2z = triangles[offset(face, 8)] - az;
+        double nx = e1y * e2z - e1z * e2y;
+        double ny = e1z * e2x - e1x * e2z;
+        double nz = e1x * e2y - e1y * e2x;
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        return new Vector(nx / length, ny / length, nz / length);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+        double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+        double ix = 1 / dx, iy = 1 / dy, iz = 1 / dz;
+
+        List<GeoPoint> intersections = new LinkedList<>();
+        double[] distances = new double[WIDTH];
+        double[] hits = new double[WIDTH];
+        int[] stack = new int[stackSize];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            Kernel.DEFAULT.boxDistances(nodeBoxes, node * Kernel.BOX_BLOCK, 0, WIDTH, ox, oy, oz, ix, iy, iz,
+                    maxDistance, distances);
+            for (int l = 0; l < WIDTH; ++l) {
+                int count = nodeCounts[WIDTH * node + l];
+                if (distances[l] == Double.POSITIVE_INFINITY)
+                    continue;
+                if (count == 0) {
+                    stack[top++] = nodeChildren[WIDTH * node + l];
+                    continue;
+                }
+                int first = nodeChildren[WIDTH * node + l], end = first + count;
+                for (int block = first / WIDTH; block * WIDTH < end; ++block) {
+                    int from = Math.max(first, block * WIDTH), to = Math.min(end, (block + 1) * WIDTH);
+                    Kernel.DEFAULT.triangleDistances(triangles, block * Kernel.TRIANGLE_BLOCK,
+                            from - block * WIDTH, to - block * WIDTH, ox, oy, oz, dx, dy, dz,
+                            maxDistance, hits);
+                    for (int f = from; f < to; ++f)
+                        if (!Double.isNaN(hits[f % WIDTH]))
+                            intersections.add(new GeoPoint(this, ray.getPoint(hits[f % WIDTH]), faceNormal(f)));
+                }
+            }
+        }
+        if (intersections.isEmpty())
+            return null;
+        return intersections.stream().sorted(Comparator.comparingDouble(p -> p.point.distance(head))).toList();
+    }
+
+    /**
+     * Finds the closest intersection of a ray with the mesh. The children of the nodes are visited
+     * front to back and the distance shrinks with every hit, so the farther children are skipped if a hit
+     * was found before the ray enters their boxes.
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+        double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+        double ix = 1 / dx, iy = 1 / dy, iz = 1 / dz;
+
+        int closest = -1;
+        double closestDistance = maxDistance;
+        double[] distances = new double[WIDTH];
+        double[] hits = new double[WIDTH];
+        int[] lanes = new int[WIDTH];
+        // the children waiting to be visited, by their lanes (-1 for the root), and the distances the ray enters them
+        int[] stack = new int[stackSize];
+        double[] entries = new double[stackSize];
+        int top = 0;
+        stack[top] = -1;
+        entries[top++] = 0;
+        while (top > 0) {
+            int lane = stack[--top];
+            if (entries[top] > closestDistance)
+                continue;
+            int count = lane < 0 ? 0 : nodeCounts[lane];
+            if (count > 0) {
+                int first = nodeChildren[lane], end = first + count;
+                for (int block = first / WIDTH; block * WIDTH < end; ++block) {
+                    int from = Math.max(first, block * WIDTH), to = Math.min(end, (block + 1) * WIDTH);
+                    Kernel.DEFAULT.triangleDistances(triangles, block * Kernel.TRIANGLE_BLOCK,
+                            from - block * WIDTH, to - block * WIDTH, ox, oy, oz, dx, dy, dz,
+                            closestDistance, hits);
+                    for (int f = from; f < to; ++f) {
+                        double t = hits[f % WIDTH];
+                        if (!Double.isNaN(t) && (closest < 0 || t < closestDistance)) {
+                            closest = f;
+                            closestDistance = t;
+                        }
+                    }
+                }
+                continue;
+            }
+
+            int node = lane < 0 ? 0 : nodeChildren[lane];
+            Kernel.DEFAULT.boxDistances(nodeBoxes, node * Kernel.BOX_BLOCK, 0, WIDTH, ox, oy, oz, ix, iy, iz,
+                    closestDistance, distances);
+            // sort the children the ray enters by their distances...
+            int size = 0;
+            for (int l = 0; l < WIDTH; ++l) {
+                if (distances[l] == Double.POSITIVE_INFINITY)
+                    continue;
+                int k = size++;
+                for (; k > 0 && distances[lanes[k - 1]] > distances[l]; --k)
+                    lanes[k] = lanes[k - 1];
+                lanes[k] = l;
+            }
+            // ...and push them back to front, so the nearest one is visited first
+            for (int k = size - 1; k >= 0; --k) {
+                stack[top] = WIDTH * node + lanes[k];
+                entries[top++] = distances[lanes[k]];
+            }
+        }
+        return closest < 0 ? null : new GeoPoint(this, ray.getPoint(closestDistance), faceNormal(closest));
+    }
+
+    /**
+     * Calculates how much light passes along a ray through the mesh. The transparency coefficient
+     * is applied once for every face the ray crosses, and the search stops as soon as the ray is blocked,
+     * so an opaque mesh ends it at the first face found.
+     */
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, double minK) {
+        Double3 kT = getMaterial().kT;
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+        double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+        double ix = 1 / dx, iy = 1 / dy, iz = 1 / dz;
+
+        Double3 ktr = Double3.ONE;
+        double[] distances = new double[WIDTH];
+        double[] hits = new double[WIDTH];
+        int[] stack = new int[stackSize];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            Kernel.DEFAULT.boxDistances(nodeBoxes, node * Kernel.BOX_BLOCK, 0, WIDTH, ox, oy, oz, ix, iy, iz,
+                    maxDistance, distances);
+            for (int l = 0; l < WIDTH; ++l) {
+                int count = nodeCounts[WIDTH * node + l];
+                if (distances[l] == Double.POSITIVE_INFINITY)
+                    continue;
+                if (count == 0) {
+                    stack[top++] = nodeChildren[WIDTH * node + l];
+                    continue;
+                }
+                int first = nodeChildren[WIDTH * node + l], end = first + count;
+                for (int block = first / WIDTH; block * WIDTH < end; ++block) {
+                    int from = Math.max(first, block * WIDTH), to = Math.min(end, (block + 1) * WIDTH);
+                    Kernel.DEFAULT.triangleDistances(triangles, block * Kernel.TRIANGLE_BLOCK,
+                            from - block * WIDTH, to - block * WIDTH, ox, oy, oz, dx, dy, dz,
+                            maxDistance, hits);
+                    for (int f = from; f < to; ++f)
+                        if (!Double.isNaN(hits[f % WIDTH])) {
+                            ktr = ktr.product(kT);
+                            if (ktr.lowerThan(minK))
+                                return Double3.ZERO;
+                        }
+                }
+            }
+        }
+        return ktr;
+    }
+}
@@ -9,6 +9,8 @@ import primitives.Vector;
 
 import java.util.List;
 
+import static primitives.Util.isZero;
+
 /**
  * Represents an abstract tube in 3D space.
  * A tube is defined by its axis, a line in 3D space, and a radius.
@@ -32,6 +34,26 @@ public class Tube extends RadialGeometry {
         this.axis = axis;
     }
 
+    /**
+     * Calculates the bounding box of the tube. A tube is infinite along its axis, so it is bounded
+     * only along the axes which are perpendicular to its axis.
+     *
+     * @return The bounding box of the tube.
+     */
+    @Override
+    protected BoundingBox calcBoundingBox() {
+        Point p0 = axis.getHead();
+        Vector v = axis.getDirection();
+        double inf = Double.POSITIVE_INFINITY;
+        return new BoundingBox(
+                isZero(v.getX()) ? p0.getX() - radius : -inf,
+                isZero(v.getY()) ? p0.getY() - radius : -inf,
+                isZero(v.getZ()) ? p0.getZ() - radius : -inf,
+                isZero(v.getX()) ? p0.getX() + radius : inf,
+                isZero(v.getY()) ? p0.getY() + radius : inf,
+                isZero(v.getZ()) ? p0.getZ() + radius : inf);
+    }
+
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
         return null;
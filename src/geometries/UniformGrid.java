@@ -0,0 +1,474 @@
+package geometries;
+
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Uniform grid over a group of intersectable objects.
+ * The box of the objects is divided into equal cells, each cell lists the objects whose boxes overlap it,
+ * and a ray walks through the cells it passes in order (3D-DDA), testing only the objects of these cells.
+ * For evenly spread scenes the grid is built in linear time and is traversed faster than a tree.
+ * The resolution is chosen from the amount of objects and the proportions of their box, so a cell holds
+ * a few objects on average. An object overlapping several cells is tested once per ray - each thread keeps
+ * a mailbox of the objects already tested for its current ray.
+ * Unbounded objects (e.g. infinite planes) can't be placed in the grid, so they are tested for every ray.
+ * The rays of a packet (see {@link #findClosestGeoIntersections(Ray[])}) are traced one by one - each ray
+ * walks its own cells, so unlike in a {@link BVH} they share no tests.
+ */
+public class UniformGrid extends Intersectable {
+
+    /**
+     * Amount of cells per object the resolution aims at
+     */
+    private static final double CELLS_PER_OBJECT = 4;
+    /**
+     * Maximal amount of cells along each axis
+     */
+    private static final int MAX_RESOLUTION = 128;
+    /**
+     * Part of a cell by which the boxes of the objects are widened when they are placed in the cells,
+     * so an object touching the border of a cell is listed in both cells despite rounding
+     */
+    private static final double CELL_EPSILON = 1e-9;
+
+    /**
+     * The bounded objects
+     */
+    private final Intersectable[] items;
+    /**
+     * The objects without a bounding box
+     */
+    private final List<Intersectable> unbounded = new LinkedList<>();
+    /**
+     * The box bounding the bounded objects
+     */
+    private final BoundingBox box;
+    /**
+     * The minimal corner of the grid - x, y and z
+     */
+    private final double[] origin = new double[3];
+    /**
+     * The size of a cell along each axis
+     */
+    private final double[] cellSize = new double[3];
+    /**
+     * The inverse of the size of a cell along each axis (0 if the grid is flat along the axis)
+     */
+    private final double[] inverseSize = new double[3];
+    /**
+     * The amount of cells along each axis
+     */
+    private final int[] resolution = new int[3];
+    /**
+     * The index in {@link #cellItems} of the first object of each cell, and the amount of listed objects
+     * at the end - the objects of cell c are cellItems[cellStart[c]] to cellItems[cellStart[c + 1] - 1]
+     */
+    private final int[] cellStart;
+    /**
+     * The indices of the objects of the cells, cell after cell
+     */
+    private final int[] cellItems;
+    /**
+     * The mailboxes of the threads tracing rays through the grid
+     */
+    private final ThreadLocal<Mailbox> mailboxes;
+
+    /**
+     * The objects already tested for the current ray of a thread. The ray is a stamp, so starting a new ray
+     * doesn't clear the box.
+     */
+    private static final class Mailbox {
+        /**
+         * The stamp of the last ray each object was tested for
+         */
+        private final int[] stamps;
+        /**
+         * The stamp of the current ray
+         */
+        private int ray = 0;
+
+        /**
+         * Constructs an empty mailbox
+         *
+         * @param size the amount of objects
+         */
+        Mailbox(int size) {
+            stamps = new int[size];
+        }
+
+        /**
+         * Starts a new ray - no object has been tested for it yet
+         */
+        void nextRay() {
+            if (++ray == 0) { // the stamps wrapped around - the old ones may repeat
+                Arrays.fill(stamps, 0);
+                ray = 1;
+            }
+        }
+
+        /**
+         * Marks an object as tested for the current ray
+         *
+         * @param item the index of the object
+         * @return true if the object hasn't been tested for the ray before
+         */
+        boolean visit(int item) {
+            if (stamps[item] == ray)
+                return false;
+            stamps[item] = ray;
+            return true;
+        }
+    }
+
+    /**
+     * Constructs a grid over the given objects. Nested {@link Geometries} (and compiled ones) are flattened,
+     * so the grid is built over their members.
+     *
+     * @param geometries the objects to put in the grid
+     */
+    public UniformGrid(Intersectable... geometries) {
+        this(List.of(geometries));
+    }
+
+    /**
+     * Constructs a grid over the given objects. Nested {@link Geometries} (and compiled ones) are flattened,
+     * so the grid is built over their members.
+     *
+     * @param geometries the objects to put in the grid
+     */
+    public UniformGrid(List<Intersectable> geometries) {
+        List<Intersectable> bounded = new ArrayList<>();
+        BVH.flatten(geometries, bounded, unbounded);
+        items = bounded.toArray(new Intersectable[0]);
+        mailboxes = ThreadLocal.withInitial(() -> new Mailbox(items.length));
+
+        BoundingBox bounds = BoundingBox.EMPTY;
+        for (Intersectable item : items)
+            bounds = bounds.union(item.getBoundingBox());
+        box = bounds;
+        if (items.length == 0) {
+            cellStart = null;
+            cellItems = null;
+            return;
+        }
+
+        // resolution - cells about cubic, their amount proportional to the amount of objects
+        // (a grid flat along some axes is divided along the others only)
+        double[] extent = {box.maxX - box.minX, box.maxY - box.minY, box.maxZ - box.minZ};
+        origin[0] = box.minX;
+        origin[1] = box.minY;
+        origin[2] = box.minZ;
+        double volume = 1;
+        int dimensions = 0;
+        for (double length : extent)
+            if (length > 0) {
+                volume *= length;
+                ++dimensions;
+            }
+        double side = dimensions == 0 ? 0 : Math.pow(volume / (CELLS_PER_OBJECT * items.length), 1d / dimensions);
+        for (int axis = 0; axis < 3; ++axis) {
+            long cells = side > 0 ? Math.round(extent[axis] / side) : 1;
+            resolution[axis] = (int) Math.max(1, Math.min(MAX_RESOLUTION, cells));
+            cellSize[axis] = extent[axis] / resolution[axis];
+            inverseSize[axis] = cellSize[axis] > 0 ? 1 / cellSize[axis] : 0;
+        }
+
+        // count the objects of each cell, then list them in one array
+        int cells = resolution[0] * resolution[1] * resolution[2];
+        int[] ranges = new int[items.length * 6];
+        cellStart = new int[cells + 1];
+        for (int i = 0; i < items.length; ++i) {
+            cellRange(items[i].getBoundingBox(), ranges, 6 * i);
+            forEachCell(ranges, 6 * i, cell -> ++cellStart[cell + 1]);
+        }
+        for (int cell = 0; cell < cells; ++cell)
+            cellStart[cell + 1] += cellStart[cell];
+        cellItems = new int[cellStart[cells]];
+        int[] next = Arrays.copyOf(cellStart, cells);
+        for (int i = 0; i < items.length; ++i) {
+            int item = i;
+            forEachCell(ranges, 6 * i, cell -> cellItems[next[cell]++] = item);
+        }
+    }
+
+    /**
+     * Finds the cells overlapped by a box
+     *
+     * @param itemBox the box
+     * @param ranges  the array to write the first and the last cell along x, y and z to
+     * @param offset  the index in the array to write from
+     */
+    private void cellRange(BoundingBox itemBox, int[] ranges, int offset) {
+        double[] min = {itemBox.minX, itemBox.minY, itemBox.minZ};
+        double[] max = {itemBox.maxX, itemBox.maxY, itemBox.maxZ};
+        for (int axis = 0; axis < 3; ++axis) {
+            ranges[offset + 2 * axis] = cell(axis, (min[axis] - origin[axis]) * inverseSize[axis] - CELL_EPSILON);
+            ranges[offset + 2 * axis + 1] = cell(axis, (max[axis] - origin[axis]) * inverseSize[axis] + CELL_EPSILON);
+        }
+    }
+
+    /**
+     * Finds the cell along an axis containing a position
+     *
+     * @param axis     0 for x, 1 for y and 2 for z
+     * @param position the position along the axis, in cells from the origin of the grid
+     * @return the index of the cell, clamped to the grid
+     */
+    private int cell(int axis, double position) {
+        return (int) Math.max(0, Math.min(resolution[axis] - 1, Math.floor(position)));
+    }
+
+    /**
+     * A visitor of cells
+     */
+    @FunctionalInterface
+    private interface CellVisitor {
+        /**
+         * Visits a cell
+         *
+         * @param cell the index of the cell
+         */
+        void visit(int cell);
+    }
+
+    /**
+     * Visits all the cells of a range of cells
+     *
+     * @param ranges  the first and the last cell along x, y and z
+     * @param offset  the index of the range in the array
+     * @param visitor the visitor
+     */
+    private void forEachCell(int[] ranges, int offset, CellVisitor visitor) {
+        for (int z = ranges[offset + 4]; z <= ranges[offset + 5]; ++z)
+            for (int y = ranges[offset + 2]; y <= ranges[offset + 3]; ++y)
+                for (int x = ranges[offset]; x <= ranges[offset + 1]; ++x)
+                    visitor.visit((z * resolution[1] + y) * resolution[0] + x);
+    }
+
+    /**
+     * Gets the amount of cells of the grid along each axis.
+     *
+     * @return The amount of cells along x, y and z (0 for a grid without bounded objects).
+     */
+    public int[] getResolution() {
+        return cellStart == null ? new int[3] : resolution.clone();
+    }
+
+    /**
+     * Walks along a ray through the cells of the grid, in the order the ray passes them (3D-DDA)
+     */
+    private final class Walker {
+        /**
+         * The current cell
+         */
+        private int cell;
+        /**
+         * The distance along the ray to the point where it leaves the current cell
+         */
+        private double exit;
+        /**
+         * The index of the current cell along each axis
+         */
+        private final int[] index = new int[3];
+        /**
+         * The direction of the steps along each axis - 1, -1, or 0 if the ray never crosses a cell border
+         */
+        private final int[] step = new int[3];
+        /**
+         * The distance along the ray to the next cell border along each axis
+         */
+        private final double[] next = new double[3];
+        /**
+         * The distance along the ray between two cell borders along each axis
+         */
+        private final double[] delta = new double[3];
+        /**
+         * The maximal distance from the ray head
+         */
+        private final double end;
+        /**
+         * Whether the walk has started
+         */
+        private boolean started = false;
+
+        /**
+         * Starts a walk along a ray, at the cell where the ray enters the grid
+         *
+         * @param ray         the ray
+         * @param entry       the distance along the ray to the point where it enters the grid
+         * @param maxDistance the maximal distance from the ray head
+         */
+        Walker(Ray ray, double entry, double maxDistance) {
+            end = maxDistance;
+            Point head = ray.getHead();
+            Vector dir = ray.getDirection();
+            double[] o = {head.getX(), head.getY(), head.getZ()};
+            double[] d = {dir.getX(), dir.getY(), dir.getZ()};
+            for (int axis = 0; axis < 3; ++axis) {
+                double position = o[axis] + entry * d[axis];
+                index[axis] = cell(axis, (position - origin[axis]) * inverseSize[axis]);
+                if (d[axis] == 0 || cellSize[axis] == 0) {
+                    step[axis] = 0;
+                    next[axis] = Double.POSITIVE_INFINITY;
+                    delta[axis] = Double.POSITIVE_INFINITY;
+                } else if (d[axis] > 0) {
+                    step[axis] = 1;
+                    next[axis] = (origin[axis] + (index[axis] + 1) * cellSize[axis] - o[axis]) / d[axis];
+                    delta[axis] = cellSize[axis] / d[axis];
+                } else {
+                    step[axis] = -1;
+                    next[axis] = (origin[axis] + index[axis] * cellSize[axis] - o[axis]) / d[axis];
+                    delta[axis] = -cellSize[axis] / d[axis];
+                }
+            }
+        }
+
+        /**
+         * Moves to the next cell along the ray
+         *
+         * @return false if the ray has left the grid or passed the maximal distance
+         */
+        boolean next() {
+            if (started) {
+                int axis = next[0] < next[1] ? (next[0] < next[2] ? 0 : 2) : (next[1] < next[2] ? 1 : 2);
+                if (next[axis] > end)
+                    return false;
+                index[axis] += step[axis];
+                if (step[axis] == 0 || index[axis] < 0 || index[axis] >= resolution[axis])
+                    return false;
+                next[axis] += delta[axis];
+            }
+            started = true;
+            cell = (index[2] * resolution[1] + index[1]) * resolution[0] + index[0];
+            exit = Math.min(next[0], Math.min(next[1], next[2]));
+            return true;
+        }
+    }
+
+    /**
+     * Starts a walk along a ray through the cells of the grid
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray head
+     * @return the walk, before its first cell, or null if the ray misses the grid within the distance
+     */
+    private Walker walk(Ray ray, double maxDistance) {
+        if (cellStart == null)
+            return null;
+        double entry = box.distance(ray, maxDistance);
+        return entry == Double.POSITIVE_INFINITY ? null : new Walker(ray, entry, maxDistance);
+    }
+
+    /**
+     * Gets the mailbox of the current thread, ready for a new ray
+     *
+     * @return the mailbox
+     */
+    private Mailbox mailbox() {
+        Mailbox mailbox = mailboxes.get();
+        mailbox.nextRay();
+        return mailbox;
+    }
+
+    @Override
+    protected BoundingBox calcBoundingBox() {
+        BoundingBox bounds = box;
+        for (Intersectable geo : unbounded)
+            bounds = bounds.union(geo.getBoundingBox());
+        return bounds;
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        List<GeoPoint> intersections = new LinkedList<>();
+        for (Intersectable geo : unbounded) {
+            var geoPoints = geo.findGeoIntersections(ray, maxDistance);
+            if (geoPoints != null)
+                intersections.addAll(geoPoints);
+        }
+        Walker walker = walk(ray, maxDistance);
+        if (walker != null) {
+            Mailbox mailbox = mailbox();
+            while (walker.next())
+                for (int k = cellStart[walker.cell]; k < cellStart[walker.cell + 1]; ++k) {
+                    int item = cellItems[k];
+                    if (!mailbox.visit(item))
+                        continue;
+                    var geoPoints = items[item].findGeoIntersections(ray, maxDistance);
+                    if (geoPoints != null)
+                        intersections.addAll(geoPoints);
+                }
+        }
+        if (intersections.isEmpty())
+            return null;
+        return intersections.stream().sorted(Comparator.comparingDouble(p -> p.point.distance(ray.getHead()))).toList();
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        GeoPoint closest = null;
+        for (Intersectable geo : unbounded) {
+            GeoPoint geoPoint = geo.findClosestGeoIntersection(ray, maxDistance);
+            if (geoPoint != null) {
+                closest = geoPoint;
+                maxDistance = geoPoint.point.distance(ray.getHead());
+            }
+        }
+        Walker walker = walk(ray, maxDistance);
+        if (walker == null)
+            return closest;
+        Mailbox mailbox = mailbox();
+        while (walker.next()) {
+            for (int k = cellStart[walker.cell]; k < cellStart[walker.cell + 1]; ++k) {
+                int item = cellItems[k];
+                // an object tested in an earlier cell already gave its closest hit within the distance
+                if (!mailbox.visit(item))
+                    continue;
+                GeoPoint geoPoint = items[item].findClosestGeoIntersection(ray, maxDistance);
+                if (geoPoint != null) {
+                    double distance = geoPoint.point.distance(ray.getHead());
+                    if (closest == null || distance < maxDistance) {
+                        closest = geoPoint;
+                        maxDistance = distance;
+                    }
+                }
+            }
+            // a hit inside the current cell is closer than anything in the next cells
+            if (closest != null && maxDistance <= walker.exit)
+                break;
+        }
+        return closest;
+    }
+
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, double minK) {
+        Double3 ktr = Double3.ONE;
+        for (Intersectable geo : unbounded) {
+            ktr = ktr.product(geo.findTransparency(ray, maxDistance, minK));
+            if (ktr.lowerThan(minK))
+                return Double3.ZERO;
+        }
+        Walker walker = walk(ray, maxDistance);
+        if (walker == null)
+            return ktr;
+        Mailbox mailbox = mailbox();
+        while (walker.next())
+            for (int k = cellStart[walker.cell]; k < cellStart[walker.cell + 1]; ++k) {
+                int item = cellItems[k];
+                if (!mailbox.visit(item))
+                    continue;
+                ktr = ktr.product(items[item].findTransparency(ray, maxDistance, minK));
+                if (ktr.lowerThan(minK))
+                    return Double3.ZERO;
+            }
+        return ktr;
+    }
+}
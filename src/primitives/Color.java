@@ -75,6 +75,33 @@ public class Color {
         return new java.awt.Color(ir > 255 ? 255 : ir, ig > 255 ? 255 : ig, ib > 255 ? 255 : ib);
     }
 
+    /**
+     * Gets the red component, without the limit of 255
+     *
+     * @return the red component
+     */
+    public double getRed() {
+        return rgb.d1;
+    }
+
+    /**
+     * Gets the green component, without the limit of 255
+     *
+     * @return the green component
+     */
+    public double getGreen() {
+        return rgb.d2;
+    }
+
+    /**
+     * Gets the blue component, without the limit of 255
+     *
+     * @return the blue component
+     */
+    public double getBlue() {
+        return rgb.d3;
+    }
+
     /**
      * Operation of adding this and one or more other colors (by component)
      *
@@ -127,6 +154,19 @@ public class Color {
         return new Color(rgb.reduce(k));
     }
 
+    /**
+     * Checks whether two colors are close - each of their components differs by no more than a threshold
+     *
+     * @param other     the other color
+     * @param threshold the maximal difference of a component
+     * @return true if the colors are close
+     */
+    public boolean similar(Color other, double threshold) {
+        return Math.abs(rgb.d1 - other.rgb.d1) <= threshold
+                && Math.abs(rgb.d2 - other.rgb.d2) <= threshold
+                && Math.abs(rgb.d3 - other.rgb.d3) <= threshold;
+    }
+
     @Override
     public String toString() {
         return "rgb:" + rgb;
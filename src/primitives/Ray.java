@@ -87,7 +87,7 @@ public class Ray {
     public Point getPoint(double t) {
         if (isZero(t))
             return head;
-        return head.add(direction.scale(t));
+        return new Point(head.xyz.add(direction.xyz.scale(t)));
     }
 
     /**
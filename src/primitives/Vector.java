@@ -54,9 +54,10 @@ public class Vector extends Point {
      * @return The resulting vector.
      */
     public Vector add(Vector vecToAdd) {
-        if (Point.ZERO.equals(super.add(vecToAdd)))
+        Double3 sum = xyz.add(vecToAdd.xyz);
+        if (sum.equals(Double3.ZERO))
             throw new IllegalArgumentException("ERROR:cant add vector with its negative vector");
-        return new Vector(super.add(vecToAdd).xyz);
+        return new Vector(sum);
     }
 
     /**
@@ -123,7 +124,7 @@ public class Vector extends Point {
         double length = this.length();
         if (isZero(length))
             throw new IllegalArgumentException("cannot normalize Vector (0,0,0) ");
-        return this.scale(1d / length());
+        return new Vector(xyz.scale(1d / length));
     }
 
     public boolean isParallel(Vector vAxis) {
@@ -0,0 +1,136 @@
+package renderer;
+
+import primitives.Color;
+
+/**
+ * Buffer accumulating the samples of the pixels of an image over several passes of rendering.
+ * Each pixel keeps the sum of the colors of its samples (as floats, without the limit of 255)
+ * and the amount of its samples, so the average color of a pixel is known after any pass -
+ * also after a pass that was stopped in the middle. The brightness of the samples (the average of their
+ * red, green and blue) is summed also squared, in double precision, for the noise of the pixels.<br/>
+ * Different threads may add samples to different pixels at the same time.
+ */
+class AccumulationBuffer {
+    /** The amount of pixel columns */
+    private final int nX;
+    /** The amount of pixel rows */
+    private final int nY;
+    /** The sums of the samples - red, green and blue of each pixel, row by row */
+    private final float[] sums;
+    /** The amounts of the samples of the pixels, row by row */
+    private final int[] counts;
+    /** The sums of the brightness of the samples of the pixels, row by row */
+    private final double[] brightness;
+    /** The sums of the squared brightness of the samples of the pixels, row by row */
+    private final double[] squares;
+
+    /**
+     * Constructs an empty buffer
+     *
+     * @param nX the amount of pixel columns
+     * @param nY the amount of pixel rows
+     */
+    AccumulationBuffer(int nX, int nY) {
+        this.nX = nX;
+        this.nY = nY;
+        sums = new float[nX * nY * 3];
+        counts = new int[nX * nY];
+        brightness = new double[nX * nY];
+        squares = new double[nX * nY];
+    }
+
+    /**
+     * Gets the amount of samples of a pixel
+     *
+     * @param j the column of the pixel
+     * @param i the row of the pixel
+     * @return the amount of samples
+     */
+    int getCount(int j, int i) {
+        return counts[i * nX + j];
+    }
+
+    /**
+     * Adds a sample to a pixel
+     *
+     * @param j     the column of the pixel
+     * @param i     the row of the pixel
+     * @param color the color of the sample
+     */
+    void add(int j, int i, Color color) {
+        int pixel = i * nX + j;
+        sums[3 * pixel] += (float) color.getRed();
+        sums[3 * pixel + 1] += (float) color.getGreen();
+        sums[3 * pixel + 2] += (float) color.getBlue();
+        double value = (color.getRed() + color.getGreen() + color.getBlue()) / 3;
+        brightness[pixel] += value;
+        squares[pixel] += value * value;
+        ++counts[pixel];
+    }
+
+    /**
+     * Gets the average color of the samples of a pixel
+     *
+     * @param j the column of the pixel
+     * @param i the row of the pixel
+     * @return the average color, black if the pixel has no samples
+     */
+    Color getColor(int j, int i) {
+        int pixel = i * nX + j;
+        int count = counts[pixel];
+        if (count == 0)
+            return Color.BLACK;
+        return new Color(sums[3 * pixel] / count, sums[3 * pixel + 1] / count, sums[3 * pixel + 2] / count);
+    }
+
+    /**
+     * Estimates the noise of a pixel - the standard error of the average brightness of its samples
+     *
+     * @param j the column of the pixel
+     * @param i the row of the pixel
+     * @return the noise in color units, infinity if the pixel has less than 2 samples
+     */
+    double getNoise(int j, int i) {
+        int pixel = i * nX + j;
+        int count = counts[pixel];
+        if (count < 2)
+            return Double.POSITIVE_INFINITY;
+        double mean = brightness[pixel] / count;
+        double variance = Math.max(0, (squares[pixel] - mean * brightness[pixel]) / (count - 1));
+        return Math.sqrt(variance / count);
+    }
+
+    /**
+     * Gets the amount of pixel columns
+     *
+     * @return the amount of columns
+     */
+    int getNx() {
+        return nX;
+    }
+
+    /**
+     * Gets the amount of pixel rows
+     *
+     * @return the amount of rows
+     */
+    int getNy() {
+        return nY;
+    }
+
+    /**
+     * Writes the average colors of the pixels with samples to the frame buffer of an image
+     *
+     * @param imageWriter the image
+     */
+    void writeTo(ImageWriter imageWriter) {
+        FrameBuffer frame = imageWriter.getFrameBuffer();
+        for (int i = 0; i < nY; ++i)
+            for (int j = 0; j < nX; ++j) {
+                int pixel = i * nX + j;
+                double count = counts[pixel];
+                if (count != 0)
+                    frame.set(j, i, sums[3 * pixel] / count, sums[3 * pixel + 1] / count, sums[3 * pixel + 2] / count);
+            }
+    }
+}
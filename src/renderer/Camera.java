@@ -5,7 +5,18 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.io.Serial;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
@@ -13,6 +24,8 @@ import static primitives.Util.isZero;
 
 public class Camera implements Cloneable {
 
+    /** The maximal amount of samples of a pixel in a budgeted rendering */
+    private static final int MAX_BUDGET_SAMPLES = 1 << 14;
 
     private Point p0 = Point.ZERO;
     private Vector vUp = null;
@@ -24,9 +37,15 @@ public class Camera implements Cloneable {
     private ImageWriter imageWriter;
     private RayTracerBase rayTracer;
     private int antialiasingLevel = 1;
-    private PixelManager pixelManager;
-    private int threadsCount;
+    private int threadsCount = -1;
+    private int tileSize = 16;
+    private int packetSize = 8;
+    private ExecutorService executor = null;
+    private volatile ViewPlane viewPlane = null;
     private boolean adaptive = false;
+    private Sampler sampler = Sampler.RANDOM;
+    private int adaptiveMaxDepth = 3;
+    private double adaptiveThreshold = 8;
 
     private Camera() {
     }
@@ -72,23 +91,7 @@ public class Camera implements Cloneable {
      * @return The ray that passes through the pixel.
  */
     public Ray constructRay(int nX, int nY, int j, int i) {
-        double rX = width / nX;
-        double rY = height / nY;
-
-        double Xj = (j - (nX - 1) / 2d) * rX;
-        double Yi = -(i - (nY - 1) / 2d) * rY;
-
-        Point pCenter = p0.add(vTo.scale(distance));
-
-        Point Pij = pCenter;
-        if (!isZero(Xj))
-            Pij = Pij.add(vRight.scale(Xj));
-        if (!isZero(Yi))
-            Pij = Pij.add(vUp.scale(Yi));
-
-        Vector Vij = Pij.subtract(p0);
-
-        return new Ray(p0, Vij);
+        return viewPlane(nX, nY).constructRay(j, i, 0, 0);
     }
 
 
@@ -102,39 +105,126 @@ public class Camera implements Cloneable {
      * @return The list of rays that form the rectangle.
      */
     public List<Ray> constructRays(int nX, int nY, int j, int i, int numRays) {
-        double rX = width / nX;
-        double rY = height / nY;
-
-        double Xj = (j - (nX - 1) / 2d) * rX;
-        double Yi = -(i - (nY - 1) / 2d) * rY;
+        ViewPlane plane = viewPlane(nX, nY);
+        List<Ray> rays = new ArrayList<>(numRays);
+        double[] samples = new double[2 * numRays];
+        sampler.sample(j, i, numRays, samples);
 
-        Point pCenter = p0.add(vTo.scale(distance));
+        for (int k = 0; k < numRays; k++) {
+            // Generate a point within the pixel area by the sampler
+            double offsetX = (samples[2 * k] - 0.5) * plane.rX; // value between -rX/2 and rX/2
+            double offsetY = (0.5 - samples[2 * k + 1]) * plane.rY; // value between -rY/2 and rY/2
+            rays.add(plane.constructRay(j, i, offsetX, offsetY));
+        }
 
-        Point Pij = pCenter;
-        if (!isZero(Xj))
-            Pij = Pij.add(vRight.scale(Xj));
-        if (!isZero(Yi))
-            Pij = Pij.add(vUp.scale(Yi));
+        return rays;
+    }
 
-        List<Ray> rays = new ArrayList<>(numRays);
-        Random rand = new Random();
+    /**
+     * Gets the view plane divided into pixels for a resolution. The division is calculated on the first
+     * ray of a resolution (and again after the camera is turned), and shared by all the rendering threads.
+     * @param nX The number of pixels in the width.
+     * @param nY The number of pixels in the height.
+     * @return The divided view plane.
+     */
+    private ViewPlane viewPlane(int nX, int nY) {
+        ViewPlane plane = viewPlane;
+        if (plane == null || plane.nX != nX || plane.nY != nY)
+            viewPlane = plane = new ViewPlane(nX, nY);
+        return plane;
+    }
 
-        for (int k = 0; k < numRays; k++) {
-            // Generate random point within the pixel area
-            double offsetX = (rand.nextDouble() - 0.5) * rX; // random value between -rX/2 and rX/2
-            double offsetY = (rand.nextDouble() - 0.5) * rY; // random value between -rY/2 and rY/2
+    /**
+     * The view plane divided into pixels - the center of the view plane and the offsets of the columns and
+     * the rows of pixels from it, calculated once, so constructing the ray of a pixel takes a few additions
+     * instead of recalculating the center and scaling the vectors for each pixel.
+     */
+    private class ViewPlane {
+        private final int nX;
+        private final int nY;
+        /** The width and height of a pixel */
+        private final double rX, rY;
+        /** The coordinates of the camera location */
+        private final double px, py, pz;
+        /** The coordinates of the center of the view plane */
+        private final double cx, cy, cz;
+        /** The coordinates of the right and up vectors, for the offsets inside pixels */
+        private final double rightX, rightY, rightZ, upX, upY, upZ;
+        /** The offsets of the centers of the columns from the center of the view plane - x, y, z for each column */
+        private final double[] columns;
+        /** The offsets of the centers of the rows from the center of the view plane - x, y, z for each row */
+        private final double[] rows;
 
-            Point randomPoint = Pij.add(vRight.scale(offsetX)).add(vUp.scale(offsetY));
-            Vector rayDirection = randomPoint.subtract(p0);
-            rays.add(new Ray(p0, rayDirection));
+        /**
+         * Divides the view plane of the camera.
+         * @param nX The number of pixels in the width.
+         * @param nY The number of pixels in the height.
+         */
+        ViewPlane(int nX, int nY) {
+            this.nX = nX;
+            this.nY = nY;
+            rX = width / nX;
+            rY = height / nY;
+            px = p0.getX();
+            py = p0.getY();
+            pz = p0.getZ();
+            Point pCenter = p0.add(vTo.scale(distance));
+            cx = pCenter.getX();
+            cy = pCenter.getY();
+            cz = pCenter.getZ();
+            rightX = vRight.getX();
+            rightY = vRight.getY();
+            rightZ = vRight.getZ();
+            upX = vUp.getX();
+            upY = vUp.getY();
+            upZ = vUp.getZ();
+
+            columns = new double[nX * 3];
+            for (int j = 0; j < nX; ++j) {
+                double Xj = (j - (nX - 1) / 2d) * rX;
+                if (!isZero(Xj)) {
+                    columns[3 * j] = rightX * Xj;
+                    columns[3 * j + 1] = rightY * Xj;
+                    columns[3 * j + 2] = rightZ * Xj;
+                }
+            }
+            rows = new double[nY * 3];
+            for (int i = 0; i < nY; ++i) {
+                double Yi = -(i - (nY - 1) / 2d) * rY;
+                if (!isZero(Yi)) {
+                    rows[3 * i] = upX * Yi;
+                    rows[3 * i + 1] = upY * Yi;
+                    rows[3 * i + 2] = upZ * Yi;
+                }
+            }
         }
 
-        return rays;
+        /**
+         * Constructs a ray from the camera through a point of a pixel.
+         * @param j       The column index of the pixel.
+         * @param i       The row index of the pixel.
+         * @param offsetX The distance of the point from the center of the pixel to the right.
+         * @param offsetY The distance of the point from the center of the pixel upwards.
+         * @return The ray.
+         */
+        Ray constructRay(int j, int i, double offsetX, double offsetY) {
+            double x = cx + columns[3 * j] + rows[3 * i];
+            double y = cy + columns[3 * j + 1] + rows[3 * i + 1];
+            double z = cz + columns[3 * j + 2] + rows[3 * i + 2];
+            if (offsetX != 0 || offsetY != 0) {
+                x = x + rightX * offsetX + upX * offsetY;
+                y = y + rightY * offsetX + upY * offsetY;
+                z = z + rightZ * offsetX + upZ * offsetY;
+            }
+            return new Ray(p0, new Vector(x - px, y - py, z - pz));
+        }
     }
 
 
      /* Renders the image by casting rays through each pixel.
      * @return The camera after rendering the image.
+     * @throws IllegalStateException if the calling thread is interrupted while waiting for the rendering
+     *                               threads - the remaining tiles are cancelled
      */
     public Camera renderImage() {
         int nX = imageWriter.getNx();
@@ -142,102 +232,719 @@ public class Camera implements Cloneable {
         // Verify that nX and nY are not zero to avoid division by zero
         if (nY == 0 || nX == 0)
             throw new IllegalArgumentException("It is impossible to divide by 0");
+        RayTracerBase tracer = rayTracer.prepare();
         // Initialize the pixel manager
-        pixelManager = new PixelManager(nY, nX, 0.1);
-        // Check if the number of threads is 0
-        if (threadsCount == 0) {
-            for (int i = 0; i < nY; ++i)
-                for (int j = 0; j < nX; ++j)
-                    castRay(nX, nY, j, i, antialiasingLevel);
-        }
-        else { // see further... option 2
-            var threads = new LinkedList<Thread>(); // list of threads
-            while (threadsCount-- > 0) // add appropriate number of threads
-                threads.add(new Thread(() -> { // add a thread with its code
-                    PixelManager.Pixel pixel; // current pixel(row,col)
-                    // allocate pixel(row,col) in loop until there are no more pixels
-                    while ((pixel = pixelManager.nextPixel()) != null)
-                        // cast ray through pixel (and color it – inside castRay)
-                        castRay(nX, nY, pixel.col(), pixel.row(),antialiasingLevel);
-                }));
-            // start all the threads
-            for (var thread : threads) thread.start();
-            // wait until all the threads have finished
+        PixelManager pixelManager = new PixelManager(nY, nX, tileSize, 0.1);
+        if (executor == null && threadsCount == 0) { // render in the calling thread
+            renderTiles(pixelManager, tile -> renderPixels(tracer, nX, nY, tile));
+            return this;
+        }
+        return await(startRender(pixelManager, tile -> renderPixels(tracer, nX, nY, tile)));
+    }
+
+    /**
+     * Starts rendering the image in the background and returns at once.
+     * @return A future completed with the camera when all the pixels are written to the image.
+     * @see #renderImageAsync(RenderListener)
+     */
+    public CompletableFuture<Camera> renderImageAsync() {
+        return renderImageAsync(null);
+    }
+
+    /**
+     * Starts rendering the image in the background and returns at once. The rendering runs on the executor
+     * of the camera, or on its threads (a single thread if the camera is set to render in the calling thread).
+     * Cancelling the future stops the rendering after the tiles that are already started, so stale renders
+     * don't keep the threads busy. Renders running at the same time must write to different image writers.
+     * @param listener The listener to the progress of the rendering, null if there is none.
+     * @return A future completed with the camera when all the pixels are written to the image,
+     * or completed exceptionally if the rendering failed.
+     */
+    public CompletableFuture<Camera> renderImageAsync(RenderListener listener) {
+        int nX = imageWriter.getNx();
+        int nY = imageWriter.getNy();
+        // Verify that nX and nY are not zero to avoid division by zero
+        if (nY == 0 || nX == 0)
+            throw new IllegalArgumentException("It is impossible to divide by 0");
+        RayTracerBase tracer = rayTracer.prepare();
+        return startRender(new PixelManager(nY, nX, tileSize, listener), tile -> renderPixels(tracer, nX, nY, tile));
+    }
+
+    /**
+     * Renders the image progressively and waits until all the passes are done.
+     * @param passes The amount of passes.
+     * @return The camera after rendering the image.
+     * @throws IllegalStateException if the calling thread is interrupted while waiting for the rendering
+     *                               threads - the image keeps the passes done so far
+     * @see #renderProgressiveAsync(int, RenderListener)
+     */
+    public Camera renderProgressive(int passes) {
+        return await(renderProgressiveAsync(passes, null));
+    }
+
+    /**
+     * Starts rendering the image progressively in the background and returns at once.
+     * The first pass traces a single sample per pixel, so a rough image of the whole frame is ready quickly.
+     * Each of the next passes adds samples to each pixel (as many as the antialiasing level, at the next points
+     * of the sampler), averaged with the samples of the previous passes in an accumulation buffer.
+     * After each pass the image is updated with the averages and the listener is told, so the frame can
+     * be shown or saved. Cancelling the future stops the rendering - the image keeps the samples done so far.
+     * @param passes   The maximal amount of passes.
+     * @param listener The listener to the progress of the rendering, null if there is none - its progress is
+     *                 the progress of the current pass.
+     * @return A future completed with the camera after the last pass.
+     * @throws IllegalArgumentException if the amount of passes is not positive
+     */
+    public CompletableFuture<Camera> renderProgressiveAsync(int passes, RenderListener listener) {
+        int nX = imageWriter.getNx();
+        int nY = imageWriter.getNy();
+        // Verify that nX and nY are not zero to avoid division by zero
+        if (nY == 0 || nX == 0)
+            throw new IllegalArgumentException("It is impossible to divide by 0");
+        if (passes <= 0)
+            throw new IllegalArgumentException("ERROR:amount of passes must be positive");
+        int step = Math.max(antialiasingLevel, 1);
+        RayTracerBase tracer = rayTracer.prepare();
+        CompletableFuture<Camera> render = new CompletableFuture<>();
+        renderPasses(tracer, new AccumulationBuffer(nX, nY), new SamplingPlan() {
+            @Override
+            public int samples(AccumulationBuffer buffer, int pass, int j, int i) {
+                return pass == 0 ? 1 : step;
+            }
+
+            @Override
+            public boolean hasNext(AccumulationBuffer buffer, int done) {
+                return done < passes;
+            }
+        }, Long.MAX_VALUE, listener, render, (buffer, done) -> this);
+        return render;
+    }
+
+    /**
+     * Renders the image within a budget and waits until it is done.
+     * @param millis The time budget in milliseconds, 0 for no time limit.
+     * @param noise  The target noise of the pixels, 0 for no noise target.
+     * @return The statistics of the rendering.
+     * @throws IllegalStateException if the calling thread is interrupted while waiting for the rendering
+     *                               threads - the image keeps the samples done so far
+     * @see #renderBudgetedAsync(long, double, RenderListener)
+     */
+    public RenderStats renderBudgeted(long millis, double noise) {
+        return await(renderBudgetedAsync(millis, noise, null));
+    }
+
+    /**
+     * Starts rendering the image within a budget in the background and returns at once - the best image
+     * in a given time, or the image with a given noise, whichever comes first.<br/>
+     * The rendering is progressive: the first pass traces a few samples per pixel (the antialiasing level,
+     * and at least 2), and each of the next passes adds samples only to the pixels whose noise (the standard
+     * error of the average brightness of their samples) is above the target - more samples the farther
+     * the pixel is from the target, up to the antialiasing level (at least 2) per pass. Flat areas stop after
+     * the first pass, and the time goes to the edges, the soft shadows and the glossy areas.<br/>
+     * The rendering stops when the time is over (also in the middle of a pass), when all the pixels reach
+     * the target, or when the noisy pixels reach 16384 samples. After each pass
+     * the image is updated and the listener is told.
+     * @param millis   The time budget in milliseconds, 0 for no time limit.
+     * @param noise    The target noise of the pixels in color units (0 - 255), 0 for no noise target.
+     * @param listener The listener to the progress of the rendering, null if there is none.
+     * @return A future completed with the statistics of the rendering.
+     * @throws IllegalArgumentException if the budget is negative, or if there is neither time limit nor noise target
+     */
+    public CompletableFuture<RenderStats> renderBudgetedAsync(long millis, double noise, RenderListener listener) {
+        int nX = imageWriter.getNx();
+        int nY = imageWriter.getNy();
+        // Verify that nX and nY are not zero to avoid division by zero
+        if (nY == 0 || nX == 0)
+            throw new IllegalArgumentException("It is impossible to divide by 0");
+        if (millis < 0 || noise < 0)
+            throw new IllegalArgumentException("ERROR:budget must not be negative");
+        if (millis == 0 && noise == 0)
+            throw new IllegalArgumentException("ERROR:budget must have a time limit or a noise target");
+        long deadline = millis == 0 ? Long.MAX_VALUE : System.nanoTime() + millis * 1_000_000L;
+        int step = Math.max(antialiasingLevel, 2);
+        RayTracerBase tracer = rayTracer.prepare();
+        CompletableFuture<RenderStats> render = new CompletableFuture<>();
+        renderPasses(tracer, new AccumulationBuffer(nX, nY), new SamplingPlan() {
+            @Override
+            public int samples(AccumulationBuffer buffer, int pass, int j, int i) {
+                if (pass == 0)
+                    return step;
+                int count = buffer.getCount(j, i);
+                double error = buffer.getNoise(j, i);
+                if (error <= noise || count >= MAX_BUDGET_SAMPLES)
+                    return 0;
+                if (noise == 0)
+                    return step;
+                // the noise falls as the square root of the samples - estimate the samples reaching the target
+                double needed = count * (error / noise) * (error / noise) - count;
+                return (int) Math.max(1, Math.min(step, Math.ceil(needed)));
+            }
+
+            @Override
+            public boolean hasNext(AccumulationBuffer buffer, int done) {
+                if (System.nanoTime() >= deadline)
+                    return false;
+                for (int i = 0; i < nY; ++i)
+                    for (int j = 0; j < nX; ++j)
+                        if (samples(buffer, done, j, i) > 0)
+                            return true;
+                return false;
+            }
+        }, deadline, listener, render, RenderStats::of);
+        return render;
+    }
+
+    /**
+     * Starts the passes of a progressive rendering. Cancelling or failing the future of the whole rendering
+     * cancels the pixel manager of the current pass.
+     * @param tracer   The tracer of the rendering.
+     * @param buffer   The accumulation buffer of the rendering.
+     * @param plan     The plan of the samples of the passes.
+     * @param deadline The time (of {@link System#nanoTime()}) to stop the rendering at, even in the middle of a pass.
+     * @param listener The listener to the progress of the rendering, null if there is none.
+     * @param render   The future of the whole rendering.
+     * @param result   The result of the rendering, from the buffer and the amount of passes done.
+     * @param <T>      The type of the result.
+     */
+    private <T> void renderPasses(RayTracerBase tracer, AccumulationBuffer buffer, SamplingPlan plan, long deadline,
+                                  RenderListener listener, CompletableFuture<T> render,
+                                  BiFunction<AccumulationBuffer, Integer, T> result) {
+        AtomicReference<PixelManager> current = new AtomicReference<>();
+        render.whenComplete((value, e) -> {
+            PixelManager pixelManager = current.get();
+            if (e != null && pixelManager != null) pixelManager.cancel();
+        });
+        renderPass(tracer, buffer, 0, plan, deadline, listener, render, result, current);
+    }
+
+    /**
+     * Starts a pass of a progressive rendering, and the next pass when it is done.
+     * @param tracer   The tracer of the rendering.
+     * @param buffer   The accumulation buffer of the rendering.
+     * @param pass     The number of the pass.
+     * @param plan     The plan of the samples of the passes.
+     * @param deadline The time (of {@link System#nanoTime()}) to stop the rendering at, even in the middle of a pass.
+     * @param listener The listener to the progress of the rendering, null if there is none.
+     * @param render   The future of the whole rendering.
+     * @param result   The result of the rendering, from the buffer and the amount of passes done.
+     * @param current  The pixel manager of the current pass, for cancelling the rendering.
+     * @param <T>      The type of the result.
+     */
+    private <T> void renderPass(RayTracerBase tracer, AccumulationBuffer buffer, int pass, SamplingPlan plan, long deadline,
+                                RenderListener listener, CompletableFuture<T> render,
+                                BiFunction<AccumulationBuffer, Integer, T> result,
+                                AtomicReference<PixelManager> current) {
+        int nX = imageWriter.getNx();
+        int nY = imageWriter.getNy();
+        PixelManager pixelManager = new PixelManager(nY, nX, tileSize, listener);
+        current.set(pixelManager);
+        if (render.isCompletedExceptionally()) // cancelled before the pass was published
+            pixelManager.cancel();
+        startRender(pixelManager, tile -> samplePixels(tracer, buffer, pixelManager, nX, nY, tile, pass, plan, deadline))
+                .whenComplete((camera, e) -> {
+                    if (e != null) {
+                        render.completeExceptionally(e);
+                        return;
+                    }
+                    buffer.writeTo(imageWriter);
+                    if (render.isDone()) // cancelled - the image keeps the samples done so far
+                        return;
+                    if (listener != null)
+                        listener.passDone(pass + 1);
+                    if (pixelManager.isCancelled() || !plan.hasNext(buffer, pass + 1))
+                        render.complete(result.apply(buffer, pass + 1));
+                    else
+                        renderPass(tracer, buffer, pass + 1, plan, deadline, listener, render, result, current);
+                });
+    }
+
+    /**
+     * Waits for a rendering to be done.
+     * @param render The future of the rendering.
+     * @param <T>    The type of the result of the rendering.
+     * @return The result of the rendering.
+     * @throws IllegalStateException if the calling thread is interrupted while waiting - the rendering is cancelled
+     */
+    private <T> T await(CompletableFuture<T> render) {
+        try {
+            return render.get();
+        } catch (InterruptedException e) {
+            render.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("ERROR:rendering was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Starts rendering the tiles of a pixel manager on the executor or the threads of the camera.
+     * Cancelling or failing the returned future cancels the pixel manager.
+     * @param pixelManager The pixel manager.
+     * @param work         The rendering of a tile.
+     * @return A future completed with the camera when all the tiles are done.
+     */
+    private CompletableFuture<Camera> startRender(PixelManager pixelManager, Consumer<PixelManager.Tile> work) {
+        CompletableFuture<Camera> render = new CompletableFuture<>();
+        render.whenComplete((camera, e) -> {
+            if (e != null) pixelManager.cancel();
+        });
+        if (executor != null && !(executor instanceof ForkJoinPool)) {
+            submitTiles(executor, pixelManager, work, render);
+            return render;
+        }
+
+        ForkJoinPool pool;
+        if (executor != null)
+            pool = (ForkJoinPool) executor;
+        else if (threadsCount < 0) // render on all the cores
+            pool = ForkJoinPool.commonPool();
+        else {
+            ForkJoinPool own = new ForkJoinPool(Math.max(threadsCount, 1));
+            render.whenComplete((camera, e) -> own.shutdown());
+            pool = own;
+        }
+        try {
+            pool.execute(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    try {
+                        new TileTask(pixelManager, work, 0, pixelManager.getTilesCount()).invoke();
+                        render.complete(Camera.this);
+                    } catch (Throwable e) {
+                        render.completeExceptionally(e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            render.completeExceptionally(e);
+        }
+        return render;
+    }
+
+    /**
+     * Submits a task per tile to an executor supplied by the user. If the executor rejects a task,
+     * the rendering is cancelled and the future fails with the rejection.
+     * @param executor     The executor.
+     * @param pixelManager The pixel manager.
+     * @param work         The rendering of a tile.
+     * @param render       The future to complete when all the tiles are done, or to fail if a tile fails.
+     */
+    private void submitTiles(ExecutorService executor, PixelManager pixelManager, Consumer<PixelManager.Tile> work,
+                             CompletableFuture<Camera> render) {
+        AtomicInteger remaining = new AtomicInteger(pixelManager.getTilesCount());
+        for (int i = 0; i < pixelManager.getTilesCount(); ++i) {
+            PixelManager.Tile tile = pixelManager.getTile(i);
             try {
-                for (var thread : threads) thread.join();
-            } catch (InterruptedException ignore) {
+                executor.execute(() -> {
+                    try {
+                        renderTile(pixelManager, work, tile);
+                    } catch (Throwable e) {
+                        render.completeExceptionally(e);
+                    }
+                    if (remaining.decrementAndGet() == 0)
+                        render.complete(this);
+                });
+            } catch (RejectedExecutionException e) {
+                // the tiles already queued skip their rendering once the pixel manager is cancelled
+                pixelManager.cancel();
+                render.completeExceptionally(e);
+                return;
             }
         }
-        return this;
     }
 
+    /**
+     * Renders tiles of the image until the pixel manager has no more tiles.
+     * @param pixelManager The pixel manager.
+     * @param work         The rendering of a tile.
+     */
+    private void renderTiles(PixelManager pixelManager, Consumer<PixelManager.Tile> work) {
+        PixelManager.Tile tile; // current tile
+        // allocate tiles in loop until there are no more tiles
+        while ((tile = pixelManager.nextTile()) != null)
+            renderTile(pixelManager, work, tile);
+    }
+
+    /**
+     * Renders a tile of the image, unless the rendering was cancelled.
+     * @param pixelManager The pixel manager.
+     * @param work         The rendering of a tile.
+     * @param tile         The tile.
+     */
+    private void renderTile(PixelManager pixelManager, Consumer<PixelManager.Tile> work, PixelManager.Tile tile) {
+        if (pixelManager.isCancelled())
+            return;
+        work.accept(tile);
+        pixelManager.tileDone(tile);
+    }
+
+    /**
+     * Renders the pixels of a tile and writes them to the image.
+     * @param tracer The tracer of the rendering.
+     * @param nX     Number of pixels in width.
+     * @param nY     Number of pixels in height.
+     * @param tile   The tile.
+     */
+    private void renderPixels(RayTracerBase tracer, int nX, int nY, PixelManager.Tile tile) {
+        if (adaptive && antialiasingLevel > 1) {
+            AdaptiveTile adaptiveTile = new AdaptiveTile(tracer, viewPlane(nX, nY), tile);
+            for (int i = tile.fromRow(); i < tile.toRow(); ++i)
+                for (int j = tile.fromCol(); j < tile.toCol(); ++j)
+                    imageWriter.writePixel(j, i, adaptiveTile.pixelColor(j, i));
+        } else if (antialiasingLevel == 1 && packetSize > 1)
+            for (int i = tile.fromRow(); i < tile.toRow(); i += packetSize)
+                for (int j = tile.fromCol(); j < tile.toCol(); j += packetSize)
+                    castPacket(tracer, nX, nY, j, i, Math.min(j + packetSize, tile.toCol()),
+                            Math.min(i + packetSize, tile.toRow()));
+        else
+            for (int i = tile.fromRow(); i < tile.toRow(); ++i)
+                for (int j = tile.fromCol(); j < tile.toCol(); ++j)
+                    // cast ray through pixel (and color it – inside castRay)
+                    castRay(tracer, nX, nY, j, i, antialiasingLevel);
+    }
 
+    /**
+     * Casts the rays through the centers of a block of pixels as one packet, and writes the resulting colors
+     * to the image. The rays of neighboring pixels are coherent, so the tracer shares the work between them.
+     * @param tracer  The tracer of the rendering.
+     * @param nX      Number of pixels in width.
+     * @param nY      Number of pixels in height.
+     * @param fromCol The first column of the block (included).
+     * @param fromRow The first row of the block (included).
+     * @param toCol   The last column of the block (excluded).
+     * @param toRow   The last row of the block (excluded).
+     */
+    private void castPacket(RayTracerBase tracer, int nX, int nY, int fromCol, int fromRow, int toCol, int toRow) {
+        ViewPlane plane = viewPlane(nX, nY);
+        int columns = toCol - fromCol;
+        Ray[] rays = new Ray[columns * (toRow - fromRow)];
+        for (int i = fromRow; i < toRow; ++i)
+            for (int j = fromCol; j < toCol; ++j)
+                rays[(i - fromRow) * columns + j - fromCol] = plane.constructRay(j, i, 0, 0);
+        Color[] colors = tracer.traceRays(rays);
+        for (int i = fromRow; i < toRow; ++i)
+            for (int j = fromCol; j < toCol; ++j)
+                imageWriter.writePixel(j, i, colors[(i - fromRow) * columns + j - fromCol]);
+    }
 
+    /**
+     * Adds samples to the pixels of a tile in an accumulation buffer, as planned for the pass. The samples
+     * continue the points of the sampler from the samples the pixels already have.
+     * @param tracer       The tracer of the rendering.
+     * @param buffer       The accumulation buffer.
+     * @param pixelManager The pixel manager of the pass - cancelled when the deadline passes.
+     * @param nX           Number of pixels in width.
+     * @param nY           Number of pixels in height.
+     * @param tile         The tile.
+     * @param pass         The number of the pass.
+     * @param plan         The plan of the samples.
+     * @param deadline     The time (of {@link System#nanoTime()}) to stop at.
+     */
+    private void samplePixels(RayTracerBase tracer, AccumulationBuffer buffer, PixelManager pixelManager, int nX, int nY,
+                              PixelManager.Tile tile, int pass, SamplingPlan plan, long deadline) {
+        ViewPlane plane = viewPlane(nX, nY);
+        double[] points = new double[0];
+        for (int i = tile.fromRow(); i < tile.toRow(); ++i) {
+            if (deadline != Long.MAX_VALUE && System.nanoTime() >= deadline) {
+                pixelManager.cancel();
+                return;
+            }
+            for (int j = tile.fromCol(); j < tile.toCol(); ++j) {
+                int samples = plan.samples(buffer, pass, j, i);
+                if (points.length < 2 * samples)
+                    points = new double[2 * samples];
+                sampler.sample(j, i, buffer.getCount(j, i), samples, points);
+                for (int k = 0; k < samples; ++k)
+                    buffer.add(j, i, tracer.traceRay(plane.constructRay(j, i,
+                            (points[2 * k] - 0.5) * plane.rX, (0.5 - points[2 * k + 1]) * plane.rY)));
+            }
+        }
+    }
+
+    /**
+     * The samples of the passes of a progressive rendering
+     */
+    private interface SamplingPlan {
+        /**
+         * Calculates the amount of samples to add to a pixel in a pass
+         * @param buffer The accumulation buffer, with the samples of the previous passes.
+         * @param pass   The number of the pass.
+         * @param j      The column of the pixel.
+         * @param i      The row of the pixel.
+         * @return The amount of samples, 0 to skip the pixel.
+         */
+        int samples(AccumulationBuffer buffer, int pass, int j, int i);
 
+        /**
+         * Checks whether another pass is needed
+         * @param buffer The accumulation buffer, with the samples of the passes done.
+         * @param done   The amount of passes done.
+         * @return True to render another pass.
+         */
+        boolean hasNext(AccumulationBuffer buffer, int done);
+    }
 
+    /**
+     * Fork/join task rendering a range of tiles. The range is split in halves down to single tiles,
+     * so threads that are done steal the remaining halves from busy ones, and expensive areas
+     * of the image (e.g. refractive objects) are shared by several threads.
+     */
+    private class TileTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        // the tasks are never serialized - they live only during a rendering
+        private final transient PixelManager pixelManager;
+        private final transient Consumer<PixelManager.Tile> work;
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructs a task for a range of tiles.
+         * @param pixelManager The pixel manager.
+         * @param work         The rendering of a tile.
+         * @param from         The number of the first tile (included).
+         * @param to           The number of the last tile (excluded).
+         */
+        TileTask(PixelManager pixelManager, Consumer<PixelManager.Tile> work, int from, int to) {
+            this.pixelManager = pixelManager;
+            this.work = work;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1)
+                renderTile(pixelManager, work, pixelManager.getTile(from));
+            else if (to - from > 1 && !pixelManager.isCancelled()) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TileTask(pixelManager, work, from, middle),
+                        new TileTask(pixelManager, work, middle, to));
+            }
+        }
+    }
 
         /**
      * Casts a num of rays through a pixel and writes the resulting color to the image.
+     * @param tracer The tracer of the rendering.
      * @param nX Number of pixels in width.
      * @param nY Number of pixels in height.
      * @param column The column index of the pixel.
      * @param row The row index of the pixel.
      */
-    private void castRay(int nX, int nY, int column, int row, int numRays) {
-        Color color = Color.BLACK;
+    private void castRay(RayTracerBase tracer, int nX, int nY, int column, int row, int numRays) {
+        Color color;
         if (numRays == 1) {
             // Trace a single ray
             Ray ray = constructRay(nX, nY, column, row);
-            color = rayTracer.traceRay(ray);
+            color = tracer.traceRay(ray);
         } else {
-            boolean colorsDifferernt = false;
-            if(adaptive){
             // Trace multiple rays
-            List<Ray> rays = constructRays(nX, nY, column, row, 5);
-            if (!rays.isEmpty()) {
-                // Handle empty rays list, if applicable
-                Color firstColor = rayTracer.traceRay(rays.get(0));
-                // Check if all rays produce the same color
-                for (Ray ray : rays) {
-                    Color currentColor = rayTracer.traceRay(ray);
-                    if (!currentColor.equals(firstColor)) {
-                        colorsDifferernt = true;
-                        break;
-                    }
-                }
-                if (colorsDifferernt) {
-                    // If the colors are different, construct more rays
-                     rays = constructRays(nX, nY, column, row, numRays);
-                     color = AvrageColor(rays, color);
-                } else {
-                    color = firstColor;
-                }
+            List<Ray> rays = constructRays(nX, nY, column, row, numRays);
+            color = AvrageColor(tracer, rays, Color.BLACK);
+        }
+
+        // Write the computed color to the image
+        imageWriter.writePixel(column, row, color);
+    }
+
+    /**
+     * Adaptive supersampling of a tile. A pixel (and recursively each of its quarters) is sampled at its corners,
+     * and is divided into quarters only if the colors of the corners differ - so a flat area costs about one ray
+     * per pixel, and only the edges get the rays of the deeper levels.<br/>
+     * Each sample is traced once - the corners of the pixels and the samples on their edges are shared
+     * with the neighboring pixels of the tile (only the samples on the borders of the tiles are traced twice,
+     * keeping the memory per tile), and the samples inside a pixel are kept on a grid reused by all the pixels
+     * of the tile, so the corners of a quarter are shared with the neighboring quarters.
+     */
+    private class AdaptiveTile {
+        private final RayTracerBase tracer;
+        private final ViewPlane plane;
+        private final PixelManager.Tile tile;
+        /** The colors of the corners of the pixels of the tile, row by row (null before they are traced) */
+        private final Color[] corners;
+        /** The amount of corners in a row of the tile */
+        private final int stride;
+        /** The amount of the smallest cells along the side of a pixel */
+        private final int size;
+        /**
+         * The samples on the vertical edges of the pixels, by the row of the pixel and the column of the edge,
+         * each indexed by the grid row of the sample and allocated when the edge is first divided
+         */
+        private final Color[][] verticalEdges;
+        /**
+         * The samples on the horizontal edges of the pixels, by the row of the edge and the column of the pixel,
+         * each indexed by the grid column of the sample and allocated when the edge is first divided
+         */
+        private final Color[][] horizontalEdges;
+        /**
+         * The samples inside the current pixel on a grid of (size + 1) x (size + 1) points,
+         * allocated when the first pixel is divided
+         */
+        private Color[] grid;
+        /** The indices of the points of the grid traced for the current pixel, to clear them after it */
+        private int[] traced;
+        /** The amount of the points of the grid traced for the current pixel */
+        private int tracedCount;
+        /** The column index of the current pixel */
+        private int column;
+        /** The row index of the current pixel */
+        private int row;
+
+        /**
+         * Prepares the adaptive supersampling of a tile.
+         * @param tracer The tracer of the rendering.
+         * @param plane  The divided view plane.
+         * @param tile   The tile.
+         */
+        AdaptiveTile(RayTracerBase tracer, ViewPlane plane, PixelManager.Tile tile) {
+            this.tracer = tracer;
+            this.plane = plane;
+            this.tile = tile;
+            int columns = tile.toCol() - tile.fromCol();
+            int rows = tile.toRow() - tile.fromRow();
+            stride = columns + 1;
+            corners = new Color[stride * (rows + 1)];
+            verticalEdges = new Color[stride * rows][];
+            horizontalEdges = new Color[columns * (rows + 1)][];
+            size = 1 << adaptiveMaxDepth;
+        }
+
+        /**
+         * Calculates the color of a pixel of the tile.
+         * @param column The column index of the pixel.
+         * @param row    The row index of the pixel.
+         * @return The color of the pixel.
+         */
+        Color pixelColor(int column, int row) {
+            this.column = column;
+            this.row = row;
+            Color color = cellColor(0, 0, size);
+            for (int k = 0; k < tracedCount; ++k)
+                grid[traced[k]] = null;
+            tracedCount = 0;
+            return color;
+        }
+
+        /**
+         * Gets the color of a corner of a pixel, tracing it on first use.
+         * @param column The column of the corner - the pixel to its right, or the column after the last.
+         * @param row    The row of the corner - the pixel below it, or the row after the last.
+         * @return The color of the corner.
+         */
+        private Color corner(int column, int row) {
+            int index = (row - tile.fromRow()) * stride + column - tile.fromCol();
+            Color color = corners[index];
+            if (color == null) {
+                // the corners after the last column or row are reached from the last pixel
+                int j = Math.min(column, plane.nX - 1);
+                int i = Math.min(row, plane.nY - 1);
+                color = tracer.traceRay(plane.constructRay(j, i,
+                        (column - j - 0.5) * plane.rX, (0.5 - (row - i)) * plane.rY));
+                corners[index] = color;
             }
-            } else{
-                List<Ray> rays = constructRays(nX, nY, column, row, numRays);
-                color= AvrageColor(rays, color);
+            return color;
+        }
 
-        }}
+        /**
+         * Calculates the color of a square cell of the current pixel, dividing it while its corners differ.
+         * @param x    The grid column of the top left corner of the cell.
+         * @param y    The grid row of the top left corner of the cell.
+         * @param step The size of the cell in grid steps.
+         * @return The color of the cell.
+         */
+        private Color cellColor(int x, int y, int step) {
+            Color c00 = sample(x, y);
+            Color c10 = sample(x + step, y);
+            Color c01 = sample(x, y + step);
+            Color c11 = sample(x + step, y + step);
+            if (step == 1 || c00.similar(c10, adaptiveThreshold) && c00.similar(c01, adaptiveThreshold)
+                    && c00.similar(c11, adaptiveThreshold))
+                return c00.add(c10, c01, c11).reduce(4);
+
+            int half = step / 2;
+            return cellColor(x, y, half)
+                    .add(cellColor(x + half, y, half),
+                            cellColor(x, y + half, half),
+                            cellColor(x + half, y + half, half))
+                    .reduce(4);
+        }
 
-        // Write the computed color to the image and mark the pixel as done
-        imageWriter.writePixel(column, row, color);
-        pixelManager.pixelDone();
+        /**
+         * Gets the color of a point of the grid of the current pixel, tracing it on first use.
+         * @param x The grid column of the point.
+         * @param y The grid row of the point.
+         * @return The color of the point.
+         */
+        private Color sample(int x, int y) {
+            boolean onColumn = x == 0 || x == size;
+            boolean onRow = y == 0 || y == size;
+            if (onColumn && onRow)
+                return corner(column + x / size, row + y / size);
+            if (onColumn) {
+                int index = (row - tile.fromRow()) * stride + column + x / size - tile.fromCol();
+                if (verticalEdges[index] == null)
+                    verticalEdges[index] = new Color[size + 1];
+                return sample(verticalEdges[index], y, x, y);
+            }
+            if (onRow) {
+                int index = (row + y / size - tile.fromRow()) * (stride - 1) + column - tile.fromCol();
+                if (horizontalEdges[index] == null)
+                    horizontalEdges[index] = new Color[size + 1];
+                return sample(horizontalEdges[index], x, x, y);
+            }
+            if (grid == null) {
+                grid = new Color[(size + 1) * (size + 1)];
+                traced = new int[(size - 1) * (size - 1)];
+            }
+            int index = y * (size + 1) + x;
+            if (grid[index] == null)
+                traced[tracedCount++] = index;
+            return sample(grid, index, x, y);
+        }
+
+        /**
+         * Gets a sample of the current pixel from an array, tracing it on first use.
+         * @param samples The array of the samples.
+         * @param index   The index of the sample in the array.
+         * @param x       The grid column of the point.
+         * @param y       The grid row of the point.
+         * @return The color of the point.
+         */
+        private Color sample(Color[] samples, int index, int x, int y) {
+            Color color = samples[index];
+            if (color == null) {
+                color = tracer.traceRay(plane.constructRay(column, row,
+                        ((double) x / size - 0.5) * plane.rX, (0.5 - (double) y / size) * plane.rY));
+                samples[index] = color;
+            }
+            return color;
+        }
     }
 
 
 
         /**
      * Calculates the average color from a list of rays.
+     * @param tracer The tracer of the rendering.
      * @param rays The list of rays to calculate the average color from.
      * @param color The initial color to add to.
      * @return The average color from the list of rays.
      */
-    private Color AvrageColor(List<Ray> rays, Color color) {
+    private Color AvrageColor(RayTracerBase tracer, List<Ray> rays, Color color) {
         if(rays.isEmpty())
             return Color.BLACK;
-        for (Ray ray : rays) {
-            color = color.add(rayTracer.traceRay(ray));
-        }
+        if (packetSize > 1) {
+            // the rays of a pixel are coherent - they are traced as one packet
+            for (Color rayColor : tracer.traceRays(rays.toArray(new Ray[0])))
+                color = color.add(rayColor);
+        } else
+            for (Ray ray : rays) {
+                color = color.add(tracer.traceRay(ray));
+            }
         color = color.reduce(rays.size());
         return color;
     }
@@ -293,6 +1000,7 @@ public class Camera implements Cloneable {
         this.vTo = direction;
         this.vRight = right;
         this.vUp = newUp;
+        viewPlane = null;
 
         return this;
     }
@@ -399,16 +1107,64 @@ public class Camera implements Cloneable {
         }
 
         /**
-         * Sets the camera's number of threads.
+         * Sets the camera's number of threads. The threads share the tiles of the image by work stealing,
+         * and the camera can render any number of images with the same setting.
          *
-         * @param threadsCount The number of threads
+         * @param threadsCount The number of threads - 0 to render in the calling thread,
+         *                     -1 (the default) to render on all the available cores
          * @return The builder
+         * @throws IllegalArgumentException if the number is smaller than -1
          */
         public Builder setThreadsCount(int threadsCount) {
+            if (threadsCount < -1)
+                throw new IllegalArgumentException("ERROR:threads count must be -1 or more");
             camera.threadsCount = threadsCount;
             return this;
         }
 
+        /**
+         * Sets an executor to render on instead of the camera's own threads (the threads count is ignored).
+         * The camera doesn't shut the executor down, so it can be shared by several cameras and frames.
+         *
+         * @param executor The executor, or null to render on the camera's own threads
+         * @return The builder
+         */
+        public Builder setExecutor(ExecutorService executor) {
+            camera.executor = executor;
+            return this;
+        }
+
+        /**
+         * Sets the size of the square tiles the image is divided into for rendering.
+         * The threads take the tiles one at a time.
+         *
+         * @param tileSize The width and height of a tile in pixels (e.g. 16 or 32)
+         * @return The builder
+         * @throws IllegalArgumentException if the size is not positive
+         */
+        public Builder setTileSize(int tileSize) {
+            if (tileSize <= 0)
+                throw new IllegalArgumentException("ERROR:tile size must be positive");
+            camera.tileSize = tileSize;
+            return this;
+        }
+
+        /**
+         * Sets the size of the square blocks of pixels whose rays are traced together as a packet,
+         * sharing the traversal of the scene. Applies to rendering with a single ray per pixel - with
+         * antialiasing, the rays of each pixel are a packet.
+         *
+         * @param packetSize The width and height of a block in pixels - 8 by default, 1 to trace each ray alone
+         * @return The builder
+         * @throws IllegalArgumentException if the size is not positive
+         */
+        public Builder setPacketSize(int packetSize) {
+            if (packetSize <= 0)
+                throw new IllegalArgumentException("ERROR:packet size must be positive");
+            camera.packetSize = packetSize;
+            return this;
+        }
+
         /**
          * Sets the camera's antialiasing level.
          *
@@ -421,7 +1177,23 @@ public class Camera implements Cloneable {
         }
 
         /**
-         * Sets the camera's adaptive flag.
+         * Sets the pattern of the points the rays of a pixel pass through when antialiasing.
+         *
+         * @param sampler The sampler - {@link Sampler#RANDOM} by default
+         * @return The builder
+         * @throws IllegalArgumentException if the sampler is null
+         */
+        public Builder setSampler(Sampler sampler) {
+            if (sampler == null)
+                throw new IllegalArgumentException("ERROR:sampler must not be null");
+            camera.sampler = sampler;
+            return this;
+        }
+
+        /**
+         * Sets the camera's adaptive flag. With antialiasing (level above 1), an adaptive camera samples
+         * the corners of the pixels and divides a pixel into quarters, recursively, only where the colors
+         * of the corners differ - see {@link #setAdaptiveMaxDepth(int)} and {@link #setAdaptiveThreshold(double)}.
          *
          * @param adaptive The adaptive flag
          * @return The builder
@@ -432,6 +1204,36 @@ public class Camera implements Cloneable {
         }
 
 
+        /**
+         * Sets how many times a pixel may be divided into quarters by adaptive supersampling.
+         * A pixel gets at most (2^depth + 1)^2 rays, shared with its neighbors at its sides.
+         *
+         * @param maxDepth The maximal depth of division - 3 by default, 0 to average the corners only
+         * @return The builder
+         * @throws IllegalArgumentException if the depth is negative or too big
+         */
+        public Builder setAdaptiveMaxDepth(int maxDepth) {
+            if (maxDepth < 0 || maxDepth > 8)
+                throw new IllegalArgumentException("ERROR:adaptive depth must be between 0 and 8");
+            camera.adaptiveMaxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * Sets how much the colors of the corners of a cell may differ without dividing the cell,
+         * by adaptive supersampling.
+         *
+         * @param threshold The maximal difference of a color component (the printed range is 0-255) - 8 by default
+         * @return The builder
+         * @throws IllegalArgumentException if the threshold is negative
+         */
+        public Builder setAdaptiveThreshold(double threshold) {
+            if (threshold < 0)
+                throw new IllegalArgumentException("ERROR:adaptive threshold must not be negative");
+            camera.adaptiveThreshold = threshold;
+            return this;
+        }
+
         /**
          * Sets the camera's look at point.
          *
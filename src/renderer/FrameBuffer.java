@@ -0,0 +1,279 @@
+package renderer;
+
+import primitives.Color;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * High dynamic range frame buffer - the red, green and blue of each pixel as floats, without the limit of 255.
+ * The pixels are kept row by row in flat primitive buffers, on the heap or off it (direct memory, not counted
+ * in the heap and not moved by the garbage collector, or a memory mapped file), in blocks of whole rows,
+ * so huge images are supported.
+ * Colors are stored rounded down to floats, so quantizing a stored pixel gives exactly the same value
+ * as quantizing its color.<br/>
+ * Different threads may write different pixels at the same time. Frame buffers of the same size can be merged
+ * (e.g. the passes or the machines of a distributed rendering) by adding them and scaling the sum.
+ */
+public class FrameBuffer {
+    /**
+     * Maximal amount of floats of a block - the size of a direct buffer is limited to 2GB
+     */
+    private static final int BLOCK_FLOATS = 1 << 28;
+
+    /**
+     * Horizontal resolution of the image - number of pixels in row
+     */
+    private final int nX;
+    /**
+     * Vertical resolution of the image - number of pixels in column
+     */
+    private final int nY;
+    /**
+     * Amount of rows in a block
+     */
+    private final int blockRows;
+    /**
+     * The blocks of rows - red, green and blue of each pixel
+     */
+    private final FloatBuffer[] blocks;
+
+    /**
+     * Constructs a black frame buffer on the heap
+     *
+     * @param nX amount of pixels by width
+     * @param nY amount of pixels by height
+     */
+    public FrameBuffer(int nX, int nY) {
+        this(nX, nY, false);
+    }
+
+    /**
+     * Constructs a black frame buffer
+     *
+     * @param nX      amount of pixels by width
+     * @param nY      amount of pixels by height
+     * @param offHeap true to keep the pixels in direct memory, off the heap
+     */
+    public FrameBuffer(int nX, int nY, boolean offHeap) {
+        this(nX, nY, (offset, floats) -> offHeap
+                ? ByteBuffer.allocateDirect(4 * floats).order(ByteOrder.nativeOrder()).asFloatBuffer()
+                : FloatBuffer.wrap(new float[floats]));
+    }
+
+    /**
+     * Constructs a black frame buffer in blocks of rows
+     *
+     * @param nX        amount of pixels by width
+     * @param nY        amount of pixels by height
+     * @param allocator the allocation of the blocks
+     */
+    private FrameBuffer(int nX, int nY, Allocator allocator) {
+        if (nX <= 0 || nY <= 0)
+            throw new IllegalArgumentException("ERROR:frame buffer must have pixels");
+        if (3L * nX > BLOCK_FLOATS)
+            throw new IllegalArgumentException("ERROR:frame buffer row is too long");
+        this.nX = nX;
+        this.nY = nY;
+        blockRows = Math.min(nY, BLOCK_FLOATS / (3 * nX));
+        blocks = new FloatBuffer[(nY + blockRows - 1) / blockRows];
+        for (int b = 0; b < blocks.length; ++b)
+            blocks[b] = allocator.allocate(4L * 3 * nX * b * blockRows, 3 * nX * Math.min(blockRows, nY - b * blockRows));
+    }
+
+    /**
+     * Constructs a black frame buffer in a temporary file mapped to memory - the pixels are paged in and out
+     * by the operating system, so the buffer takes neither heap nor (much) physical memory. The file is deleted
+     * at once, and its space is freed when the buffer is collected.
+     *
+     * @param nX amount of pixels by width
+     * @param nY amount of pixels by height
+     * @return the frame buffer
+     * @throws IOException if the temporary file can't be created or mapped
+     */
+    static FrameBuffer mapped(int nX, int nY) throws IOException {
+        Path file = Files.createTempFile("frame", ".bin");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE)) {
+            return new FrameBuffer(nX, nY, (offset, floats) -> {
+                try {
+                    return channel.map(FileChannel.MapMode.READ_WRITE, offset, 4L * floats)
+                            .order(ByteOrder.nativeOrder()).asFloatBuffer();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Allocation of the blocks of a frame buffer
+     */
+    @FunctionalInterface
+    private interface Allocator {
+        /**
+         * Allocates a block of zeros
+         *
+         * @param offset the offset of the block in the frame buffer, in bytes
+         * @param floats the size of the block
+         * @return the block
+         */
+        FloatBuffer allocate(long offset, int floats);
+    }
+
+    /**
+     * View Plane X axis resolution
+     *
+     * @return the amount of horizontal pixels
+     */
+    public int getNx() {
+        return nX;
+    }
+
+    /**
+     * View Plane Y axis resolution
+     *
+     * @return the amount of vertical pixels
+     */
+    public int getNy() {
+        return nY;
+    }
+
+    /**
+     * Sets the color of a pixel
+     *
+     * @param x     X axis index of the pixel
+     * @param y     Y axis index of the pixel
+     * @param color the color
+     */
+    public void set(int x, int y, Color color) {
+        set(x, y, color.getRed(), color.getGreen(), color.getBlue());
+    }
+
+    /**
+     * Sets the color of a pixel by its components
+     *
+     * @param x     X axis index of the pixel
+     * @param y     Y axis index of the pixel
+     * @param red   the red component
+     * @param green the green component
+     * @param blue  the blue component
+     */
+    public void set(int x, int y, double red, double green, double blue) {
+        FloatBuffer block = blocks[y / blockRows];
+        int index = 3 * ((y % blockRows) * nX + x);
+        block.put(index, down(red));
+        block.put(index + 1, down(green));
+        block.put(index + 2, down(blue));
+    }
+
+    /**
+     * Gets the color of a pixel
+     *
+     * @param x X axis index of the pixel
+     * @param y Y axis index of the pixel
+     * @return the color
+     */
+    public Color get(int x, int y) {
+        FloatBuffer block = blocks[y / blockRows];
+        int index = 3 * ((y % blockRows) * nX + x);
+        return new Color(block.get(index), block.get(index + 1), block.get(index + 2));
+    }
+
+    /**
+     * Copies a row of pixels - red, green and blue of each pixel
+     *
+     * @param y   Y axis index of the row
+     * @param row the array to copy to, of at least 3 * nX floats
+     */
+    public void getRow(int y, float[] row) {
+        blocks[y / blockRows].get(3 * (y % blockRows) * nX, row, 0, 3 * nX);
+    }
+
+    /**
+     * Adds the pixels of another frame buffer of the same size to the pixels of this one
+     *
+     * @param other the other frame buffer
+     * @return this frame buffer
+     * @throws IllegalArgumentException if the sizes differ
+     */
+    public FrameBuffer add(FrameBuffer other) {
+        if (other.nX != nX || other.nY != nY)
+            throw new IllegalArgumentException("ERROR:frame buffers of different sizes");
+        float[] row = new float[3 * nX];
+        float[] otherRow = new float[3 * nX];
+        for (int y = 0; y < nY; ++y) {
+            getRow(y, row);
+            other.getRow(y, otherRow);
+            for (int k = 0; k < row.length; ++k)
+                row[k] += otherRow[k];
+            blocks[y / blockRows].put(3 * (y % blockRows) * nX, row, 0, row.length);
+        }
+        return this;
+    }
+
+    /**
+     * Scales the pixels - e.g. by 1 / n to average the sum of n frame buffers
+     *
+     * @param k scale factor
+     * @return this frame buffer
+     */
+    public FrameBuffer scale(double k) {
+        if (k < 0) throw new IllegalArgumentException("Can't scale a color by a negative number");
+        float factor = (float) k;
+        float[] row = new float[3 * nX];
+        for (int y = 0; y < nY; ++y) {
+            getRow(y, row);
+            for (int i = 0; i < row.length; ++i)
+                row[i] *= factor;
+            blocks[y / blockRows].put(3 * (y % blockRows) * nX, row, 0, row.length);
+        }
+        return this;
+    }
+
+    /**
+     * Tone maps and quantizes a row of pixels to packed 8 bit RGB
+     *
+     * @param y       Y axis index of the row
+     * @param mapper  the tone mapping
+     * @param scratch an array of at least 3 * nX floats for the row
+     * @param rgb     the array to write the packed pixels to
+     * @param offset  the index of the first pixel of the row in the array
+     */
+    public void quantizeRow(int y, ToneMapper mapper, float[] scratch, int[] rgb, int offset) {
+        getRow(y, scratch);
+        mapper.map(scratch, 3 * nX);
+        for (int x = 0, k = 0; x < nX; ++x, k += 3)
+            rgb[offset + x] = quantize(scratch[k]) << 16 | quantize(scratch[k + 1]) << 8 | quantize(scratch[k + 2]);
+    }
+
+    /**
+     * Quantizes a display value to 8 bits, truncating it like {@link Color#getColor()}
+     *
+     * @param value the value
+     * @return the value in 0..255
+     */
+    private static int quantize(float value) {
+        return (int) Math.max(0f, Math.min(value, 255f));
+    }
+
+    /**
+     * Converts a component to a float, rounding it down, so its integer part is kept
+     *
+     * @param value the component
+     * @return the float
+     */
+    private static float down(double value) {
+        float result = (float) value;
+        return result > value ? Math.nextDown(result) : result;
+    }
+}
@@ -0,0 +1,273 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encoder of an image file, written through a file channel a band of rows at a time, from the top row down -
+ * so the rows can be encoded as soon as they are rendered, without keeping the encoded image in memory.
+ */
+abstract class ImageEncoder {
+    /**
+     * Size of the output buffers of the encoders
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The file
+     */
+    protected final FileChannel channel;
+    /**
+     * Horizontal resolution of the image - number of pixels in row
+     */
+    protected final int nX;
+    /**
+     * Vertical resolution of the image - number of pixels in column
+     */
+    protected final int nY;
+
+    /**
+     * Constructs an encoder
+     *
+     * @param channel the file
+     * @param nX      amount of pixels by width
+     * @param nY      amount of pixels by height
+     */
+    protected ImageEncoder(FileChannel channel, int nX, int nY) {
+        this.channel = channel;
+        this.nX = nX;
+        this.nY = nY;
+    }
+
+    /**
+     * Encodes the next rows of the image
+     *
+     * @param frame   the pixels of the image
+     * @param mapper  the tone mapping
+     * @param fromRow the first row (included) - the row after the rows encoded so far
+     * @param toRow   the last row (excluded)
+     * @throws IOException if the file can't be written
+     */
+    abstract void writeRows(FrameBuffer frame, ToneMapper mapper, int fromRow, int toRow) throws IOException;
+
+    /**
+     * Completes the file after all the rows are encoded
+     *
+     * @throws IOException if the file can't be written
+     */
+    void finish() throws IOException {
+    }
+
+    /**
+     * Writes a whole buffer to the file, at its position
+     *
+     * @param buffer the buffer, flipped for reading
+     * @throws IOException if the file can't be written
+     */
+    protected void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * Writes the header of a Netpbm file
+     *
+     * @param header the header
+     * @throws IOException if the file can't be written
+     */
+    protected void writeHeader(String header) throws IOException {
+        write(ByteBuffer.wrap(header.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Binary PPM - a text header and the bytes of the components, row by row
+     */
+    static class Ppm extends ImageEncoder {
+        private final ByteBuffer buffer;
+        private final float[] row;
+        private final int[] rgb;
+
+        /**
+         * Starts encoding a PPM file
+         *
+         * @param channel the file
+         * @param nX      amount of pixels by width
+         * @param nY      amount of pixels by height
+         * @throws IOException if the file can't be written
+         */
+        Ppm(FileChannel channel, int nX, int nY) throws IOException {
+            super(channel, nX, nY);
+            buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, 3 * nX));
+            row = new float[3 * nX];
+            rgb = new int[nX];
+            writeHeader("P6\n" + nX + " " + nY + "\n255\n");
+        }
+
+        @Override
+        void writeRows(FrameBuffer frame, ToneMapper mapper, int fromRow, int toRow) throws IOException {
+            for (int y = fromRow; y < toRow; ++y) {
+                frame.quantizeRow(y, mapper, row, rgb, 0);
+                if (buffer.remaining() < 3 * nX) {
+                    write(buffer.flip());
+                    buffer.clear();
+                }
+                for (int pixel : rgb)
+                    buffer.put((byte) (pixel >> 16)).put((byte) (pixel >> 8)).put((byte) pixel);
+            }
+            write(buffer.flip());
+            buffer.clear();
+        }
+    }
+
+    /**
+     * PFM - a text header and the little endian floats of the components, row by row from the bottom up.
+     * The components are divided by 255, so the white of the display is 1. The rows are written to their places
+     * in the file, which is sized in advance.
+     */
+    static class Pfm extends ImageEncoder {
+        private final long dataOffset;
+        private final ByteBuffer buffer;
+        private final float[] row;
+
+        /**
+         * Starts encoding a PFM file
+         *
+         * @param channel the file
+         * @param nX      amount of pixels by width
+         * @param nY      amount of pixels by height
+         * @throws IOException if the file can't be written
+         */
+        Pfm(FileChannel channel, int nX, int nY) throws IOException {
+            super(channel, nX, nY);
+            buffer = ByteBuffer.allocate(12 * nX).order(ByteOrder.LITTLE_ENDIAN);
+            row = new float[3 * nX];
+            writeHeader("PF\n" + nX + " " + nY + "\n-1.0\n");
+            dataOffset = channel.position();
+        }
+
+        @Override
+        void writeRows(FrameBuffer frame, ToneMapper mapper, int fromRow, int toRow) throws IOException {
+            for (int y = fromRow; y < toRow; ++y) {
+                frame.getRow(y, row);
+                buffer.clear();
+                for (float value : row)
+                    buffer.putFloat(value / 255f);
+                buffer.flip();
+                long position = dataOffset + 12L * nX * (nY - 1 - y);
+                while (buffer.hasRemaining())
+                    position += channel.write(buffer, position);
+            }
+        }
+    }
+
+    /**
+     * PNG - 8 bit RGB, each row filtered by the difference from the pixel on its left and deflated
+     * into IDAT chunks as the compressed data fills a buffer
+     */
+    static class Png extends ImageEncoder {
+        private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+        /**
+         * The Sub filter of the rows
+         */
+        private static final byte FILTER_SUB = 1;
+
+        private final Deflater deflater = new Deflater();
+        private final byte[] compressed = new byte[BUFFER_SIZE];
+        /**
+         * The amount of compressed bytes in the buffer
+         */
+        private int used = 0;
+        private final byte[] filtered;
+        private final float[] row;
+        private final int[] rgb;
+        private final CRC32 crc = new CRC32();
+
+        /**
+         * Starts encoding a PNG file
+         *
+         * @param channel the file
+         * @param nX      amount of pixels by width
+         * @param nY      amount of pixels by height
+         * @throws IOException if the file can't be written
+         */
+        Png(FileChannel channel, int nX, int nY) throws IOException {
+            super(channel, nX, nY);
+            filtered = new byte[1 + 3 * nX];
+            row = new float[3 * nX];
+            rgb = new int[nX];
+            write(ByteBuffer.wrap(SIGNATURE));
+            ByteBuffer header = ByteBuffer.allocate(13)
+                    .putInt(nX).putInt(nY)
+                    .put((byte) 8) // bits per component
+                    .put((byte) 2) // RGB
+                    .put((byte) 0).put((byte) 0).put((byte) 0); // deflate, adaptive filters, no interlace
+            writeChunk("IHDR", header.array(), 13);
+        }
+
+        @Override
+        void writeRows(FrameBuffer frame, ToneMapper mapper, int fromRow, int toRow) throws IOException {
+            filtered[0] = FILTER_SUB;
+            for (int y = fromRow; y < toRow; ++y) {
+                frame.quantizeRow(y, mapper, row, rgb, 0);
+                int left = 0;
+                for (int x = 0, k = 1; x < nX; ++x, k += 3) {
+                    int pixel = rgb[x];
+                    filtered[k] = (byte) ((pixel >> 16) - (left >> 16));
+                    filtered[k + 1] = (byte) ((pixel >> 8) - (left >> 8));
+                    filtered[k + 2] = (byte) (pixel - left);
+                    left = pixel;
+                }
+                deflater.setInput(filtered);
+                while (!deflater.needsInput())
+                    deflate();
+            }
+        }
+
+        @Override
+        void finish() throws IOException {
+            deflater.finish();
+            while (!deflater.finished())
+                deflate();
+            deflater.end();
+            if (used > 0)
+                writeChunk("IDAT", compressed, used);
+            writeChunk("IEND", compressed, 0);
+        }
+
+        /**
+         * Deflates the pending input into the buffer, and writes the buffer as a chunk when it is full
+         *
+         * @throws IOException if the file can't be written
+         */
+        private void deflate() throws IOException {
+            used += deflater.deflate(compressed, used, compressed.length - used);
+            if (used == compressed.length) {
+                writeChunk("IDAT", compressed, used);
+                used = 0;
+            }
+        }
+
+        /**
+         * Writes a chunk - length, type, data and CRC
+         *
+         * @param type   the type
+         * @param data   the data
+         * @param length the length of the data
+         * @throws IOException if the file can't be written
+         */
+        private void writeChunk(String type, byte[] data, int length) throws IOException {
+            byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+            crc.reset();
+            crc.update(typeBytes);
+            crc.update(data, 0, length);
+            ByteBuffer chunk = ByteBuffer.allocate(12 + length);
+            chunk.putInt(length).put(typeBytes).put(data, 0, length).putInt((int) crc.getValue());
+            write(chunk.flip());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Formats of the image files
+ */
+public enum ImageFormat {
+    /**
+     * PNG - compressed, 8 bits per component after tone mapping
+     */
+    PNG("png"),
+    /**
+     * Binary PPM (P6) - not compressed, 8 bits per component after tone mapping
+     */
+    PPM("ppm"),
+    /**
+     * PFM - not compressed, a 32 bit float per component without tone mapping, 1 for 255 of the colors
+     */
+    PFM("pfm");
+
+    /**
+     * The extension of the files
+     */
+    private final String extension;
+
+    /**
+     * Constructs a format
+     *
+     * @param extension the extension of the files
+     */
+    ImageFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Gets the extension of the files of the format
+     *
+     * @return the extension, without the dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Starts encoding an image to an empty file
+     *
+     * @param channel the file
+     * @param nX      amount of pixels by width
+     * @param nY      amount of pixels by height
+     * @return the encoder
+     * @throws IOException if the file can't be written
+     */
+    ImageEncoder open(FileChannel channel, int nX, int nY) throws IOException {
+        return switch (this) {
+            case PNG -> new ImageEncoder.Png(channel, nX, nY);
+            case PPM -> new ImageEncoder.Ppm(channel, nX, nY);
+            case PFM -> new ImageEncoder.Pfm(channel, nX, nY);
+        };
+    }
+}
@@ -4,8 +4,11 @@ import primitives.Color;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.File;
+import java.awt.image.DataBufferInt;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,7 +25,7 @@ public class ImageWriter {
      * Directory path for the image file generation - relative to the user
      * directory
      */
-    private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
+    static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
     /**
      * Horizontal resolution of the image - number of pixels in row
      */
@@ -32,9 +35,17 @@ public class ImageWriter {
      */
     private int nY;
     /**
-     * Image generation buffer (the matrix of the pixels)
+     * Image generation buffer (the matrix of the pixels, without the limit of 255)
      */
-    private BufferedImage image;
+    private final FrameBuffer frame;
+    /**
+     * Tone mapping of the pixels when the image is produced
+     */
+    private ToneMapper toneMapper = ToneMapper.CLAMP;
+    /**
+     * Format of the image file
+     */
+    private ImageFormat format;
     /**
      * image file name, not including the file extension '.png'
      */
@@ -54,11 +65,37 @@ public class ImageWriter {
      * @param nY        amount of pixels by height
      */
     public ImageWriter(String imageName, int nX, int nY) {
-        this.imageName = imageName;
-        this.nX = nX;
-        this.nY = nY;
+        this(imageName, nX, nY, false);
+    }
 
-        image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+    /**
+     * Image Writer constructor accepting image name and View Plane parameters,
+     *
+     * @param imageName the name of png file
+     * @param nX        amount of pixels by Width
+     * @param nY        amount of pixels by height
+     * @param offHeap   true to keep the pixels off the heap
+     */
+    public ImageWriter(String imageName, int nX, int nY, boolean offHeap) {
+        this(imageName, new FrameBuffer(nX, nY, offHeap), ImageFormat.PNG);
+    }
+
+    /**
+     * Image Writer constructor accepting image name, the buffer of its pixels and the format of its file
+     *
+     * @param imageName the name of the image file
+     * @param frame     the buffer of the pixels
+     * @param format    the format of the image file
+     * @throws IllegalArgumentException if the format is null
+     */
+    ImageWriter(String imageName, FrameBuffer frame, ImageFormat format) {
+        if (format == null)
+            throw new IllegalArgumentException("ERROR:format can't be null");
+        this.imageName = imageName;
+        this.nX = frame.getNx();
+        this.nY = frame.getNy();
+        this.frame = frame;
+        this.format = format;
     }
 
     // ***************** Getters/Setters ********************** //
@@ -81,17 +118,87 @@ public class ImageWriter {
         return nX;
     }
 
+    /**
+     * Gets the pixels of the image, without the limit of 255
+     *
+     * @return the frame buffer
+     */
+    public FrameBuffer getFrameBuffer() {
+        return frame;
+    }
+
+    /**
+     * Gets the tone mapping of the pixels when the image is produced
+     *
+     * @return the tone mapping
+     */
+    public ToneMapper getToneMapper() {
+        return toneMapper;
+    }
+
+    /**
+     * Gets the format of the image file
+     *
+     * @return the format
+     */
+    public ImageFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Sets the format of the image file
+     *
+     * @param format the format
+     * @return the image writer
+     */
+    public ImageWriter setFormat(ImageFormat format) {
+        if (format == null)
+            throw new IllegalArgumentException("ERROR:format can't be null");
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * Gets the name of the image file
+     *
+     * @return the name, without the file extension
+     */
+    public String getImageName() {
+        return imageName;
+    }
+
+    /**
+     * Sets the tone mapping of the pixels when the image is produced
+     *
+     * @param toneMapper the tone mapping
+     * @return the image writer
+     */
+    public ImageWriter setToneMapper(ToneMapper toneMapper) {
+        if (toneMapper == null)
+            throw new IllegalArgumentException("ERROR:tone mapper can't be null");
+        this.toneMapper = toneMapper;
+        return this;
+    }
+
     // ***************** Operations ******************** //
 
     /**
-     * Function writeToImage produces unoptimized png file of the image according
-     * to
-     * pixel color matrix in the directory of the project
+     * Function writeToImage produces an image file (by default an unoptimized png file) according to
+     * pixel color matrix in the directory of the project. PNG files are encoded by ImageIO, and the PPM
+     * and PFM files are written straight from the frame buffer through a file channel.
      */
     public void writeToImage() {
+        Path path = Path.of(FOLDER_PATH, imageName + "." + format.getExtension());
         try {
-            File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-            ImageIO.write(image, "png", file);
+            if (format == ImageFormat.PNG)
+                ImageIO.write(toImage(), "png", path.toFile());
+            else
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    ImageEncoder encoder = format.open(channel, nX, nY);
+                    encoder.writeRows(frame, toneMapper, 0, nY);
+                    encoder.finish();
+                }
         } catch (IOException e) {
             logger.log(Level.SEVERE, "I/O error", e);
             throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
@@ -107,7 +214,21 @@ public class ImageWriter {
      * @param color  final color of the pixel
      */
     public void writePixel(int xIndex, int yIndex, Color color) {
-        image.setRGB(xIndex, yIndex, color.getColor().getRGB());
+        frame.set(xIndex, yIndex, color);
+    }
+
+    /**
+     * Tone maps and quantizes the pixels to an 8 bit image
+     *
+     * @return the image
+     */
+    public BufferedImage toImage() {
+        BufferedImage image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+        int[] rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        float[] row = new float[3 * nX];
+        for (int y = 0; y < nY; ++y)
+            frame.quantizeRow(y, toneMapper, row, rgb, y * nX);
+        return image;
     }
 
 }
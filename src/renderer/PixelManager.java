@@ -1,30 +1,50 @@
 package renderer;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 /** PixelManager is a helper class. It is used for multi-threading in the
  * renderer and
  * for follow up its progress.<br/>
- * A Camera uses one pixel manager object and several Pixel objects - one in
+ * The image is divided into square tiles, which the threads take one at a time
+ * from a shared atomic counter - so the threads meet once per tile instead of
+ * twice per pixel, and each thread works on a compact area of the image (and of
+ * the scene).<br/>
+ * A Camera uses one pixel manager object and several Tile objects - one in
  * each thread.
  * @author Dan Zilberstein */
 class PixelManager {
-    /** Immutable class for object containing allocated pixel (with its row and
-     * column numbers) */
-    record Pixel(int col, int row) {
+    /** Immutable class for object containing allocated tile of pixels - the
+     * columns and rows from the first ones (included) to the last ones (excluded) */
+    record Tile(int fromCol, int fromRow, int toCol, int toRow) {
+        /** Amount of pixels in the tile
+         * @return the amount of pixels */
+        int size() {
+            return (toCol - fromCol) * (toRow - fromRow);
+        }
     }
 
     /** Maximum rows of pixels */
     private int                 maxRows       = 0;
     /** Maximum columns of pixels */
     private int                 maxCols       = 0;
+    /** Width and height of a tile in pixels */
+    private int                 tileSize      = 0;
+    /** Amount of tiles in a row of tiles */
+    private int                 tileCols      = 0;
+    /** Total amount of tiles in the generated image */
+    private int                 totalTiles    = 0;
     /** Total amount of pixels in the generated image */
     private long                totalPixels   = 0l;
 
-    /** Currently processed row of pixels */
-    private volatile int        cRow          = 0;
-    /** Currently processed column of pixels */
-    private volatile int        cCol          = -1;
+    /** Next tile to be processed */
+    private final AtomicInteger nextTile      = new AtomicInteger();
     /** Amount of pixels that have been processed */
-    private volatile long       pixels        = 0l;
+    private final AtomicLong    pixels        = new AtomicLong();
+    /** Flag of a cancelled render - no more tiles are handed out */
+    private volatile boolean    cancelled     = false;
+    /** Listener to the progress of the render, null if there is none */
+    private RenderListener      listener      = null;
     /** Last printed progress update percentage */
     private volatile int        lastPrinted   = 0;
 
@@ -34,9 +54,6 @@ class PixelManager {
     private long                printInterval = 100l;
     /** Printing format */
     private static final String PRINT_FORMAT  = "%5.1f%%\r";
-    /** Mutual exclusion object for synchronizing next pixel allocation between
-     * threads */
-    private Object              mutexNext     = new Object();
     /** Mutual exclusion object for printing progress percentage in console window
      * by different threads */
     private Object              mutexPixels   = new Object();
@@ -44,51 +61,87 @@ class PixelManager {
     /** Initialize pixel manager data for multi-threading
      * @param maxRows  the amount of pixel rows
      * @param maxCols  the amount of pixel columns
+     * @param tileSize the width and height of a tile in pixels
      * @param interval print time interval in seconds, 0 if printing is not
      *                 required */
-    PixelManager(int maxRows, int maxCols, double interval) {
+    PixelManager(int maxRows, int maxCols, int tileSize, double interval) {
         this.maxRows  = maxRows;
         this.maxCols  = maxCols;
+        this.tileSize = tileSize;
+        tileCols      = (maxCols + tileSize - 1) / tileSize;
+        totalTiles    = tileCols * ((maxRows + tileSize - 1) / tileSize);
         totalPixels   = (long) maxRows * maxCols;
         printInterval = (int) (interval * 10);
         if (print = printInterval != 0) System.out.printf(PRINT_FORMAT, 0d);
     }
 
-    /** Function for thread-safe manipulating of main follow up Pixel object - this
-     * function is critical section for all the threads, and the pixel manager data
-     * is the shared data of this critical section.<br/>
-     * The function provides next available pixel number each call.
-     * @return true if next pixel is allocated, false if there are no more pixels */
-    Pixel nextPixel() {
-        synchronized (mutexNext) {
-            if (cRow == maxRows) return null;
+    /** Initialize pixel manager data for multi-threading, reporting the progress
+     * to a listener instead of printing it
+     * @param maxRows  the amount of pixel rows
+     * @param maxCols  the amount of pixel columns
+     * @param tileSize the width and height of a tile in pixels
+     * @param listener the listener to the progress, null if there is none */
+    PixelManager(int maxRows, int maxCols, int tileSize, RenderListener listener) {
+        this(maxRows, maxCols, tileSize, 0);
+        this.listener = listener;
+    }
 
-            ++cCol;
-            if (cCol < maxCols)
-                return new Pixel(cRow, cCol);
+    /** Cancels the render - the tiles that are not started yet will not be
+     * handed out (or will be skipped) */
+    void cancel() {
+        cancelled = true;
+    }
 
-            cCol = 0;
-            ++cRow;
-            if (cRow < maxRows)
-                return new Pixel(cRow, cCol);
-        }
-        return null;
+    /** Checks whether the render was cancelled
+     * @return true if the render was cancelled */
+    boolean isCancelled() {
+        return cancelled;
     }
 
-    /** Finish pixel processing by updating and printing of progress percentage */
-    void pixelDone() {
-        boolean flag       = false;
-        int     percentage = 0;
+    /** Function for thread-safe allocation of tiles - the tiles are numbered row
+     * by row, and each call takes the next number from an atomic counter, so no
+     * lock is needed.
+     * @return the next tile, or null if there are no more tiles or the render
+     *         was cancelled */
+    Tile nextTile() {
+        if (cancelled) return null;
+        int tile = nextTile.getAndIncrement();
+        return tile < totalTiles ? getTile(tile) : null;
+    }
+
+    /** Amount of tiles in the image
+     * @return the amount of tiles */
+    int getTilesCount() {
+        return totalTiles;
+    }
+
+    /** Finds a tile by its number, for executors which divide the tiles between
+     * their tasks by themselves.<br/>
+     * The tiles at the right and bottom edges are cut to the image size.
+     * @param  tile the number of the tile - the tiles are numbered row by row
+     * @return      the tile */
+    Tile getTile(int tile) {
+        int fromCol = tile % tileCols * tileSize;
+        int fromRow = tile / tileCols * tileSize;
+        return new Tile(fromCol, fromRow,
+                Math.min(fromCol + tileSize, maxCols), Math.min(fromRow + tileSize, maxRows));
+    }
+
+    /** Finish tile processing by updating and printing of progress percentage
+     * @param tile the processed tile */
+    void tileDone(Tile tile) {
+        long done = pixels.addAndGet(tile.size());
+        if (listener != null) {
+            listener.tileDone(tile.fromCol(), tile.fromRow(), tile.toCol(), tile.toRow());
+            listener.progress((double) done / totalPixels);
+        }
+        if (!print) return;
+        int percentage = (int) (1000l * done / totalPixels);
+        if (percentage - lastPrinted < printInterval) return;
         synchronized (mutexPixels) {
-            ++pixels;
-            if (print) {
-                percentage = (int) (1000l * pixels / totalPixels);
-                if (percentage - lastPrinted >= printInterval) {
-                    lastPrinted = percentage;
-                    flag        = true;
-                }
-            }
-            if (flag) System.out.printf(PRINT_FORMAT, percentage / 10d);
+            if (percentage - lastPrinted < printInterval) return;
+            lastPrinted = percentage;
+            System.out.printf(PRINT_FORMAT, percentage / 10d);
         }
     }
 }
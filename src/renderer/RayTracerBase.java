@@ -20,4 +20,31 @@ public abstract class RayTracerBase {
      */
     public abstract Color traceRay(Ray ray);
 
+    /**
+     * Traces a packet of coherent rays (e.g. the rays of neighboring pixels) and returns the color of each -
+     * the same colors as {@link #traceRay(Ray)} returns for the rays. The default traces the rays one by one,
+     * tracers which can share work between the rays should override it.
+     *
+     * @param rays the rays to trace
+     * @return the color of each ray
+     */
+    public Color[] traceRays(Ray[] rays) {
+        Color[] colors = new Color[rays.length];
+        for (int i = 0; i < rays.length; ++i)
+            colors[i] = traceRay(rays[i]);
+        return colors;
+    }
+
+    /**
+     * Prepares a tracer for rendering the scene as it is now - the camera calls it before each rendering,
+     * and traces all the rays of the rendering with the returned tracer, so renderings running at the same
+     * time (e.g. of consecutive frames) don't see each other's state of the scene.
+     * The default returns this tracer.
+     *
+     * @return the tracer of the rendering
+     */
+    public RayTracerBase prepare() {
+        return this;
+    }
+
 }
@@ -0,0 +1,37 @@
+package renderer;
+
+/**
+ * Listener for the progress of an asynchronous render (see {@link Camera#renderImageAsync(RenderListener)}).
+ * The methods are called by the rendering threads, possibly by several threads at the same time,
+ * so they should be short and thread-safe.
+ */
+public interface RenderListener {
+
+    /**
+     * Called when a tile of the image is done - its pixels are already written to the image.
+     *
+     * @param fromCol the first column of the tile (included)
+     * @param fromRow the first row of the tile (included)
+     * @param toCol   the last column of the tile (excluded)
+     * @param toRow   the last row of the tile (excluded)
+     */
+    default void tileDone(int fromCol, int fromRow, int toCol, int toRow) {
+    }
+
+    /**
+     * Called after each tile with the part of the image that is done.
+     *
+     * @param done the part of the pixels that are done, between 0 and 1
+     */
+    default void progress(double done) {
+    }
+
+    /**
+     * Called after each pass of a progressive render, when the image holds the average of the samples
+     * of all the passes so far (see {@link Camera#renderProgressiveAsync(int, RenderListener)}).
+     *
+     * @param passes the amount of passes done
+     */
+    default void passDone(int passes) {
+    }
+}
@@ -0,0 +1,37 @@
+package renderer;
+
+/**
+ * Statistics of a budgeted rendering (see {@link Camera#renderBudgetedAsync(long, double, RenderListener)})
+ *
+ * @param passes     the amount of passes done
+ * @param samples    the total amount of samples traced
+ * @param minSamples the smallest amount of samples of a pixel
+ * @param maxSamples the largest amount of samples of a pixel
+ * @param noise      the largest noise of a pixel - the standard error of the average brightness
+ *                   of its samples, in color units
+ */
+public record RenderStats(int passes, long samples, int minSamples, int maxSamples, double noise) {
+
+    /**
+     * Collects the statistics of the pixels of an accumulation buffer
+     *
+     * @param buffer the buffer
+     * @param passes the amount of passes done
+     * @return the statistics
+     */
+    static RenderStats of(AccumulationBuffer buffer, int passes) {
+        long samples = 0;
+        int minSamples = Integer.MAX_VALUE, maxSamples = 0;
+        double noise = 0;
+        for (int i = 0; i < buffer.getNy(); ++i)
+            for (int j = 0; j < buffer.getNx(); ++j) {
+                int count = buffer.getCount(j, i);
+                samples += count;
+                minSamples = Math.min(minSamples, count);
+                maxSamples = Math.max(maxSamples, count);
+                noise = Math.max(noise, buffer.getNoise(j, i));
+            }
+        return new RenderStats(passes, samples, minSamples, maxSamples, noise);
+    }
+
+}
@@ -0,0 +1,202 @@
+package renderer;
+
+import java.util.SplittableRandom;
+
+/**
+ * Patterns of the sample points inside a pixel, for casting several rays through a pixel (antialiasing).
+ * The samplers keep no shared mutable state - the random ones draw from a generator of the calling thread,
+ * and the low discrepancy ones are calculated from the number of the sample - so rendering threads
+ * never contend on them.
+ */
+public enum Sampler {
+
+    /**
+     * Independent uniform random points
+     */
+    RANDOM {
+        @Override
+        void sample(int j, int i, int first, int count, double[] samples) {
+            SplittableRandom random = GENERATORS.get();
+            for (int k = 0; k < 2 * count; ++k)
+                samples[k] = random.nextDouble();
+        }
+    },
+
+    /**
+     * Stratified random points - the width and the height of the pixel are divided into a strip per point,
+     * and each point is in a different column strip and a different row strip (a jittered Latin hypercube),
+     * so the points are spread over the pixel for any amount of points. Each call is stratified by itself.
+     */
+    STRATIFIED {
+        @Override
+        void sample(int j, int i, int first, int count, double[] samples) {
+            SplittableRandom random = GENERATORS.get();
+            int[] rows = new int[count];
+            for (int k = 0; k < count; ++k)
+                rows[k] = k;
+            for (int k = count - 1; k > 0; --k) { // shuffle the row strips between the column strips
+                int other = random.nextInt(k + 1);
+                int row = rows[k];
+                rows[k] = rows[other];
+                rows[other] = row;
+            }
+            for (int k = 0; k < count; ++k) {
+                samples[2 * k] = (k + random.nextDouble()) / count;
+                samples[2 * k + 1] = (rows[k] + random.nextDouble()) / count;
+            }
+        }
+    },
+
+    /**
+     * The Halton sequence in bases 2 and 3, shifted by a pseudo random offset of the pixel, so neighboring
+     * pixels don't repeat the same pattern. The points of a pixel are the same in every render.
+     */
+    HALTON {
+        @Override
+        void sample(int j, int i, int first, int count, double[] samples) {
+            long hash = hash(j, i);
+            double shiftX = (hash >>> 11) * 0x1.0p-53;
+            double shiftY = (mix(hash) >>> 11) * 0x1.0p-53;
+            for (int k = 0; k < count; ++k) {
+                samples[2 * k] = fraction(radicalInverse(first + k + 1, 2) + shiftX);
+                samples[2 * k + 1] = fraction(radicalInverse(first + k + 1, 3) + shiftY);
+            }
+        }
+    },
+
+    /**
+     * The first two dimensions of the Sobol sequence, scrambled by pseudo random bits of the pixel
+     * (which keeps the stratification of the sequence - e.g. any 4 consecutive points from the start
+     * are in different quarters of the pixel). The points of a pixel are the same in every render.
+     */
+    SOBOL {
+        @Override
+        void sample(int j, int i, int first, int count, double[] samples) {
+            long hash = hash(j, i);
+            int scrambleX = (int) hash;
+            int scrambleY = (int) (hash >>> 32);
+            for (int k = 0; k < count; ++k) {
+                samples[2 * k] = toUnit(Integer.reverse(first + k) ^ scrambleX);
+                samples[2 * k + 1] = toUnit(sobol2(first + k) ^ scrambleY);
+            }
+        }
+    };
+
+    /**
+     * The generator the random samplers split the generators of the threads from
+     */
+    private static final SplittableRandom ROOT = new SplittableRandom();
+    /**
+     * The generators of the threads
+     */
+    private static final ThreadLocal<SplittableRandom> GENERATORS = ThreadLocal.withInitial(Sampler::split);
+
+    /**
+     * Calculates sample points inside a pixel.
+     *
+     * @param j       the column of the pixel
+     * @param i       the row of the pixel
+     * @param count   the amount of points
+     * @param samples the array to fill with the points - x and y of each point, both in [0, 1),
+     *                from the left and from the top of the pixel
+     */
+    void sample(int j, int i, int count, double[] samples) {
+        sample(j, i, 0, count, samples);
+    }
+
+    /**
+     * Calculates sample points inside a pixel, continuing the points already taken - the low discrepancy
+     * samplers continue their sequences, so the points of all the calls together are still well spread.
+     *
+     * @param j       the column of the pixel
+     * @param i       the row of the pixel
+     * @param first   the number of the first point (the amount of points already taken)
+     * @param count   the amount of points
+     * @param samples the array to fill with the points - x and y of each point, both in [0, 1),
+     *                from the left and from the top of the pixel
+     */
+    abstract void sample(int j, int i, int first, int count, double[] samples);
+
+    /**
+     * Creates a generator for a new thread
+     *
+     * @return the generator
+     */
+    private static SplittableRandom split() {
+        synchronized (ROOT) {
+            return ROOT.split();
+        }
+    }
+
+    /**
+     * Calculates pseudo random bits of a pixel
+     *
+     * @param j the column of the pixel
+     * @param i the row of the pixel
+     * @return the bits
+     */
+    private static long hash(int j, int i) {
+        return mix(((long) j << 32 | (i & 0xFFFFFFFFL)) + 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Mixes the bits of a number (the finalizer of SplitMix64)
+     *
+     * @param z the number
+     * @return the mixed bits
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Calculates the radical inverse of a number - its digits in a base mirrored around the decimal point
+     *
+     * @param n    the number
+     * @param base the base
+     * @return the radical inverse, in [0, 1)
+     */
+    private static double radicalInverse(int n, int base) {
+        double inverse = 0;
+        double digit = 1d / base;
+        for (; n > 0; n /= base, digit /= base)
+            inverse += n % base * digit;
+        return inverse;
+    }
+
+    /**
+     * Calculates the second dimension of the Sobol sequence (the first is the bit reversal of the number)
+     *
+     * @param n the number of the point
+     * @return the bits of the coordinate, to be read as a fraction
+     */
+    private static int sobol2(int n) {
+        int result = 0;
+        for (int v = 1 << 31; n != 0; n >>>= 1, v ^= v >>> 1)
+            if ((n & 1) != 0)
+                result ^= v;
+        return result;
+    }
+
+    /**
+     * Reads the bits of a number as a binary fraction
+     *
+     * @param bits the bits
+     * @return the fraction, in [0, 1)
+     */
+    private static double toUnit(int bits) {
+        return (bits & 0xFFFFFFFFL) * 0x1.0p-32;
+    }
+
+    /**
+     * Gets the fractional part of a positive number
+     *
+     * @param value the number
+     * @return the fractional part
+     */
+    private static double fraction(double value) {
+        return value - Math.floor(value);
+    }
+}
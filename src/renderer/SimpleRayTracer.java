@@ -3,10 +3,9 @@ package renderer;
 import geometries.Intersectable.GeoPoint;
 import lighting.LightSource;
 import primitives.*;
+import scene.CompiledScene;
 import scene.Scene;
 
-import java.util.List;
-
 import static primitives.Util.alignZero;
 
 /**
@@ -31,7 +30,14 @@ public class SimpleRayTracer extends RayTracerBase {
     private static final Double3 INITIAL_K = Double3.ONE;
 
     /**
-     * Constructs a new simple ray tracer with the given scene
+     * The snapshot of the scene the rays are traced in - set once, a new snapshot gets a new tracer
+     */
+    private volatile CompiledScene compiled;
+
+    /**
+     * Constructs a new simple ray tracer with the given scene. The scene is compiled into a new snapshot
+     * for each rendering (see {@link #prepare()}), so it can be changed between renderings - or once,
+     * before the first ray, if the tracer is used without a camera.
      *
      * @param scene the scene to trace rays in
      */
@@ -39,6 +45,43 @@ public class SimpleRayTracer extends RayTracerBase {
         super(scene);
     }
 
+    /**
+     * Constructs a new simple ray tracer with a compiled scene, which is traced as it is
+     *
+     * @param scene the snapshot of the scene to trace rays in
+     */
+    public SimpleRayTracer(CompiledScene scene) {
+        super(null);
+        compiled = scene;
+    }
+
+    /**
+     * Compiles the scene into a new snapshot, and returns a tracer of the snapshot - unless this tracer
+     * was constructed with a snapshot, which is traced as it is
+     *
+     * @return the tracer of the rendering
+     */
+    @Override
+    public RayTracerBase prepare() {
+        return scene == null ? this : new SimpleRayTracer(scene.compile());
+    }
+
+    /**
+     * Gets the snapshot of the scene, compiling the scene if it wasn't compiled yet
+     *
+     * @return the snapshot
+     */
+    private CompiledScene compiled() {
+        CompiledScene result = compiled;
+        if (result == null)
+            synchronized (this) {
+                result = compiled;
+                if (result == null)
+                    compiled = result = scene.compile();
+            }
+        return result;
+    }
+
     /**
      * Constructs a reflected ray
      *
@@ -48,7 +91,7 @@ public class SimpleRayTracer extends RayTracerBase {
      */
     private Ray constructReflectedRay(GeoPoint gp, Ray ray) {
         Vector v = ray.getDirection();
-        Vector n = gp.geometry.getNormal(gp.point);
+        Vector n = gp.getNormal();
         double vn = v.dotProduct(n);
         if (vn == 0) return null;
         Vector r = v.subtract(n.scale(2 * vn));
@@ -64,7 +107,7 @@ public class SimpleRayTracer extends RayTracerBase {
      */
     private Ray constructRefractedRay(GeoPoint gp, Ray ray) {
         Vector v = ray.getDirection();
-        Vector n = gp.geometry.getNormal(gp.point);
+        Vector n = gp.getNormal();
         double vn = v.dotProduct(n);
         if (vn == 0) return null;
         return new Ray(gp.point, v, n);
@@ -78,8 +121,7 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the closest intersection point of the ray
      */
     private GeoPoint findClosestIntersection(Ray ray) {
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(ray);
-        return ray.findClosestGeoPoint(intersections);
+        return compiled().geometries.findClosestGeoIntersection(ray);
     }
 
     /**
@@ -107,7 +149,7 @@ public class SimpleRayTracer extends RayTracerBase {
         Double3 kkx = k.product(kx);
         if (kkx.lowerThan(MIN_CALC_COLOR_K)) return Color.BLACK;
         GeoPoint gp = findClosestIntersection(ray);
-        return (gp == null ? scene.background : calcColor(gp, ray, level - 1, kkx)).scale(kx);
+        return (gp == null ? compiled().background : calcColor(gp, ray, level - 1, kkx)).scale(kx);
     }
 
     /**
@@ -119,10 +161,28 @@ public class SimpleRayTracer extends RayTracerBase {
     @Override
     public Color traceRay(Ray ray) {
         GeoPoint closestPoint = findClosestIntersection(ray);
-        return closestPoint == null ? scene.background
+        return closestPoint == null ? compiled().background
                 : calcColor(closestPoint, ray);
     }
 
+    /**
+     * Traces a packet of rays. The closest intersections of the rays are found together - the shadow rays
+     * and the secondary (reflected and refracted) rays of the intersection points spread apart,
+     * so they are traced one by one.
+     *
+     * @param rays the rays to trace
+     * @return the color of each ray
+     */
+    @Override
+    public Color[] traceRays(Ray[] rays) {
+        CompiledScene scene = compiled();
+        GeoPoint[] intersections = scene.geometries.findClosestGeoIntersections(rays);
+        Color[] colors = new Color[rays.length];
+        for (int i = 0; i < rays.length; ++i)
+            colors[i] = intersections[i] == null ? scene.background : calcColor(intersections[i], rays[i]);
+        return colors;
+    }
+
     /**
      * Calculates the color of a point
      *
@@ -130,7 +190,7 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the color of the point
      */
     private Color calcColor(GeoPoint gp, Ray ray) {
-        return calcColor(gp, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K).add(scene.ambientLight.getIntensity());
+        return calcColor(gp, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K).add(compiled().ambientIntensity);
     }
 
     /**
@@ -156,13 +216,13 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the color of the point
      */
     private Color calcLocalEffects(GeoPoint gp, Ray ray, Double3 k) {
-        Vector n = gp.geometry.getNormal(gp.point);//normal of the geometry in the point
+        Vector n = gp.getNormal();//normal of the geometry in the point
         Vector v = ray.getDirection();//direction of the ray from the camera
         double nv = alignZero(n.dotProduct(v));
         if (nv == 0) return Color.BLACK;//if so, the light has no effect at all
         Color color = gp.geometry.getEmission();
         Material material = gp.geometry.getMaterial();
-        for (LightSource lightSource : scene.lights) {
+        for (LightSource lightSource : compiled().lights) {
             Vector l = lightSource.getL(gp.point);//vector from the light source to the lighting point
             double nl = alignZero(n.dotProduct(l));
             if (nl * nv > 0) {// sign(nl) == sing(nv) check if the light is in the same direction as the normal
@@ -200,8 +260,7 @@ public class SimpleRayTracer extends RayTracerBase {
          */
         private Double3 calcSpecular (Material material, Vector n, Vector l,double nl, Vector v){
             Vector r = l.subtract(n.scale(2 * nl));//the reflection of the light vector
-            double vr = v.dotProduct(r);
-            return material.kS.scale(Math.pow(Math.max(0, v.scale(-1).dotProduct(r)), material.nShininess));
+            return material.kS.scale(Math.pow(Math.max(0, -v.dotProduct(r)), material.nShininess));
         }
 
 
@@ -218,17 +277,7 @@ public class SimpleRayTracer extends RayTracerBase {
             Vector lightDirection = l.scale(-1);
             Ray ray = new Ray(gp.point, lightDirection,n);
             double lightDistance = ls.getDistance(gp.point);
-            List<GeoPoint> intersections = scene.geometries.findGeoIntersections(ray,lightDistance);
-            if(intersections != null) {
-                Double3 ktr = Double3.ONE;
-                for (var intersection : intersections) {
-                        ktr = ktr.product(intersection.geometry.getMaterial().kT);
-                        if (ktr.lowerThan(MIN_CALC_COLOR_K))
-                            return Double3.ZERO;
-                }
-                return ktr;
-            }
-            return Double3.ONE;
+            return compiled().geometries.findTransparency(ray, lightDistance, MIN_CALC_COLOR_K);
         }
 
 
@@ -0,0 +1,186 @@
+package renderer;
+
+import primitives.Color;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Image writer for very large images, which encodes the image file while it is rendered.<br/>
+ * The pixels are kept in a temporary file mapped to memory (so the image takes no heap), and the rows are
+ * encoded in bands: when all the pixels of a band are written, the band (and the completed bands after it)
+ * is encoded to the file by the rendering thread which completed it, while the other threads keep rendering.
+ * Tiles may be rendered in any order - a band waits for the bands above it.<br/>
+ * Each pixel is expected to be written once (as {@link Camera#renderImage()} does), and the tone mapping
+ * has to be set before the rendering. Pixels written straight into the frame buffer (like the passes
+ * of a progressive rendering) are encoded when {@link #writeToImage()} completes the file.
+ */
+public class StreamingImageWriter extends ImageWriter {
+    /**
+     * Amount of rows in a band
+     */
+    private final int bandRows;
+    /**
+     * Amount of written pixels of each band
+     */
+    private final AtomicIntegerArray written;
+    /**
+     * Guards the encoding - the bands are encoded in order, by one thread at a time
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * The file
+     */
+    private final FileChannel channel;
+    /**
+     * The encoder of the file, null after the file is complete
+     */
+    private volatile ImageEncoder encoder;
+    /**
+     * The first band which is not encoded yet
+     */
+    private volatile int nextBand = 0;
+    /**
+     * logger for reporting I/O failures
+     */
+    private final Logger logger = Logger.getLogger("StreamingImageWriter");
+
+    /**
+     * Constructs a streaming image writer and creates its file
+     *
+     * @param imageName the name of the image file, without the extension
+     * @param nX        amount of pixels by width
+     * @param nY        amount of pixels by height
+     * @param format    the format of the file
+     * @param bandRows  amount of rows in a band
+     * @throws IllegalArgumentException if the format is null or the amount of rows in a band is not positive
+     * @throws IllegalStateException    if the files can't be created
+     */
+    public StreamingImageWriter(String imageName, int nX, int nY, ImageFormat format, int bandRows) {
+        super(imageName, mappedFrame(nX, nY), format);
+        if (bandRows <= 0)
+            throw new IllegalArgumentException("ERROR:band must have rows");
+        this.bandRows = bandRows;
+        written = new AtomicIntegerArray((nY + bandRows - 1) / bandRows);
+        try {
+            channel = FileChannel.open(Path.of(FOLDER_PATH, imageName + "." + format.getExtension()),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            encoder = format.open(channel, nX, nY);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "I/O error", e);
+            throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+        }
+    }
+
+    /**
+     * Creates the frame buffer in a temporary file
+     *
+     * @param nX amount of pixels by width
+     * @param nY amount of pixels by height
+     * @return the frame buffer
+     */
+    private static FrameBuffer mappedFrame(int nX, int nY) {
+        try {
+            return FrameBuffer.mapped(nX, nY);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - can't map a temporary frame buffer", e);
+        }
+    }
+
+    /**
+     * The format of a streaming image is set when its file is created
+     *
+     * @param format the format
+     * @return the image writer
+     * @throws IllegalStateException if the format differs from the format of the file
+     */
+    @Override
+    public ImageWriter setFormat(ImageFormat format) {
+        if (format != getFormat())
+            throw new IllegalStateException("ERROR:format of a streaming image can't be changed");
+        return this;
+    }
+
+    /**
+     * Writes the color of a pixel, and encodes its band if it is complete
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @param color  final color of the pixel
+     */
+    @Override
+    public void writePixel(int xIndex, int yIndex, Color color) {
+        super.writePixel(xIndex, yIndex, color);
+        int band = yIndex / bandRows;
+        if (written.incrementAndGet(band) == bandPixels(band))
+            encodeBands(false);
+    }
+
+    /**
+     * Encodes the remaining bands and completes the file. Writing the image again does nothing.
+     */
+    @Override
+    public void writeToImage() {
+        encodeBands(true);
+    }
+
+    /**
+     * Encodes the bands which are ready, in order. A thread which finds another thread encoding leaves the bands
+     * to it - the other thread checks again for ready bands after it releases the lock.
+     *
+     * @param all true to encode all the remaining bands and complete the file
+     */
+    private void encodeBands(boolean all) {
+        if (all)
+            lock.lock();
+        else if (!lock.tryLock())
+            return;
+        do {
+            try {
+                if (encoder == null)
+                    return;
+                for (; nextBand < written.length() && (all || written.get(nextBand) == bandPixels(nextBand));
+                     ++nextBand)
+                    encoder.writeRows(getFrameBuffer(), getToneMapper(), nextBand * bandRows,
+                            Math.min(getNy(), (nextBand + 1) * bandRows));
+                if (nextBand == written.length() && all) {
+                    encoder.finish();
+                    encoder = null;
+                    channel.close();
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "I/O error", e);
+                throw new IllegalStateException("I/O error - failed encoding " + getImageName(), e);
+            } finally {
+                lock.unlock();
+            }
+            // a band completed while the lock was held may have been left to this thread
+        } while (!all && nextBandReady() && lock.tryLock());
+    }
+
+    /**
+     * Checks whether the next band to encode is complete
+     *
+     * @return true if it is complete
+     */
+    private boolean nextBandReady() {
+        int band = nextBand;
+        return encoder != null && band < written.length() && written.get(band) == bandPixels(band);
+    }
+
+    /**
+     * Calculates the amount of pixels of a band
+     *
+     * @param band the number of the band
+     * @return the amount of pixels
+     */
+    private int bandPixels(int band) {
+        return getNx() * (Math.min(getNy(), (band + 1) * bandRows) - band * bandRows);
+    }
+}
@@ -0,0 +1,74 @@
+package renderer;
+
+/**
+ * Tone mapping - maps the high dynamic range components of the pixels (in color units, where 255 is
+ * the white of the display, but lights may make them much brighter) to display values in 0..255,
+ * before they are quantized to 8 bits. Values out of 0..255 are clipped by the quantization.<br/>
+ * The mapping is done once when the image is written, a row at a time, in a simple loop the JIT compiler
+ * can vectorize.
+ */
+@FunctionalInterface
+public interface ToneMapper {
+
+    /**
+     * No mapping - the components above 255 are clipped
+     */
+    ToneMapper CLAMP = (values, length) -> {
+    };
+
+    /**
+     * Maps the components of a row of pixels in place
+     *
+     * @param values the components
+     * @param length the amount of components to map
+     */
+    void map(float[] values, int length);
+
+    /**
+     * Scales the components by an exposure factor
+     *
+     * @param exposure the factor
+     * @return the mapping
+     */
+    static ToneMapper exposure(double exposure) {
+        if (exposure <= 0)
+            throw new IllegalArgumentException("ERROR:exposure must be positive");
+        float factor = (float) exposure;
+        return (values, length) -> {
+            for (int k = 0; k < length; ++k)
+                values[k] *= factor;
+        };
+    }
+
+    /**
+     * The extended Reinhard operator per component - compresses the bright values smoothly instead of clipping
+     * them, so a component of the white point is mapped to 255
+     *
+     * @param white the brightest component to keep (in color units), at least 255
+     * @return the mapping
+     */
+    static ToneMapper reinhard(double white) {
+        if (white < 255)
+            throw new IllegalArgumentException("ERROR:white point must be at least 255");
+        float w2 = (float) (255 * 255 / (white * white));
+        return (values, length) -> {
+            for (int k = 0; k < length; ++k) {
+                float v = values[k] / 255f;
+                values[k] = 255f * v * (1f + v * w2) / (1f + v);
+            }
+        };
+    }
+
+    /**
+     * Applies this mapping and then another one
+     *
+     * @param next the other mapping
+     * @return the combined mapping
+     */
+    default ToneMapper andThen(ToneMapper next) {
+        return (values, length) -> {
+            map(values, length);
+            next.map(values, length);
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package scene;
+
+import geometries.BVH;
+import geometries.CompiledGeometries;
+import geometries.Intersectable;
+import lighting.LightSource;
+import primitives.Color;
+
+import java.util.List;
+
+/**
+ * Immutable snapshot of a scene, optimized for rendering (see {@link Scene#compile()}).
+ * The geometries are flattened into an array backed group, with a bounding volume hierarchy over them
+ * when there are enough of them (loaded from the cache of the scene, if it has one),
+ * and with their bounding boxes calculated in advance, and the lights
+ * are copied into an array backed list. Rendering threads share the snapshot without synchronization,
+ * and the scene itself may be changed (e.g. for the next frame) while the snapshot is rendered.
+ */
+public final class CompiledScene {
+    /**
+     * Amount of geometries from which a bounding volume hierarchy is built over them
+     */
+    static final int BVH_THRESHOLD = 16;
+
+    /**
+     * The name of the scene
+     */
+    public final String name;
+    /**
+     * The color of the rays which hit nothing
+     */
+    public final Color background;
+    /**
+     * The intensity of the ambient light
+     */
+    public final Color ambientIntensity;
+    /**
+     * The geometries, ready for intersecting
+     */
+    public final Intersectable geometries;
+    /**
+     * The light sources
+     */
+    public final List<LightSource> lights;
+
+    /**
+     * Compiles a scene
+     *
+     * @param scene the scene
+     */
+    CompiledScene(Scene scene) {
+        name = scene.name;
+        background = scene.background;
+        ambientIntensity = scene.ambientLight.getIntensity();
+        CompiledGeometries compiled = scene.geometries.compile();
+        if (compiled.size() < BVH_THRESHOLD)
+            geometries = compiled;
+        else if (scene.accelerationCache == null)
+            geometries = new BVH(compiled);
+        else
+            geometries = scene.accelerationCache.get(List.of(compiled));
+        geometries.getBoundingBox(); // calculates the boxes of all the members
+        lights = List.of(scene.lights.toArray(new LightSource[0]));
+    }
+}
@@ -1,5 +1,6 @@
 package scene;
 
+import geometries.BVHCache;
 import geometries.Geometries;
 import lighting.AmbientLight;
 import lighting.LightSource;
@@ -14,6 +15,10 @@ public class Scene {
     public AmbientLight ambientLight = AmbientLight.NONE;
     public Geometries geometries = new Geometries();
     public List<LightSource> lights = new LinkedList<>();
+    /**
+     * The cache of the bounding volume hierarchy of the geometries, null to build the hierarchy on every compile
+     */
+    public BVHCache accelerationCache = null;
 
     public Scene(String name) {
         this.name = name;
@@ -44,4 +49,26 @@ public class Scene {
         this.lights = lights;
         return this;
     }
+
+    /**
+     * Sets the cache the bounding volume hierarchy of the geometries is loaded from when the scene is compiled,
+     * so an unchanged scene doesn't build its hierarchy again.
+     *
+     * @param accelerationCache the cache, null to build the hierarchy on every compile
+     * @return the scene
+     */
+    public Scene setAccelerationCache(BVHCache accelerationCache) {
+        this.accelerationCache = accelerationCache;
+        return this;
+    }
+
+    /**
+     * Compiles the scene into an immutable snapshot for rendering. Later changes of the scene
+     * don't affect the snapshot (as long as the geometries and the lights themselves are not changed).
+     *
+     * @return the snapshot
+     */
+    public CompiledScene compile() {
+        return new CompiledScene(this);
+    }
 }
@@ -0,0 +1,136 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BVHCacheTest {
+
+    /**
+     * Creates spheres spread in a cube, the same ones for the same seed
+     *
+     * @param seed   the seed of the positions
+     * @param amount the amount of spheres
+     * @return the spheres
+     */
+    private static List<Intersectable> spheres(long seed, int amount) {
+        Random random = new Random(seed);
+        List<Intersectable> spheres = new ArrayList<>();
+        for (int i = 0; i < amount; ++i)
+            spheres.add(new Sphere(new Point(random.nextDouble() * 100, random.nextDouble() * 100,
+                    random.nextDouble() * 100), 1 + random.nextDouble() * 2));
+        return spheres;
+    }
+
+    /**
+     * Lists the cache files in a folder
+     *
+     * @param folder the folder
+     * @return the files
+     * @throws IOException if the folder can't be listed
+     */
+    private static List<Path> files(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.toList();
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.BVHCache#get(java.util.List)}.
+     */
+    @Test
+    void testGet() throws IOException {
+        Path folder = Files.createTempDirectory("bvh-cache");
+        try {
+            BVHCache cache = new BVHCache(folder);
+            BVH built = cache.get(spheres(1, 2000));
+
+            // ============ Equivalence Partitions Tests ==============
+
+            // TC01: First time - the hierarchy is built and written
+            assertEquals(0, cache.getHits(), "Wrong amount of hits");
+            assertEquals(1, cache.getMisses(), "Wrong amount of misses");
+            assertEquals(1, files(folder).size(), "Hierarchy not written");
+
+            // TC02: The same scene created again - the hierarchy is loaded with the same tree
+            List<Intersectable> again = spheres(1, 2000);
+            BVH loaded = new BVHCache(folder).get(again);
+            assertEquals(built.getStats().nodes(), loaded.getStats().nodes(), "Wrong amount of nodes");
+            assertEquals(built.getStats().depth(), loaded.getStats().depth(), "Wrong depth");
+            Geometries flat = new Geometries(again.toArray(new Intersectable[0]));
+            Random random = new Random(2);
+            for (int i = 0; i < 100; ++i) {
+                Ray ray = new Ray(new Point(-20, -20, -20), new Vector(10 + random.nextDouble() * 100,
+                        10 + random.nextDouble() * 100, 10 + random.nextDouble() * 100));
+                Intersectable.GeoPoint expected = ray.findClosestGeoPoint(flat.findGeoIntersections(ray));
+                Intersectable.GeoPoint closest = loaded.findClosestGeoIntersection(ray);
+                assertEquals(expected == null ? null : expected.point, closest == null ? null : closest.point,
+                        "Wrong closest intersection");
+                // the loaded hierarchy holds the objects of the new scene, not of the cached one
+                if (closest != null)
+                    assertTrue(again.contains(closest.geometry), "Intersection with an object of another scene");
+            }
+            BVHCache second = new BVHCache(folder);
+            second.get(spheres(1, 2000));
+            assertEquals(1, second.getHits(), "Cached hierarchy not loaded");
+            assertEquals(0, second.getMisses(), "Cached hierarchy built again");
+
+            // TC03: A changed scene gets a hierarchy of its own
+            List<Intersectable> changed = spheres(1, 2000);
+            changed.set(7, new Sphere(new Point(50, 50, 50), 1d));
+            cache.get(changed);
+            assertEquals(2, cache.getMisses(), "Changed scene loaded from the cache");
+            assertEquals(2, files(folder).size(), "Hierarchy of the changed scene not written");
+
+            // =============== Boundary Values Tests ==================
+
+            // TC11: A corrupted file is rebuilt and replaced
+            for (Path file : files(folder))
+                Files.write(file, new byte[]{1, 2, 3});
+            BVHCache corrupted = new BVHCache(folder);
+            BVH rebuilt = corrupted.get(spheres(1, 2000));
+            assertEquals(1, corrupted.getMisses(), "Corrupted file loaded");
+            assertEquals(built.getStats().nodes(), rebuilt.getStats().nodes(), "Wrong rebuilt hierarchy");
+            corrupted.get(spheres(1, 2000));
+            assertEquals(1, corrupted.getHits(), "Rebuilt hierarchy not written");
+
+            // TC12: A file damaged inside a box of a node, with its structure intact, is rebuilt
+            for (Path file : files(folder)) {
+                byte[] bytes = Files.readAllBytes(file);
+                bytes[bytes.length / 2] ^= 0x10;
+                Files.write(file, bytes);
+            }
+            BVHCache damaged = new BVHCache(folder);
+            damaged.get(spheres(1, 2000));
+            assertEquals(1, damaged.getMisses(), "Damaged file loaded");
+            assertEquals(0, damaged.getHits(), "Damaged file loaded");
+
+            // TC13: A cache folder which can't be created - the hierarchy is built and returned anyway
+            BVHCache unwritable = new BVHCache(files(folder).getFirst().resolve("cache"));
+            BVH unwritten = assertDoesNotThrow(() -> unwritable.get(spheres(1, 2000)), "Failed writing");
+            assertEquals(built.getStats().nodes(), unwritten.getStats().nodes(), "Wrong unwritten hierarchy");
+            assertEquals(1, unwritable.getMisses(), "Wrong amount of misses");
+
+            // TC14: Only unbounded objects - nothing to cache
+            int before = files(folder).size();
+            BVH unbounded = cache.get(List.of(new Plane(Point.ZERO, new Vector(0, 0, 1))));
+            assertEquals(1, unbounded.getStats().unbounded(), "Wrong amount of unbounded objects");
+            assertEquals(before, files(folder).size(), "Empty hierarchy written");
+        } finally {
+            for (Path file : files(folder))
+                Files.delete(file);
+            Files.delete(folder);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BVHTest {
+
+    private final Point p000 = new Point(0, 0, 0);
+    private final Vector v001 = new Vector(0, 0, 1);
+
+    /**
+     * Test method for {@link geometries.BVH#findGeoIntersectionsHelper(primitives.Ray, double)}.
+     */
+    @Test
+    void testFindGeoIntersections() {
+        // many small spheres and triangles spread in a cube, and an unbounded plane below them
+        Random random = new Random(7);
+        Intersectable[] objects = RandomScenes.objects(random, 200, 3);
+        Geometries flat = new Geometries(objects);
+        flat.add(RandomScenes.FLOOR);
+        BVH bvh = new BVH(new Geometries(objects), RandomScenes.FLOOR);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Rays through the cube get the same sorted intersections as the flat list
+        RandomScenes.assertSameIntersections(flat, bvh, random, 500);
+
+        // TC02: Ray misses the bounded objects but hits the plane (1 point)
+        assertEquals(List.of(new Point(-50, -50, -10)),
+                bvh.findIntersections(new Ray(new Point(-50, -50, 0), v001.scale(-1))), "Wrong plane intersection");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Empty hierarchy (0 points)
+        assertNull(new BVH().findGeoIntersections(new Ray(p000, v001)), "Empty hierarchy");
+        assertNull(new BVH().findClosestGeoIntersection(new Ray(p000, v001)), "Empty hierarchy");
+
+        // TC12: Ray goes away from everything (0 points)
+        assertNull(bvh.findGeoIntersections(new Ray(new Point(-20, -20, -5), new Vector(-1, -1, 1))),
+                "Ray goes away from everything");
+    }
+
+    /**
+     * Test method for {@link geometries.BVH#findClosestGeoIntersectionsHelper(primitives.Ray[])}.
+     */
+    @Test
+    void testPackets() {
+        // many small spheres and triangles spread in a cube, and an unbounded plane below them
+        Random random = new Random(11);
+        BVH bvh = new BVH(new Geometries(RandomScenes.objects(random, 300, 3)), RandomScenes.FLOOR);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Coherent packets - rays from a point through a small square, as the rays of neighboring pixels
+        for (int p = 0; p < 50; ++p) {
+            Point head = new Point(-20, -20, -20);
+            double x = 10 + random.nextDouble() * 100, y = 10 + random.nextDouble() * 100;
+            Ray[] rays = new Ray[64];
+            for (int i = 0; i < rays.length; ++i)
+                rays[i] = new Ray(head, new Vector(x + i % 8 * 0.2, y + i / 8 * 0.2, 60));
+            RandomScenes.assertPackets(bvh, rays);
+        }
+
+        // TC02: Incoherent packets - rays from points in the cube in all the directions
+        for (int p = 0; p < 50; ++p) {
+            Ray[] rays = new Ray[16];
+            for (int i = 0; i < rays.length; ++i)
+                rays[i] = new Ray(new Point(random.nextDouble() * 100, random.nextDouble() * 100,
+                        random.nextDouble() * 100), new Vector(random.nextDouble() - 0.5,
+                        random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+            RandomScenes.assertPackets(bvh, rays);
+        }
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Rays along an axis, parallel to the sides of the boxes
+        Ray[] rays = new Ray[25];
+        for (int i = 0; i < rays.length; ++i)
+            rays[i] = new Ray(new Point(i % 5 * 20 + 10, i / 5 * 20 + 10, -5), v001);
+        RandomScenes.assertPackets(bvh, rays);
+
+        // TC12: Rays through the corners of the boxes of the objects, grazing the boxes
+        Intersectable[] objects = RandomScenes.objects(new Random(12), 64, 3);
+        rays = new Ray[2 * objects.length];
+        Point head = new Point(-20, -20, -20);
+        for (int i = 0; i < objects.length; ++i) {
+            BoundingBox box = objects[i].getBoundingBox();
+            rays[2 * i] = new Ray(head, box.getMin().subtract(head));
+            rays[2 * i + 1] = new Ray(head, box.getMax().subtract(head));
+        }
+        BVH corners = new BVH(objects);
+        RandomScenes.assertPackets(corners, rays);
+        for (int i = 0; i + 8 <= rays.length; i += 8)
+            RandomScenes.assertPackets(corners, Arrays.copyOfRange(rays, i, i + 8));
+
+        // TC13: A single ray, and an empty packet
+        RandomScenes.assertPackets(bvh, new Ray[]{new Ray(new Point(-20, -20, -20), new Vector(1, 1, 1))});
+        assertEquals(0, bvh.findClosestGeoIntersections(new Ray[0]).length, "Wrong empty packet");
+
+        // TC14: Empty hierarchy
+        assertNull(new BVH().findClosestGeoIntersections(new Ray[]{new Ray(p000, v001)})[0], "Empty hierarchy");
+    }
+
+    /**
+     * Test method for {@link geometries.BVH#getBoundingBox()}.
+     */
+    @Test
+    void testGetBoundingBox() {
+        Sphere sphere = new Sphere(p000, 1d);
+        Triangle triangle = new Triangle(new Point(2, 0, 0), new Point(3, 0, 0), new Point(2, 4, 0));
+
+        // TC01: The box of the hierarchy bounds all its objects
+        assertEquals(new BoundingBox(new Point(-1, -1, -1), new Point(3, 4, 1)),
+                new BVH(sphere, triangle).getBoundingBox(), "Wrong bounding box");
+
+        // TC02: A hierarchy with an unbounded object is unbounded
+        assertFalse(new BVH(sphere, new Plane(p000, v001)).getBoundingBox().isBounded(),
+                "Hierarchy should be unbounded");
+    }
+
+    /**
+     * Test method for {@link geometries.BVH#getStats()}.
+     */
+    @Test
+    void testGetStats() {
+        // enough spheres for the hierarchy to be built by several tasks
+        Random random = new Random(3);
+        List<Intersectable> spheres = new ArrayList<>();
+        for (int i = 0; i < 20000; ++i)
+            spheres.add(new Sphere(new Point(random.nextDouble() * 1000, random.nextDouble() * 1000,
+                    random.nextDouble() * 1000), 1 + random.nextDouble() * 2));
+        Geometries flat = new Geometries(spheres.toArray(new Intersectable[0]));
+        BVH bvh = new BVH(spheres);
+        BVH.Stats stats = bvh.getStats();
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: The tree holds all the objects in its leaves
+        assertEquals(20000, stats.objects(), "Wrong amount of objects");
+        assertEquals(0, stats.unbounded(), "Wrong amount of unbounded objects");
+        assertEquals(2 * stats.leaves() - 1, stats.nodes(), "Inner nodes should have two children");
+        assertTrue(stats.leaves() >= 20000 / 4, "Leaves hold too many objects");
+        assertTrue(stats.depth() >= 13 && stats.depth() <= 64, "Wrong depth");
+        assertTrue(stats.nanos() > 0, "Build time not measured");
+
+        // TC02: The parallel build finds the same intersections as the flat list
+        for (int i = 0; i < 100; ++i) {
+            Ray ray = new Ray(new Point(-100, -100, -100), new Vector(100 + random.nextDouble() * 1000,
+                    100 + random.nextDouble() * 1000, 100 + random.nextDouble() * 1000));
+            assertEquals(flat.findGeoIntersections(ray), bvh.findGeoIntersections(ray), "Wrong intersections");
+            assertEquals(ray.findClosestGeoPoint(flat.findGeoIntersections(ray)), bvh.findClosestGeoIntersection(ray),
+                    "Wrong closest intersection");
+        }
+
+        // TC03: The tree doesn't depend on the pool building it
+        ForkJoinPool pool = new ForkJoinPool(1);
+        BVH.Stats single = new BVH(spheres, pool).getStats();
+        pool.shutdown();
+        assertEquals(stats.nodes(), single.nodes(), "Wrong amount of nodes");
+        assertEquals(stats.depth(), single.depth(), "Wrong depth");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Empty hierarchy
+        BVH.Stats empty = new BVH(new Plane(p000, v001)).getStats();
+        assertEquals(0, empty.nodes(), "Empty hierarchy has nodes");
+        assertEquals(1, empty.unbounded(), "Wrong amount of unbounded objects");
+        assertEquals(-1, empty.depth(), "Wrong depth of empty hierarchy");
+
+        // TC12: A single object is a leaf at the root
+        BVH.Stats one = new BVH(new Sphere(p000, 1d)).getStats();
+        assertEquals(1, one.nodes(), "Wrong amount of nodes");
+        assertEquals(0, one.depth(), "Wrong depth");
+    }
+}
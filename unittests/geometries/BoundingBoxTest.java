@@ -0,0 +1,157 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundingBoxTest {
+
+    private final Point p000 = new Point(0, 0, 0);
+    private final Point p111 = new Point(1, 1, 1);
+    private final Vector v001 = new Vector(0, 0, 1);
+    private final double inf = Double.POSITIVE_INFINITY;
+
+    private final BoundingBox box = new BoundingBox(p000, p111);
+
+    /**
+     * Test method for {@link geometries.BoundingBox#intersects(primitives.Ray, double)}.
+     */
+    @Test
+    void testIntersects() {
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Ray crosses the box
+        assertTrue(box.intersects(new Ray(new Point(-1, -1, -1), new Vector(1, 1.2, 1.1)), inf),
+                "Ray crosses the box");
+
+        // TC02: Ray misses the box
+        assertFalse(box.intersects(new Ray(new Point(-1, 2, -1), new Vector(1, 0, 1)), inf),
+                "Ray misses the box");
+
+        // TC03: Ray starts inside the box
+        assertTrue(box.intersects(new Ray(new Point(0.5, 0.5, 0.5), new Vector(1, 2, 3)), inf),
+                "Ray starts inside the box");
+
+        // TC04: Box is behind the ray
+        assertFalse(box.intersects(new Ray(new Point(0.5, 0.5, 2), v001), inf),
+                "Box is behind the ray");
+
+        // TC05: Box is farther than the maximal distance
+        assertFalse(box.intersects(new Ray(new Point(0.5, 0.5, -2), v001), 1.5),
+                "Box is farther than the maximal distance");
+        assertTrue(box.intersects(new Ray(new Point(0.5, 0.5, -2), v001), 2.5),
+                "Box is closer than the maximal distance");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Ray is parallel to a slab and outside of it
+        assertFalse(box.intersects(new Ray(new Point(2, 0.5, -1), v001), inf),
+                "Ray is parallel to a slab and outside of it");
+
+        // TC12: Ray goes along a face of the box
+        assertTrue(box.intersects(new Ray(new Point(1, 0.5, -1), v001), inf),
+                "Ray goes along a face of the box");
+
+        // TC13: Flat box of a triangle
+        BoundingBox flat = new Triangle(p000, new Point(1, 0, 0), new Point(0, 1, 0)).getBoundingBox();
+        assertTrue(flat.intersects(new Ray(new Point(0.25, 0.25, 1), v001.scale(-1)), inf),
+                "Ray crosses a flat box");
+
+        // TC14: Empty box
+        assertFalse(BoundingBox.EMPTY.intersects(new Ray(p000, v001), inf), "Empty box");
+
+        // TC15: Infinite box
+        assertTrue(BoundingBox.INFINITE.intersects(new Ray(p000, v001), inf), "Infinite box");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#getBoundingBox()}.
+     */
+    @Test
+    void testGetBoundingBox() {
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Sphere
+        assertEquals(new BoundingBox(new Point(-1, -1, -1), p111), new Sphere(p000, 1d).getBoundingBox(),
+                "Wrong sphere box");
+
+        // TC02: Polygon
+        assertEquals(new BoundingBox(p000, new Point(1, 1, 0)),
+                new Polygon(p000, new Point(1, 0, 0), new Point(1, 1, 0), new Point(0, 1, 0)).getBoundingBox(),
+                "Wrong polygon box");
+
+        // TC03: Cylinder along the z axis
+        assertEquals(new BoundingBox(new Point(-1, -1, 0), new Point(1, 1, 4)),
+                new Cylinder(4d, new Ray(p000, v001), 1d).getBoundingBox(), "Wrong cylinder box");
+
+        // TC04: Plane which is not perpendicular to an axis is unbounded
+        assertEquals(BoundingBox.INFINITE, new Plane(p000, new Vector(1, 1, 1)).getBoundingBox(),
+                "Wrong plane box");
+
+        // TC05: Group of geometries
+        assertEquals(new BoundingBox(new Point(-1, -1, -1), new Point(3, 3, 3)),
+                new Geometries(new Sphere(p000, 1d), new Sphere(new Point(2, 2, 2), 1d)).getBoundingBox(),
+                "Wrong group box");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Plane perpendicular to the z axis is flat along z
+        BoundingBox planeBox = new Plane(new Point(0, 0, 5), v001).getBoundingBox();
+        assertFalse(planeBox.isBounded(), "Plane box must be unbounded");
+        assertFalse(planeBox.intersects(new Ray(p000, v001), 4), "Plane is farther than the maximal distance");
+        assertTrue(planeBox.intersects(new Ray(p000, v001), 6), "Plane is closer than the maximal distance");
+
+        // TC12: Tube along the z axis is bounded along x and y
+        BoundingBox tubeBox = new Tube(new Ray(p000, v001), 1d).getBoundingBox();
+        assertEquals(new BoundingBox(-1, -1, Double.NEGATIVE_INFINITY, 1, 1, inf), tubeBox, "Wrong tube box");
+
+        // TC13: Empty group
+        assertTrue(new Geometries().getBoundingBox().isEmpty(), "Empty group must have an empty box");
+
+        // TC14: Group box is updated when geometries are added
+        Geometries group = new Geometries(new Sphere(p000, 1d));
+        group.getBoundingBox();
+        group.add(new Sphere(new Point(2, 2, 2), 1d));
+        assertEquals(new BoundingBox(new Point(-1, -1, -1), new Point(3, 3, 3)), group.getBoundingBox(),
+                "Group box must be updated");
+
+        // TC15: Boxes of the containing groups are updated when geometries are added to a nested group
+        Geometries nested = new Geometries(new Sphere(p000, 1d));
+        Geometries parent = new Geometries(new Geometries(nested));
+        Ray ray = new Ray(new Point(2, 2, -5), v001);
+        assertNull(parent.findGeoIntersections(ray), "Ray misses the nested group");
+        nested.add(new Sphere(new Point(2, 2, 2), 1d));
+        assertEquals(new BoundingBox(new Point(-1, -1, -1), new Point(3, 3, 3)), parent.getBoundingBox(),
+                "Box of the containing group must be updated");
+        assertEquals(2, parent.findGeoIntersections(ray).size(), "Ray hits the new geometry of the nested group");
+    }
+
+    /**
+     * Test method for {@link geometries.BoundingBox#hashCode()}.
+     */
+    @Test
+    void testHashCode() {
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Equal boxes have equal hash codes
+        assertEquals(box.hashCode(), new BoundingBox(p000, p111).hashCode(), "Wrong hash code of an equal box");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Unbounded boxes
+        assertEquals(BoundingBox.INFINITE.hashCode(),
+                new BoundingBox(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                        inf, inf, inf).hashCode(), "Wrong hash code of an infinite box");
+        assertEquals(BoundingBox.EMPTY.hashCode(), new Geometries().getBoundingBox().hashCode(),
+                "Wrong hash code of an empty box");
+
+        // TC12: Almost equal boxes on both sides of half a unit
+        BoundingBox half = new BoundingBox(0, 0, 0, 1, 1, 0.5);
+        BoundingBox almostHalf = new BoundingBox(0, 0, 0, 1, 1, 0.5 - 1e-13);
+        assertEquals(half, almostHalf, "Almost equal boxes must be equal");
+        assertEquals(half.hashCode(), almostHalf.hashCode(), "Wrong hash code of an almost equal box");
+    }
+}
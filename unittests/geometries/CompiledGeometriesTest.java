@@ -0,0 +1,89 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledGeometriesTest {
+
+    /**
+     * Test method for {@link geometries.Geometries#compile()}.
+     */
+    @Test
+    void testCompile() {
+        Sphere sphere = new Sphere(new Point(0, 0, 5), 1d);
+        Geometries geometries = new Geometries(sphere, new Geometries(new Plane(new Point(0, 0, 20), new Vector(0, 0, 1)),
+                new Sphere(new Point(0, 0, 10), 1d)));
+        CompiledGeometries compiled = geometries.compile();
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Nested groups are flattened
+        assertEquals(3, compiled.size(), "Wrong amount of members");
+
+        // TC02: Changes after compiling don't affect the compiled group
+        geometries.add(new Sphere(new Point(0, 0, 2), 0.5));
+        assertEquals(3, compiled.size(), "Compiled group changed");
+        assertSame(sphere, compiled.findClosestGeoIntersection(new Ray(Point.ZERO, new Vector(0, 0, 1))).geometry,
+                "Compiled group sees a later member");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Empty group
+        CompiledGeometries empty = new Geometries().compile();
+        assertEquals(0, empty.size(), "Empty group has members");
+        assertNull(empty.findIntersections(new Ray(Point.ZERO, new Vector(0, 0, 1))), "Empty group has intersections");
+    }
+
+    /**
+     * Test method for {@link geometries.CompiledGeometries#findGeoIntersectionsHelper(primitives.Ray, double)}.
+     */
+    @Test
+    void testFindGeoIntersections() {
+        // random spheres and triangles of mixed materials, and a plane
+        Random random = new Random(5);
+        Geometries geometries = new Geometries(RandomScenes.objects(random, 60, 3));
+        geometries.add(RandomScenes.FLOOR);
+        CompiledGeometries compiled = geometries.compile();
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Random rays get the same intersections as from the group
+        RandomScenes.assertSameIntersections(geometries, compiled, random, 300);
+    }
+
+    /**
+     * Test method for {@link geometries.CompiledGeometries#findClosestGeoIntersectionsHelper(primitives.Ray[])}.
+     */
+    @Test
+    void testFindClosestGeoIntersections() {
+        // a hierarchy over random objects, and a plane beside it
+        Random random = new Random(9);
+        Geometries geometries = new Geometries(RandomScenes.objects(random, 200, 3)).buildBVH();
+        geometries.add(RandomScenes.FLOOR);
+        CompiledGeometries compiled = geometries.compile();
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Packets of neighboring rays get the same intersections as the rays one by one
+        for (int p = 0; p < 30; ++p) {
+            double x = 10 + random.nextDouble() * 100, y = 10 + random.nextDouble() * 100;
+            Ray[] rays = new Ray[64];
+            for (int i = 0; i < rays.length; ++i)
+                rays[i] = new Ray(new Point(-20, -20, -20), new Vector(x + i % 8 * 0.2, y + i / 8 * 0.2, 60));
+            RandomScenes.assertPackets(compiled, rays);
+        }
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Empty group, and an empty packet
+        assertNull(new Geometries().compile().findClosestGeoIntersections(
+                new Ray[]{new Ray(Point.ZERO, new Vector(0, 0, 1))})[0], "Empty group has intersections");
+        assertEquals(0, compiled.findClosestGeoIntersections(new Ray[0]).length, "Wrong empty packet");
+    }
+}
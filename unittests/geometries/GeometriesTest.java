@@ -1,6 +1,8 @@
 package geometries;
 
 import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -50,4 +52,57 @@ class GeometriesTest {
         assertEquals(7, geometries.findIntersections(new Ray(new Point(0.25, 0.5, -1), v001)).size(),
                 "Wrong number of points");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFindClosestGeoIntersection() {
+        Sphere sphere1 = new Sphere(new Point(0, 0, 5), 1d);
+        Sphere sphere2 = new Sphere(new Point(0, 0, 10), 1d);
+        Plane plane = new Plane(new Point(0, 0, 20), v001);
+        Geometries geometries = new Geometries(plane, sphere2, sphere1);
+        Ray ray = new Ray(p000, v001);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Closest of several geometries, not the first one in the list
+        assertEquals(new Intersectable.GeoPoint(sphere1, new Point(0, 0, 4)),
+                geometries.findClosestGeoIntersection(ray), "Wrong closest intersection");
+
+        // TC02: Ray starts behind the first sphere, the plane is beyond the distance
+        assertEquals(new Intersectable.GeoPoint(sphere2, new Point(0, 0, 9)),
+                geometries.findClosestGeoIntersection(new Ray(new Point(0, 0, 6.5), v001), 10),
+                "Wrong closest intersection within the distance");
+
+        //============ Boundary Values Tests ==================
+
+        // TC11: Empty geometries list
+        assertNull(new Geometries().findClosestGeoIntersection(ray), "Empty geometries list");
+
+        // TC12: All the intersections are farther than the distance
+        assertNull(geometries.findClosestGeoIntersection(ray, 3), "Intersections farther than the distance");
+    }
+
+    @Test
+    void testFindTransparency() {
+        Sphere glass = (Sphere) new Sphere(new Point(0, 0, 5), 1d).setMaterial(new Material().setKt(0.5));
+        Sphere wall = new Sphere(new Point(0, 0, 10), 1d);
+        Geometries geometries = new Geometries(glass, wall);
+        Ray ray = new Ray(p000, v001);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Ray passes twice through a transparent sphere
+        assertEquals(new Double3(0.25), geometries.findTransparency(ray, 7, 0.001),
+                "Wrong transparency through a transparent sphere");
+
+        // TC02: Ray is blocked by an opaque sphere
+        assertEquals(Double3.ZERO, geometries.findTransparency(ray, 20, 0.001), "Ray should be blocked");
+
+        //============ Boundary Values Tests ==================
+
+        // TC11: Nothing before the distance
+        assertEquals(Double3.ONE, geometries.findTransparency(ray, 3, 0.001), "Nothing before the distance");
+
+        // TC12: Empty geometries list
+        assertEquals(Double3.ONE, new Geometries().findTransparency(ray, 20, 0.001), "Empty geometries list");
+    }
+}
@@ -0,0 +1,84 @@
+package geometries;
+
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Random scenes for the tests of the acceleration structures, and the checks that an accelerated group
+ * finds the same intersections as the flat group of the same objects, and for packets of rays the same
+ * intersections as for the rays one by one
+ */
+final class RandomScenes {
+
+    /**
+     * The unbounded plane below the cube of the random objects
+     */
+    static final Plane FLOOR = new Plane(new Point(0, 0, -10), new Vector(0, 0, 1));
+
+    private RandomScenes() {
+    }
+
+    /**
+     * Creates small spheres and triangles spread in the cube of (0,0,0) - (100,100,100),
+     * two thirds of them transparent
+     *
+     * @param random the generator of the positions and the sizes
+     * @param amount the amount of the objects
+     * @param size   the maximal radius of a sphere is 1 + size, and the legs of a triangle are 1 + size
+     * @return the objects
+     */
+    static Intersectable[] objects(Random random, int amount, double size) {
+        Intersectable[] objects = new Intersectable[amount];
+        for (int i = 0; i < amount; ++i) {
+            Point c = new Point(random.nextDouble() * 100, random.nextDouble() * 100, random.nextDouble() * 100);
+            Geometry geo = i % 2 == 0 ? new Sphere(c, 1 + random.nextDouble() * size)
+                    : new Triangle(c, c.add(new Vector(1 + size, 0, 1)), c.add(new Vector(0, 1 + size, 1)));
+            if (i % 3 != 0)
+                geo.setMaterial(new Material().setKt(0.9));
+            objects[i] = geo;
+        }
+        return objects;
+    }
+
+    /**
+     * Checks that random rays from outside the cube of the objects get the same intersections,
+     * closest intersection and transparency from an accelerated group as from the flat group
+     *
+     * @param flat        the flat group
+     * @param accelerated the accelerated group of the same objects
+     * @param random      the generator of the rays
+     * @param amount      the amount of the rays
+     */
+    static void assertSameIntersections(Geometries flat, Intersectable accelerated, Random random, int amount) {
+        for (int i = 0; i < amount; ++i) {
+            Ray ray = new Ray(new Point(-20, -20, -20),
+                    new Vector(10 + random.nextDouble() * 100, 10 + random.nextDouble() * 100, 10 + random.nextDouble() * 100));
+            assertEquals(flat.findGeoIntersections(ray), accelerated.findGeoIntersections(ray), "Wrong intersections");
+            assertEquals(flat.findGeoIntersections(ray, 80), accelerated.findGeoIntersections(ray, 80),
+                    "Wrong intersections up to a distance");
+            assertEquals(ray.findClosestGeoPoint(flat.findGeoIntersections(ray)),
+                    accelerated.findClosestGeoIntersection(ray), "Wrong closest intersection");
+            assertEquals(flat.findTransparency(ray, 80, 0.001), accelerated.findTransparency(ray, 80, 0.001),
+                    "Wrong transparency");
+        }
+    }
+
+    /**
+     * Checks that a packet of rays gets the same closest intersections from a group as its rays get
+     * one by one
+     *
+     * @param group the group
+     * @param rays  the rays
+     */
+    static void assertPackets(Intersectable group, Ray[] rays) {
+        Intersectable.GeoPoint[] closest = group.findClosestGeoIntersections(rays);
+        for (int i = 0; i < rays.length; ++i)
+            assertEquals(group.findClosestGeoIntersection(rays[i]), closest[i], "Wrong closest intersection");
+    }
+}
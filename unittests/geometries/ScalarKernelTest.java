@@ -0,0 +1,185 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScalarKernelTest {
+
+    private final Kernel kernel = new ScalarKernel();
+    private final double inf = Double.POSITIVE_INFINITY;
+
+    private final BoundingBox[] boxes = {
+            new BoundingBox(new Point(0, 0, 0), new Point(1, 1, 1)),
+            new BoundingBox(new Point(2, 0, 0), new Point(3, 1, 1)),
+            new BoundingBox(new Point(0, 2, 0), new Point(1, 3, 1)),
+            new BoundingBox(new Point(-1, -1, 4), new Point(4, 4, 5))
+    };
+    private final Point[] triangles = {
+            new Point(0, 0, 0), new Point(1, 0, 0), new Point(0, 1, 0),
+            new Point(2, 0, 0), new Point(3, 0, 0), new Point(2, 1, 0),
+            new Point(0, 0, 2), new Point(1, 0, 2), new Point(0, 1, 2),
+            new Point(0, 0, 0), new Point(0, 1, 0), new Point(0, 0, 1)
+    };
+
+    /**
+     * Packs boxes into a block of boxes, the missing lanes filled with a box at infinity
+     *
+     * @param boxes the boxes
+     * @return the block
+     */
+    private static double[] boxBlock(BoundingBox... boxes) {
+        double[] block = new double[Kernel.BOX_BLOCK];
+        Arrays.fill(block, Double.POSITIVE_INFINITY);
+        for (int l = 0; l < boxes.length; ++l) {
+            block[l] = boxes[l].minX;
+            block[Kernel.WIDTH + l] = boxes[l].minY;
+            block[2 * Kernel.WIDTH + l] = boxes[l].minZ;
+            block[3 * Kernel.WIDTH + l] = boxes[l].maxX;
+            block[4 * Kernel.WIDTH + l] = boxes[l].maxY;
+            block[5 * Kernel.WIDTH + l] = boxes[l].maxZ;
+        }
+        return block;
+    }
+
+    /**
+     * Packs the vertices of triangles into a block of triangles
+     *
+     * @param vertices the vertices, 3 for each triangle
+     * @return the block
+     */
+    private static double[] triangleBlock(Point... vertices) {
+        double[] block = new double[Kernel.TRIANGLE_BLOCK];
+        for (int f = 0; f < vertices.length / 3; ++f)
+            for (int v = 0; v < 3; ++v) {
+                block[3 * v * Kernel.WIDTH + f] = vertices[3 * f + v].getX();
+                block[(3 * v + 1) * Kernel.WIDTH + f] = vertices[3 * f + v].getY();
+                block[(3 * v + 2) * Kernel.WIDTH + f] = vertices[3 * f + v].getZ();
+            }
+        return block;
+    }
+
+    /**
+     * Tests the distances of a ray to a block of boxes against the test of each box
+     *
+     * @param block       the block of the boxes
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray head
+     */
+    private void assertBoxDistances(double[] block, Ray ray, double maxDistance) {
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        double[] distances = new double[Kernel.WIDTH];
+        kernel.boxDistances(block, 0, 0, Kernel.WIDTH, head.getX(), head.getY(), head.getZ(),
+                1 / direction.getX(), 1 / direction.getY(), 1 / direction.getZ(), maxDistance, distances);
+        for (int l = 0; l < Kernel.WIDTH; ++l) {
+            double expected = boxes[l].distance(ray, maxDistance);
+            if (expected == inf)
+                assertEquals(inf, distances[l], "Wrong distance of lane " + l + " - the ray misses the box");
+            else
+                assertEquals(expected, distances[l], 1e-10, "Wrong distance of lane " + l);
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.ScalarKernel#boxDistances(double[], int, int, int, double, double, double,
+     * double, double, double, double, double[])}.
+     */
+    @Test
+    void testBoxDistances() {
+        double[] block = boxBlock(boxes);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Ray crosses some of the boxes and misses the others
+        assertBoxDistances(block, new Ray(new Point(-1, 0.5, 0.5), new Vector(1, 0.1, 0.2)), inf);
+
+        // TC02: Ray starts inside a box
+        assertBoxDistances(block, new Ray(new Point(0.5, 0.5, 0.5), new Vector(1, 2, 3)), inf);
+
+        // TC03: Boxes behind the ray
+        assertBoxDistances(block, new Ray(new Point(0.5, 0.5, 6), new Vector(0.1, 0.2, 1)), inf);
+
+        // TC04: Boxes beyond the maximal distance
+        assertBoxDistances(block, new Ray(new Point(0.5, 0.5, -2), new Vector(0.1, 0.1, 1)), 3);
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Ray parallel to the slabs of two axes
+        assertBoxDistances(block, new Ray(new Point(0.5, 2.5, -1), new Vector(0, 0, 1)), inf);
+
+        // TC12: Ray along the faces of the boxes (a zero direction on the border of a slab)
+        assertBoxDistances(block, new Ray(new Point(1, 0, -1), new Vector(0, 0, 1)), inf);
+        assertBoxDistances(block, new Ray(new Point(-1, 1, 0), new Vector(1, 0, 0)), inf);
+
+        // TC13: A block of one box - the lanes at infinity are missed by any ray
+        double[] distances = new double[Kernel.WIDTH];
+        for (Vector direction : new Vector[]{new Vector(1, 1, 1), new Vector(-1, -1, -1), new Vector(0, 0, 1)}) {
+            kernel.boxDistances(boxBlock(boxes[0]), 0, 0, Kernel.WIDTH, 0.5, 0.5, 0.5,
+                    1 / direction.getX(), 1 / direction.getY(), 1 / direction.getZ(), inf, distances);
+            assertEquals(0, distances[0], "Ray starts inside the box");
+            for (int l = 1; l < Kernel.WIDTH; ++l)
+                assertEquals(inf, distances[l], "Ray hits a box at infinity");
+        }
+
+        // TC14: Range of lanes - the lanes out of the range are left as they are
+        distances = new double[]{-1, -1, -1, -1};
+        kernel.boxDistances(block, 0, 1, 3, -1, 0.5, 0.5, 1, inf, inf, inf, distances);
+        assertEquals(-1, distances[0], "Lane before the range was tested");
+        assertEquals(3, distances[1], 1e-10, "Wrong distance of a lane in the range");
+        assertEquals(inf, distances[2], "Wrong distance of a lane in the range");
+        assertEquals(-1, distances[3], "Lane after the range was tested");
+    }
+
+    /**
+     * Test method for {@link geometries.ScalarKernel#triangleDistances(double[], int, int, int, double, double,
+     * double, double, double, double, double, double[])}.
+     */
+    @Test
+    void testTriangleDistances() {
+        double[] block = triangleBlock(triangles);
+        double[] distances = new double[Kernel.WIDTH];
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Ray crosses the first and the third triangles, misses the second and is parallel to the fourth
+        kernel.triangleDistances(block, 0, 0, Kernel.WIDTH, 0.25, 0.25, -1, 0, 0, 1, inf, distances);
+        assertEquals(1, distances[0], 1e-10, "Wrong distance to a crossed triangle");
+        assertTrue(Double.isNaN(distances[1]), "Ray misses the triangle");
+        assertEquals(3, distances[2], 1e-10, "Wrong distance to a crossed triangle");
+        assertTrue(Double.isNaN(distances[3]), "Ray is parallel to the triangle");
+
+        // TC02: Triangles behind the ray and beyond the maximal distance
+        kernel.triangleDistances(block, 0, 0, Kernel.WIDTH, 0.25, 0.25, 1, 0, 0, 1, 0.5, distances);
+        assertTrue(Double.isNaN(distances[0]), "Triangle is behind the ray");
+        assertTrue(Double.isNaN(distances[2]), "Triangle is beyond the maximal distance");
+
+        // TC03: Same distances as the test of a single triangle
+        Ray ray = new Ray(new Point(2.2, 0.2, 5), new Vector(0.01, 0.01, -1));
+        Vector direction = ray.getDirection();
+        kernel.triangleDistances(block, 0, 0, Kernel.WIDTH, 2.2, 0.2, 5,
+                direction.getX(), direction.getY(), direction.getZ(), inf, distances);
+        Point hit = new Triangle(triangles[3], triangles[4], triangles[5]).findIntersections(ray).getFirst();
+        assertEquals(hit.distance(ray.getHead()), distances[1], 1e-10, "Wrong distance to a crossed triangle");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Ray through an edge and through a vertex - the edges are included
+        kernel.triangleDistances(block, 0, 0, Kernel.WIDTH, 0.5, 0, -1, 0, 0, 1, inf, distances);
+        assertEquals(1, distances[0], 1e-10, "Ray through an edge hits the triangle");
+        kernel.triangleDistances(block, 0, 0, Kernel.WIDTH, 1, 0, -1, 0, 0, 1, inf, distances);
+        assertEquals(1, distances[0], 1e-10, "Ray through a vertex hits the triangle");
+
+        // TC12: Range of lanes - the lanes out of the range are left as they are
+        distances = new double[]{-1, -1, -1, -1};
+        kernel.triangleDistances(block, 0, 2, 3, 0.25, 0.25, -1, 0, 0, 1, inf, distances);
+        assertEquals(-1, distances[0], "Lane before the range was tested");
+        assertEquals(3, distances[2], 1e-10, "Wrong distance of a lane in the range");
+        assertEquals(-1, distances[3], "Lane after the range was tested");
+    }
+}
@@ -0,0 +1,199 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TriangleMeshTest {
+
+    private final Point p000 = new Point(0, 0, 0);
+    private final Point p100 = new Point(1, 0, 0);
+    private final Point p010 = new Point(0, 1, 0);
+    private final Point p110 = new Point(1, 1, 0);
+    private final Vector v001 = new Vector(0, 0, 1);
+
+    /**
+     * A unit square on the xy plane made of two faces
+     */
+    private final TriangleMesh square = new TriangleMesh(new Point[]{p000, p100, p110, p010}, new int[]{0, 1, 2, 0, 2, 3});
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#TriangleMesh(double[], int[])}.
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Correct mesh
+        assertDoesNotThrow(() -> new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, new int[]{0, 1, 2}),
+                "Failed constructing a correct mesh");
+
+        // TC02: Coordinates are not triples
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1}, new int[]{0, 1, 2}),
+                "Constructed a mesh with a broken vertex");
+
+        // TC03: Face with 2 vertices
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new Point[]{p000, p100, p010}, new int[]{0, 1, 2, 0}),
+                "Constructed a mesh with a broken face");
+
+        // TC04: Index out of range
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new Point[]{p000, p100, p010}, new int[]{0, 1, 3}),
+                "Constructed a mesh with a missing vertex");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Face with vertices on a line
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new Point[]{p000, p100, new Point(2, 0, 0)}, new int[]{0, 1, 2}),
+                "Constructed a mesh with a degenerated face");
+
+        // TC12: Mesh without faces
+        assertEquals(0, new TriangleMesh(new Point[]{p000}, new int[0]).size(), "Wrong amount of faces");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#getNormal(primitives.Point)}.
+     */
+    @Test
+    void testGetNormal() {
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Point inside the second face
+        assertEquals(v001, square.getNormal(new Point(0.25, 0.75, 0)), "Wrong normal");
+
+        // TC02: Point outside the mesh
+        assertThrows(IllegalArgumentException.class, () -> square.getNormal(new Point(2, 2, 0)),
+                "Found a normal for a point outside the mesh");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Point on the edge shared by the faces
+        assertEquals(v001, square.getNormal(new Point(0.5, 0.5, 0)), "Wrong normal on an edge");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#findGeoIntersectionsHelper(primitives.Ray, double)}.
+     */
+    @Test
+    void testFindGeoIntersections() {
+        // a bumpy surface of 20x20 squares, both as a mesh and as separate triangles
+        Random random = new Random(11);
+        int size = 21;
+        Point[] vertices = new Point[size * size];
+        for (int i = 0; i < size; ++i)
+            for (int j = 0; j < size; ++j)
+                vertices[i * size + j] = new Point(i * 5, j * 5, random.nextDouble() * 10);
+        int[] indices = new int[(size - 1) * (size - 1) * 6];
+        Geometries triangles = new Geometries();
+        int k = 0;
+        for (int i = 0; i < size - 1; ++i)
+            for (int j = 0; j < size - 1; ++j) {
+                int a = i * size + j, b = a + size, c = b + 1, d = a + 1;
+                indices[k++] = a;
+                indices[k++] = b;
+                indices[k++] = c;
+                indices[k++] = a;
+                indices[k++] = c;
+                indices[k++] = d;
+                triangles.add(new Triangle(vertices[a], vertices[b], vertices[c]),
+                        new Triangle(vertices[a], vertices[c], vertices[d]));
+            }
+        TriangleMesh mesh = new TriangleMesh(vertices, indices);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Rays crossing the surface get the same intersections as the separate triangles
+        for (int i = 0; i < 500; ++i) {
+            Ray ray = new Ray(new Point(random.nextDouble() * 100, random.nextDouble() * 100, -20),
+                    new Vector(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1, 1));
+            assertEquals(triangles.findIntersections(ray), mesh.findIntersections(ray), "Wrong intersections");
+            Intersectable.GeoPoint expected = ray.findClosestGeoPoint(triangles.findGeoIntersections(ray));
+            Intersectable.GeoPoint closest = mesh.findClosestGeoIntersection(ray);
+            assertEquals(expected == null ? null : expected.point, closest == null ? null : closest.point,
+                    "Wrong closest intersection");
+            if (closest != null)
+                assertEquals(expected.getNormal(), closest.getNormal(), "Wrong normal of the intersection");
+        }
+
+        // TC02: Ray crossing the square (1 point)
+        assertEquals(List.of(new Point(0.25, 0.75, 0)),
+                square.findIntersections(new Ray(new Point(0.25, 0.75, 1), v001.scale(-1))), "Wrong intersection");
+
+        // TC03: Ray missing the square (0 points)
+        assertNull(square.findIntersections(new Ray(new Point(2, 2, 1), v001.scale(-1))), "Ray misses the mesh");
+
+        // TC04: Intersection farther than the distance (0 points)
+        assertNull(square.findGeoIntersections(new Ray(new Point(0.25, 0.75, 1), v001.scale(-1)), 0.5),
+                "Intersection beyond the distance");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Ray through the edge shared by the faces (1 point)
+        assertEquals(new Point(0.5, 0.5, 0),
+                square.findClosestGeoIntersection(new Ray(new Point(0.5, 0.5, 1), v001.scale(-1))).point,
+                "Ray slipped between the faces");
+
+        // TC12: Ray on the plane of the square (0 points)
+        assertNull(square.findIntersections(new Ray(new Point(-1, 0.5, 0), new Vector(1, 0, 0))),
+                "Ray on the plane of the mesh");
+
+        // TC13: Ray starts on the square (0 points)
+        assertNull(square.findIntersections(new Ray(new Point(0.25, 0.75, 0), v001)), "Ray starts on the mesh");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#findTransparency(primitives.Ray, double, double)}.
+     */
+    @Test
+    void testFindTransparency() {
+        // two parallel squares
+        TriangleMesh mesh = new TriangleMesh(
+                new double[]{0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0, 0, 0, 1, 1, 0, 1, 1, 1, 1, 0, 1, 1},
+                new int[]{0, 1, 2, 0, 2, 3, 4, 5, 6, 4, 6, 7});
+        Ray ray = new Ray(new Point(0.25, 0.75, -1), v001);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Ray crosses both transparent squares
+        mesh.setMaterial(new Material().setKt(0.5));
+        assertEquals(new Double3(0.25), mesh.findTransparency(ray, 5, 0.001), "Wrong transparency");
+
+        // TC02: Ray crosses one transparent square before the distance
+        assertEquals(new Double3(0.5), mesh.findTransparency(ray, 1.5, 0.001), "Wrong transparency");
+
+        // TC03: Opaque mesh blocks the ray
+        mesh.setMaterial(new Material());
+        assertEquals(Double3.ZERO, mesh.findTransparency(ray, 5, 0.001), "Opaque mesh didn't block the ray");
+
+        // TC04: Ray misses the mesh
+        assertEquals(Double3.ONE, mesh.findTransparency(new Ray(new Point(2, 2, -1), v001), 5, 0.001),
+                "Ray missed the mesh");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#getBoundingBox()}.
+     */
+    @Test
+    void testGetBoundingBox() {
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Box of the square
+        assertEquals(new BoundingBox(p000, p110), square.getBoundingBox(), "Wrong bounding box");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Mesh without faces
+        assertTrue(new TriangleMesh(new Point[]{p000}, new int[0]).getBoundingBox().isEmpty(), "Box of empty mesh");
+    }
+}
@@ -0,0 +1,124 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UniformGridTest {
+
+    private final Point p000 = new Point(0, 0, 0);
+    private final Vector v001 = new Vector(0, 0, 1);
+
+    /**
+     * Test method for {@link geometries.UniformGrid#findGeoIntersectionsHelper(primitives.Ray, double)}.
+     */
+    @Test
+    void testFindGeoIntersections() {
+        // many small spheres and triangles spread in a cube, and an unbounded plane below them
+        Random random = new Random(5);
+        Intersectable[] objects = RandomScenes.objects(random, 300, 6);
+        Geometries flat = new Geometries(objects);
+        flat.add(RandomScenes.FLOOR);
+        UniformGrid grid = new UniformGrid(new Geometries(objects), RandomScenes.FLOOR);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Rays from outside the grid get the same sorted intersections as the flat list
+        RandomScenes.assertSameIntersections(flat, grid, random, 500);
+
+        // TC02: Rays starting inside the grid, in all the directions
+        for (int i = 0; i < 500; ++i) {
+            Ray ray = new Ray(new Point(random.nextDouble() * 100, random.nextDouble() * 100, random.nextDouble() * 100),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+            assertEquals(flat.findGeoIntersections(ray), grid.findGeoIntersections(ray), "Wrong intersections");
+            assertEquals(ray.findClosestGeoPoint(flat.findGeoIntersections(ray, 30)),
+                    grid.findClosestGeoIntersection(ray, 30), "Wrong closest intersection");
+            assertEquals(flat.findTransparency(ray, 50, 0.001), grid.findTransparency(ray, 50, 0.001),
+                    "Wrong transparency");
+        }
+
+        // TC03: Ray misses the bounded objects but hits the plane (1 point)
+        assertEquals(List.of(new Point(-50, -50, -10)),
+                grid.findIntersections(new Ray(new Point(-50, -50, 0), v001.scale(-1))), "Wrong plane intersection");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Empty grid (0 points)
+        assertNull(new UniformGrid().findGeoIntersections(new Ray(p000, v001)), "Empty grid");
+        assertNull(new UniformGrid().findClosestGeoIntersection(new Ray(p000, v001)), "Empty grid");
+
+        // TC12: Ray along an axis, parallel to the cell borders
+        Ray ray = new Ray(new Point(50.5, 50.5, -5), v001);
+        assertEquals(flat.findGeoIntersections(ray), grid.findGeoIntersections(ray), "Wrong intersections along an axis");
+
+        // TC13: Sphere spanning many cells is counted once (2 points)
+        UniformGrid big = new UniformGrid(new Sphere(new Point(0, 0, 0), 10d), new Sphere(new Point(30, 30, 30), 1d));
+        assertEquals(2, big.findGeoIntersections(new Ray(new Point(-20, 0, 0), new Vector(1, 0, 0))).size(),
+                "Object listed in several cells tested more than once");
+
+        // TC14: Objects in a plane - the grid is flat along an axis
+        UniformGrid flatGrid = new UniformGrid(
+                new Triangle(new Point(0, 0, 0), new Point(4, 0, 0), new Point(0, 4, 0)),
+                new Triangle(new Point(10, 10, 0), new Point(14, 10, 0), new Point(10, 14, 0)));
+        assertEquals(List.of(new Point(11, 11, 0)),
+                flatGrid.findIntersections(new Ray(new Point(11, 11, 5), v001.scale(-1))), "Wrong flat grid intersection");
+    }
+
+    /**
+     * Test method for {@link geometries.UniformGrid#getResolution()}.
+     */
+    @Test
+    void testGetResolution() {
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Objects spread in a long box get more cells along its length
+        Random random = new Random(1);
+        Geometries spheres = new Geometries();
+        for (int i = 0; i < 1000; ++i)
+            spheres.add(new Sphere(new Point(random.nextDouble() * 400, random.nextDouble() * 100,
+                    random.nextDouble() * 100), 1d));
+        int[] resolution = new UniformGrid(spheres).getResolution();
+        assertTrue(resolution[0] > 2 * resolution[1] && resolution[0] > 2 * resolution[2], "Wrong proportions");
+        int cells = resolution[0] * resolution[1] * resolution[2];
+        assertTrue(cells >= 1000 && cells <= 16000, "Wrong amount of cells");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: A single object gets a few cells
+        resolution = new UniformGrid(new Sphere(p000, 1d)).getResolution();
+        assertTrue(resolution[0] * resolution[1] * resolution[2] <= 8, "Too many cells for a single object");
+
+        // TC12: Objects in a plane - the grid is divided along the plane only
+        resolution = new UniformGrid(new Triangle(p000, new Point(1, 0, 0), new Point(0, 1, 0)),
+                new Triangle(new Point(100, 0, 0), new Point(101, 0, 0), new Point(100, 1, 0))).getResolution();
+        assertEquals(1, resolution[2], "Flat grid divided across its plane");
+        assertTrue(resolution[0] > 1, "Flat grid not divided along its plane");
+
+        // TC13: Grid without bounded objects
+        assertArrayEquals(new int[3], new UniformGrid(new Plane(p000, v001)).getResolution(),
+                "Wrong resolution of an empty grid");
+    }
+
+    /**
+     * Test method for {@link geometries.UniformGrid#getBoundingBox()}.
+     */
+    @Test
+    void testGetBoundingBox() {
+        Sphere sphere = new Sphere(p000, 1d);
+        Triangle triangle = new Triangle(new Point(2, 0, 0), new Point(3, 0, 0), new Point(2, 4, 0));
+
+        // TC01: The box of the grid bounds all its objects
+        assertEquals(new BoundingBox(new Point(-1, -1, -1), new Point(3, 4, 1)),
+                new UniformGrid(sphere, triangle).getBoundingBox(), "Wrong bounding box");
+
+        // TC02: A grid with an unbounded object is unbounded
+        assertFalse(new UniformGrid(sphere, new Plane(p000, v001)).getBoundingBox().isBounded(),
+                "Grid should be unbounded");
+    }
+}
@@ -0,0 +1,61 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccumulationBufferTest {
+
+    /**
+     * Test method for {@link renderer.AccumulationBuffer#getColor(int, int)}.
+     */
+    @Test
+    void testGetColor() {
+        AccumulationBuffer buffer = new AccumulationBuffer(3, 2);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Average of the samples of a pixel
+        buffer.add(2, 1, new Color(100, 200, 300));
+        buffer.add(2, 1, new Color(300, 0, 100));
+        Color average = buffer.getColor(2, 1);
+        assertEquals(200, average.getRed(), 1e-5, "Wrong average red");
+        assertEquals(100, average.getGreen(), 1e-5, "Wrong average green");
+        assertEquals(200, average.getBlue(), 1e-5, "Wrong average blue");
+        assertEquals(2, buffer.getCount(2, 1), "Wrong amount of samples");
+
+        // TC02: Samples of a pixel don't change the others
+        assertEquals(0, buffer.getCount(1, 1), "Samples added to another pixel");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Pixel without samples
+        assertSame(Color.BLACK, buffer.getColor(0, 0), "Pixel without samples is not black");
+    }
+
+    /**
+     * Test method for {@link renderer.AccumulationBuffer#getNoise(int, int)}.
+     */
+    @Test
+    void testGetNoise() {
+        AccumulationBuffer buffer = new AccumulationBuffer(2, 1);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Samples 10 and 30 - deviation 14.14, standard error 10
+        buffer.add(0, 0, new Color(10, 10, 10));
+        buffer.add(0, 0, new Color(30, 30, 30));
+        assertEquals(10, buffer.getNoise(0, 0), 1e-9, "Wrong noise");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Equal samples
+        buffer.add(1, 0, new Color(0, 90, 30));
+        buffer.add(1, 0, new Color(30, 60, 30));
+        assertEquals(0, buffer.getNoise(1, 0), 1e-9, "Equal brightness is not noise");
+
+        // TC12: No samples
+        assertEquals(Double.POSITIVE_INFINITY, new AccumulationBuffer(1, 1).getNoise(0, 0), "Noise without samples");
+    }
+}
@@ -3,12 +3,28 @@ package renderer;
 import geometries.Sphere;
 import geometries.Triangle;
 import lighting.AmbientLight;
+import lighting.PointLight;
 import org.junit.jupiter.api.Test;
 import primitives.*;
 import scene.Scene;
 
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.awt.Color.BLUE;
+import static java.awt.Color.RED;
 import static java.awt.Color.YELLOW;
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 //import scene.Scene;
 
 /**
@@ -72,6 +88,28 @@ class CameraTest {
     }
 
 
+    /**
+     * Test method for
+     * {@link renderer.Camera#constructRays(int, int, int, int, int)}.
+     */
+    @Test
+    void testConstructRays() {
+        Camera camera = cameraBuilder.setVpSize(8, 8).build();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: 4X4 Inside (1,1) - all the rays pass through the pixel, at the distance of the view plane
+        for (Ray ray : camera.constructRays(4, 4, 1, 1, 50)) {
+            Point p = ray.getPoint(10 / -ray.getDirection().getZ());
+            assertTrue(p.getX() >= 0 && p.getX() <= 2 && p.getY() <= 0 && p.getY() >= -2, "Ray out of the pixel");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // BV01: The rays follow the camera when it is turned after constructing rays
+        camera.constructRay(4, 4, 1, 1);
+        camera.lookAt(new Point(0, 0, 10), new Vector(0, 1, 0));
+        assertTrue(camera.constructRay(4, 4, 1, 1).getDirection().getZ() > 0, "Ray of the old direction");
+    }
+
     @Test
     public void testLookAt() {
 
@@ -125,5 +163,442 @@ class CameraTest {
 
     }
 
+    /**
+     * Test method for {@link renderer.Camera#renderImage()} with the different kinds of parallelism.
+     */
+    @Test
+    void testRenderImage() {
+        Scene scene = new Scene("Render Test Scene");
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50d).setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(20)),
+                new Sphere(new Point(40, 30, -80), 15d).setEmission(new Color(RED)));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(-60, 60, 0)).setKl(0.0004));
+        scene.setBackground(new Color(75, 127, 90));
+        final Camera.Builder builder = Camera.getBuilder()
+                .setRayTracer(new SimpleRayTracer(scene))
+                .setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpDistance(100)
+                .setVpSize(200, 200)
+                .setTileSize(8);
+        // the image rendered in the calling thread, which the parallel renders must reproduce
+        ImageWriter expected = new ImageWriter("Render Test", 70, 50);
+        builder.setImageWriter(expected).setThreadsCount(0).build().renderImage();
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: The same camera renders twice with its own threads
+        ImageWriter threads = new ImageWriter("Threads Render Test", 70, 50);
+        Camera camera = builder.setImageWriter(threads).setThreadsCount(3).build();
+        camera.renderImage();
+        assertSameImage(expected, threads);
+        camera.renderImage();
+        assertSameImage(expected, threads);
+
+        // TC02: Rendering on an executor of the user, which stays usable
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ImageWriter onExecutor = new ImageWriter("Executor Render Test", 70, 50);
+            Camera executorCamera = builder.setImageWriter(onExecutor).setExecutor(executor).build();
+            executorCamera.renderImage();
+            assertSameImage(expected, onExecutor);
+            executorCamera.renderImage();
+            assertSameImage(expected, onExecutor);
+            assertFalse(executor.isShutdown(), "Camera shut the executor down");
+        } finally {
+            executor.shutdown();
+        }
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Rendering on all the cores
+        ImageWriter allCores = new ImageWriter("All Cores Render Test", 70, 50);
+        builder.setImageWriter(allCores).setExecutor(null).setThreadsCount(-1).build().renderImage();
+        assertSameImage(expected, allCores);
+
+        // TC12: Bad threads count and tile size
+        assertThrows(IllegalArgumentException.class, () -> builder.setThreadsCount(-2), "Bad threads count");
+        assertThrows(IllegalArgumentException.class, () -> builder.setTileSize(0), "Bad tile size");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderImage()} tracing the rays in packets.
+     */
+    @Test
+    void testRenderPackets() {
+        // enough spheres for a bounding volume hierarchy, lighted from aside, so they cast shadows on each other
+        Scene scene = new Scene("Packet Test Scene");
+        Material material = new Material().setKd(0.5).setKs(0.5).setShininess(20);
+        Material glass = new Material().setKd(0.2).setKs(0.5).setShininess(20).setKt(0.5);
+        for (int i = 0; i < 30; ++i)
+            scene.geometries.add(new Sphere(new Point(i % 6 * 30 - 75, i / 6 * 30 - 60, -200 - i % 4 * 20), 14d)
+                    .setEmission(new Color(40, 60, 80)).setMaterial(i % 5 == 0 ? glass : material));
+        scene.geometries.add(new Triangle(new Point(-150, -150, -300), new Point(150, -150, -300),
+                new Point(0, 150, -300)).setEmission(new Color(30, 30, 30)).setMaterial(material));
+        scene.lights.add(new PointLight(new Color(500, 400, 300), new Point(-150, 150, 0)));
+        scene.setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        final Camera.Builder builder = Camera.getBuilder()
+                .setRayTracer(new SimpleRayTracer(scene))
+                .setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpDistance(100)
+                .setVpSize(100, 100)
+                .setTileSize(16)
+                .setThreadsCount(0);
+        // the blocks of the packets don't fit the image or the tiles
+        ImageWriter single = new ImageWriter("Single Rays Test", 70, 50);
+        builder.setImageWriter(single).setPacketSize(1).build().renderImage();
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Packets of 8x8 pixels render the same image as single rays
+        ImageWriter packets = new ImageWriter("Packets Test", 70, 50);
+        builder.setImageWriter(packets).setPacketSize(8).build().renderImage();
+        assertSameImage(single, packets);
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Packets bigger than the tiles
+        packets = new ImageWriter("Big Packets Test", 70, 50);
+        builder.setImageWriter(packets).setPacketSize(40).build().renderImage();
+        assertSameImage(single, packets);
+
+        // TC12: Bad packet size
+        assertThrows(IllegalArgumentException.class, () -> builder.setPacketSize(0), "Bad packet size");
+    }
+
+    /**
+     * Checks that two images have the same pixels
+     *
+     * @param expected the expected image
+     * @param actual   the actual image
+     */
+    private static void assertSameImage(ImageWriter expected, ImageWriter actual) {
+        float[] expectedRow = new float[3 * expected.getNx()];
+        float[] actualRow = new float[3 * actual.getNx()];
+        for (int y = 0; y < expected.getNy(); ++y) {
+            expected.getFrameBuffer().getRow(y, expectedRow);
+            actual.getFrameBuffer().getRow(y, actualRow);
+            assertArrayEquals(expectedRow, actualRow, "Wrong pixels in row " + y);
+        }
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderImageAsync(RenderListener)}.
+     */
+    @Test
+    void testRenderImageAsync() throws Exception {
+        Scene scene = new Scene("Async Test Scene");
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50d));
+        final Camera.Builder builder = Camera.getBuilder()
+                .setRayTracer(new SimpleRayTracer(scene))
+                .setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpDistance(100)
+                .setVpSize(200, 200)
+                .setImageWriter(new ImageWriter("Async Test", 40, 30))
+                .setTileSize(16);
+        AtomicInteger tiles = new AtomicInteger();
+        AtomicInteger pixels = new AtomicInteger();
+        RenderListener listener = new RenderListener() {
+            @Override
+            public void tileDone(int fromCol, int fromRow, int toCol, int toRow) {
+                tiles.incrementAndGet();
+                pixels.addAndGet((toCol - fromCol) * (toRow - fromRow));
+            }
+        };
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: All the tiles are reported before the future completes
+        Camera camera = builder.setThreadsCount(2).build();
+        assertSame(camera, camera.renderImageAsync(listener).get(10, TimeUnit.SECONDS), "Wrong result");
+        assertEquals(6, tiles.get(), "Wrong amount of tiles");
+        assertEquals(40 * 30, pixels.get(), "Wrong amount of pixels");
+
+        // TC02: Cancelled render doesn't render the tiles which didn't start
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch blocker = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException ignore) {
+            }
+        });
+        tiles.set(0);
+        CompletableFuture<Camera> render = builder.setExecutor(executor).build().renderImageAsync(listener);
+        assertTrue(render.cancel(true), "Failed cancelling");
+        blocker.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS), "Cancelled tiles kept running");
+        assertTrue(render.isCancelled(), "Render not cancelled");
+        assertEquals(0, tiles.get(), "Cancelled tiles were rendered");
+
+        // TC03: A render waiting for the threads renders the scene as it was when it started,
+        // while the next render (of the changed scene) starts
+        executor = Executors.newSingleThreadExecutor();
+        CountDownLatch waiting = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                waiting.await();
+            } catch (InterruptedException ignore) {
+            }
+        });
+        Scene frames = new Scene("Frames Test Scene").setBackground(new Color(RED));
+        builder.setRayTracer(new SimpleRayTracer(frames)).setExecutor(executor);
+        ImageWriter first = new ImageWriter("First Frame Test", 40, 30);
+        CompletableFuture<Camera> firstRender = builder.setImageWriter(first).build().renderImageAsync();
+        frames.setBackground(new Color(BLUE));
+        ImageWriter second = new ImageWriter("Second Frame Test", 40, 30);
+        CompletableFuture<Camera> secondRender = builder.setImageWriter(second).build().renderImageAsync();
+        waiting.countDown();
+        firstRender.get(10, TimeUnit.SECONDS);
+        secondRender.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+        float[] row = new float[3 * 40];
+        first.getFrameBuffer().getRow(15, row);
+        assertEquals(255, row[0], "First frame sees the changed scene");
+        second.getFrameBuffer().getRow(15, row);
+        assertEquals(255, row[2], "Second frame doesn't see the changed scene");
+        builder.setRayTracer(new SimpleRayTracer(scene)).setImageWriter(new ImageWriter("Async Test", 40, 30));
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Executor which rejects the tiles after a few are queued - the render fails and is cancelled
+        ThreadPoolExecutor bounded = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(2));
+        CountDownLatch busy = new CountDownLatch(1);
+        bounded.execute(() -> {
+            try {
+                busy.await();
+            } catch (InterruptedException ignore) {
+            }
+        });
+        tiles.set(0);
+        CompletableFuture<Camera> rejected = builder.setExecutor(bounded).build().renderImageAsync(listener);
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> rejected.get(10, TimeUnit.SECONDS), "Rejected render didn't fail");
+        assertInstanceOf(RejectedExecutionException.class, failure.getCause(), "Wrong failure");
+        busy.countDown();
+        bounded.shutdown();
+        assertTrue(bounded.awaitTermination(10, TimeUnit.SECONDS), "Queued tiles kept running");
+        assertEquals(0, tiles.get(), "Tiles of a failed render were rendered");
+
+        // TC12: Asynchronous render of a camera set to render in the calling thread
+        assertNotNull(builder.setExecutor(null).setThreadsCount(0).build().renderImageAsync().get(10, TimeUnit.SECONDS),
+                "Failed rendering in the background");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderImage()} with adaptive supersampling.
+     */
+    @Test
+    void testAdaptiveSupersampling() {
+        // a tracer which counts the rays, and sees white on the right of the view and black on the left
+        AtomicInteger traced = new AtomicInteger();
+        RayTracerBase tracer = new RayTracerBase(new Scene("Adaptive Test Scene")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                traced.incrementAndGet();
+                return ray.getDirection().getX() > 0.0123 ? new Color(255, 255, 255) : Color.BLACK;
+            }
+        };
+        Scene flat = new Scene("Flat Test Scene");
+        final Camera.Builder builder = Camera.getBuilder()
+                .setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpDistance(100)
+                .setVpSize(100, 100)
+                .setImageWriter(new ImageWriter("Adaptive Test", 20, 20))
+                .setTileSize(32)
+                .setAntialiasingLevel(4)
+                .setAdaptive(true)
+                .setThreadsCount(0);
 
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Flat image - only the corners of the pixels are traced, each once
+        traced.set(0);
+        builder.setRayTracer(new RayTracerBase(flat) {
+            @Override
+            public Color traceRay(Ray ray) {
+                traced.incrementAndGet();
+                return Color.BLACK;
+            }
+        }).build().renderImage();
+        assertEquals(21 * 21, traced.get(), "Wrong amount of rays in a flat image");
+
+        // TC02: Image with an edge - only the pixels of the edge are divided, up to the maximal depth
+        traced.set(0);
+        builder.setRayTracer(tracer).setAdaptiveMaxDepth(2).build().renderImage();
+        assertTrue(traced.get() > 21 * 21, "Edge was not divided");
+        assertTrue(traced.get() <= 21 * 21 + 20 * (5 * 5 - 4), "Too many rays for one column of edge pixels");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Depth 0 - corners only, even on the edge
+        traced.set(0);
+        builder.setAdaptiveMaxDepth(0).build().renderImage();
+        assertEquals(21 * 21, traced.get(), "Pixels were divided at depth 0");
+
+        // TC12: Every pixel divided - the samples on the edges shared by the pixels are traced once
+        traced.set(0);
+        builder.setRayTracer(new RayTracerBase(flat) {
+            @Override
+            public Color traceRay(Ray ray) {
+                traced.incrementAndGet();
+                // neighboring samples differ by much more than the threshold
+                Vector direction = ray.getDirection();
+                return new Color(Math.floorMod(Math.round(direction.getX() * 4000 + direction.getY() * 8000), 256),
+                        0, 0);
+            }
+        }).setAdaptiveMaxDepth(1).build().renderImage();
+        assertEquals(41 * 41, traced.get(), "Shared samples traced more than once");
+
+        // TC13: Bad depth and threshold
+        assertThrows(IllegalArgumentException.class, () -> builder.setAdaptiveMaxDepth(-1), "Bad depth");
+        assertThrows(IllegalArgumentException.class, () -> builder.setAdaptiveThreshold(-1), "Bad threshold");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderProgressiveAsync(int, RenderListener)}.
+     */
+    @Test
+    void testRenderProgressive() throws Exception {
+        // a tracer which counts the rays, and sees gray
+        AtomicInteger traced = new AtomicInteger();
+        RayTracerBase tracer = new RayTracerBase(new Scene("Progressive Test Scene")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                traced.incrementAndGet();
+                return new Color(100, 100, 100);
+            }
+        };
+        ImageWriter imageWriter = new ImageWriter("Progressive Test", 20, 10);
+        final Camera.Builder builder = Camera.getBuilder()
+                .setRayTracer(tracer)
+                .setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpDistance(100)
+                .setVpSize(100, 50)
+                .setImageWriter(imageWriter)
+                .setSampler(Sampler.HALTON)
+                .setAntialiasingLevel(4)
+                .setThreadsCount(2);
+        AtomicInteger passes = new AtomicInteger();
+        RenderListener listener = new RenderListener() {
+            @Override
+            public void passDone(int done) {
+                assertEquals(passes.incrementAndGet(), done, "Passes reported out of order");
+            }
+        };
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: First pass traces a ray per pixel, the next passes add the antialiasing level
+        Camera camera = builder.build();
+        assertSame(camera, camera.renderProgressiveAsync(3, listener).get(10, TimeUnit.SECONDS), "Wrong result");
+        assertEquals(3, passes.get(), "Wrong amount of passes");
+        assertEquals(20 * 10 * (1 + 4 + 4), traced.get(), "Wrong amount of rays");
+
+        // TC02: Cancelled render stops before the remaining passes
+        passes.set(0);
+        CompletableFuture<Camera> render = camera.renderProgressiveAsync(1000, listener);
+        while (passes.get() == 0)
+            Thread.onSpinWait();
+        assertTrue(render.cancel(true), "Failed cancelling");
+        Thread.sleep(200);
+        assertTrue(passes.get() < 1000, "Cancelled render kept running");
+
+        // TC03: The passes share a single cancel hook on the future of the whole render
+        AtomicReference<CompletableFuture<Camera>> longRender = new AtomicReference<>();
+        AtomicInteger dependents = new AtomicInteger();
+        CompletableFuture<Camera> hooked = camera.renderProgressiveAsync(20, new RenderListener() {
+            @Override
+            public void passDone(int done) {
+                CompletableFuture<Camera> future = longRender.get();
+                if (future != null)
+                    dependents.accumulateAndGet(future.getNumberOfDependents(), Math::max);
+            }
+        });
+        longRender.set(hooked);
+        hooked.get(10, TimeUnit.SECONDS);
+        // the cancel hook, and the waiting get
+        assertTrue(dependents.get() <= 2, "Every pass registered another cancel hook");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Single pass - a ray per pixel
+        traced.set(0);
+        builder.setThreadsCount(0).build().renderProgressive(1);
+        assertEquals(20 * 10, traced.get(), "Wrong amount of rays in a single pass");
+
+        // TC12: No passes
+        assertThrows(IllegalArgumentException.class, () -> camera.renderProgressiveAsync(0, null), "No passes");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderBudgetedAsync(long, double, RenderListener)}.
+     */
+    @Test
+    void testRenderBudgeted() {
+        // a tracer which sees a flat gray on the left half of the view, and noise on the right half
+        Random random = new Random(7);
+        RayTracerBase tracer = new RayTracerBase(new Scene("Budget Test Scene")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                if (ray.getDirection().getX() < 0)
+                    return new Color(100, 100, 100);
+                double value;
+                synchronized (random) {
+                    value = random.nextDouble() * 200;
+                }
+                return new Color(value, value, value);
+            }
+        };
+        final Camera.Builder builder = Camera.getBuilder()
+                .setRayTracer(tracer)
+                .setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpDistance(100)
+                .setVpSize(100, 100)
+                .setImageWriter(new ImageWriter("Budget Test", 10, 10))
+                .setAntialiasingLevel(4)
+                .setThreadsCount(2);
+        Camera camera = builder.build();
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Noise target - the flat pixels stop after the first pass, the noisy ones reach the target
+        RenderStats stats = camera.renderBudgeted(0, 10);
+        assertEquals(4, stats.minSamples(), "Flat pixels got more samples");
+        assertTrue(stats.maxSamples() > 4, "Noisy pixels didn't get more samples");
+        assertTrue(stats.noise() <= 10, "Noise target not reached");
+        assertTrue(stats.passes() > 1, "Wrong amount of passes");
+
+        // TC02: Time budget - stops in time without reaching a target
+        long start = System.nanoTime();
+        stats = camera.renderBudgeted(300, 0);
+        assertTrue(System.nanoTime() - start < 5_000_000_000L, "Budget exceeded");
+        assertTrue(stats.noise() > 0, "Noise can't vanish");
+        assertEquals(4, stats.minSamples(), "Flat pixels got more samples");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Flat image - a single pass
+        builder.setRayTracer(new RayTracerBase(new Scene("Flat Test Scene")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                return Color.BLACK;
+            }
+        });
+        stats = builder.build().renderBudgeted(0, 1);
+        assertEquals(1, stats.passes(), "Flat image took more than a pass");
+        assertEquals(10 * 10 * 4, stats.samples(), "Wrong amount of samples");
+
+        // TC12: Bad budgets
+        assertThrows(IllegalArgumentException.class, () -> camera.renderBudgetedAsync(0, 0, null), "No budget");
+        assertThrows(IllegalArgumentException.class, () -> camera.renderBudgetedAsync(-1, 1, null), "Bad time");
+        assertThrows(IllegalArgumentException.class, () -> camera.renderBudgetedAsync(1, -1, null), "Bad noise");
+    }
 }
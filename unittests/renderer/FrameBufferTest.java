@@ -0,0 +1,102 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameBufferTest {
+
+    /**
+     * Test method for {@link renderer.FrameBuffer#set(int, int, primitives.Color)}.
+     */
+    @Test
+    void testSet() {
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Bright color is kept above 255, on and off the heap
+        for (boolean offHeap : new boolean[]{false, true}) {
+            FrameBuffer frame = new FrameBuffer(4, 3, offHeap);
+            frame.set(3, 2, new Color(1000, 0.5, 255));
+            Color color = frame.get(3, 2);
+            assertEquals(1000, color.getRed(), 1e-4, "Wrong red");
+            assertEquals(0.5, color.getGreen(), 1e-4, "Wrong green");
+            assertEquals(255, color.getBlue(), 1e-4, "Wrong blue");
+            assertEquals(0, frame.get(2, 2).getRed(), "Another pixel was set");
+        }
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Component just below an integer is quantized like the color
+        FrameBuffer frame = new FrameBuffer(1, 1);
+        Color color = new Color(254.99999999, 99.999999999, 0);
+        frame.set(0, 0, color);
+        int[] rgb = new int[1];
+        frame.quantizeRow(0, ToneMapper.CLAMP, new float[3], rgb, 0);
+        assertEquals(color.getColor().getRGB() & 0xFFFFFF, rgb[0], "Quantized differently than the color");
+
+        // TC12: Empty frame buffer
+        assertThrows(IllegalArgumentException.class, () -> new FrameBuffer(0, 1), "Constructed an empty frame");
+    }
+
+    /**
+     * Test method for {@link renderer.FrameBuffer#add(renderer.FrameBuffer)}.
+     */
+    @Test
+    void testAdd() {
+        FrameBuffer first = new FrameBuffer(2, 2);
+        FrameBuffer second = new FrameBuffer(2, 2, true);
+        first.set(1, 1, new Color(100, 200, 300));
+        second.set(1, 1, new Color(300, 0, 100));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Average of two frames
+        Color color = first.add(second).scale(0.5).get(1, 1);
+        assertEquals(200, color.getRed(), 1e-4, "Wrong red");
+        assertEquals(100, color.getGreen(), 1e-4, "Wrong green");
+        assertEquals(200, color.getBlue(), 1e-4, "Wrong blue");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Frames of different sizes
+        assertThrows(IllegalArgumentException.class, () -> first.add(new FrameBuffer(2, 3)), "Added different sizes");
+    }
+
+    /**
+     * Test method for {@link renderer.FrameBuffer#quantizeRow(int, ToneMapper, float[], int[], int)}.
+     */
+    @Test
+    void testQuantizeRow() {
+        FrameBuffer frame = new FrameBuffer(3, 1);
+        frame.set(0, 0, new Color(0, 127.5, 255));
+        frame.set(1, 0, new Color(510, 1020, 5000));
+        int[] rgb = new int[3];
+        float[] row = new float[9];
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Clamping
+        frame.quantizeRow(0, ToneMapper.CLAMP, row, rgb, 0);
+        assertEquals(0x007FFF, rgb[0], "Wrong pixel");
+        assertEquals(0xFFFFFF, rgb[1], "Bright pixel not clipped");
+
+        // TC02: Reinhard keeps the white point white and the brighter components apart
+        frame.quantizeRow(0, ToneMapper.reinhard(1020), row, rgb, 0);
+        assertEquals(0xFF, rgb[1] >> 8 & 0xFF, "White point is not white");
+        assertTrue((rgb[1] >> 16 & 0xFF) < 0xFF, "Component below the white point clipped");
+
+        // TC03: Exposure
+        frame.quantizeRow(0, ToneMapper.exposure(0.5), row, rgb, 0);
+        assertEquals(0x003F7F, rgb[0], "Wrong exposure");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Black pixel
+        assertEquals(0, rgb[2], "Black pixel is not black");
+
+        // TC12: Bad mappings
+        assertThrows(IllegalArgumentException.class, () -> ToneMapper.exposure(0), "Bad exposure");
+        assertThrows(IllegalArgumentException.class, () -> ToneMapper.reinhard(100), "Bad white point");
+    }
+}
@@ -3,6 +3,15 @@ package renderer;
 import org.junit.jupiter.api.Test;
 import primitives.Color;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 class ImageWriterTest {
 
     int nX = 800;
@@ -26,4 +35,38 @@ class ImageWriterTest {
         imageWriter.writeToImage();
     }
 
-}
\ No newline at end of file
+    /**
+     * Test method for {@link renderer.ImageWriter#setFormat(ImageFormat)}.
+     */
+    @Test
+    void writeToImageFormats() throws IOException {
+        ImageWriter imageWriter = new ImageWriter("formats", 4, 2);
+        imageWriter.writePixel(1, 0, pinkColor);
+        imageWriter.writePixel(3, 1, new Color(510, 0, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Binary PPM - header and 8 bit components, row by row
+        imageWriter.setFormat(ImageFormat.PPM).writeToImage();
+        byte[] bytes = Files.readAllBytes(Path.of(ImageWriter.FOLDER_PATH, "formats.ppm"));
+        int header = "P6\n4 2\n255\n".length();
+        assertEquals("P6\n4 2\n255\n", new String(bytes, 0, header, StandardCharsets.US_ASCII), "Wrong header");
+        assertEquals(header + 3 * 8, bytes.length, "Wrong size");
+        assertEquals(105, bytes[header + 3 + 1] & 0xFF, "Wrong green of the pink pixel");
+        assertEquals(255, bytes[header + 3 * 7] & 0xFF, "Bright pixel not clipped");
+
+        // TC02: PFM - float components from the bottom row, without the limit of 255
+        imageWriter.setFormat(ImageFormat.PFM).writeToImage();
+        bytes = Files.readAllBytes(Path.of(ImageWriter.FOLDER_PATH, "formats.pfm"));
+        header = "PF\n4 2\n-1.0\n".length();
+        assertEquals(header + 12 * 8, bytes.length, "Wrong size");
+        ByteBuffer data = ByteBuffer.wrap(bytes, header, 12 * 8).slice().order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(2f, data.getFloat(4 * 3 * 3), 1e-6, "Wrong bright pixel");
+        assertEquals(105f / 255, data.getFloat(4 * (3 * 5 + 1)), 1e-6, "Wrong pink pixel");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: No format
+        assertThrows(IllegalArgumentException.class, () -> imageWriter.setFormat(null), "Null format");
+    }
+}
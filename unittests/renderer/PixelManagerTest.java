@@ -0,0 +1,56 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PixelManagerTest {
+
+    /**
+     * Counts how many times each pixel of an image is handed out by a pixel manager
+     *
+     * @param nY       the amount of pixel rows
+     * @param nX       the amount of pixel columns
+     * @param tileSize the size of a tile
+     * @return the count of each pixel
+     */
+    private int[][] cover(int nY, int nX, int tileSize) {
+        PixelManager manager = new PixelManager(nY, nX, tileSize, 0);
+        int[][] counts = new int[nY][nX];
+        PixelManager.Tile tile;
+        while ((tile = manager.nextTile()) != null) {
+            assertTrue(tile.size() > 0, "Empty tile");
+            for (int i = tile.fromRow(); i < tile.toRow(); ++i)
+                for (int j = tile.fromCol(); j < tile.toCol(); ++j)
+                    ++counts[i][j];
+            manager.tileDone(tile);
+        }
+        assertNull(manager.nextTile(), "Tile after the last one");
+        return counts;
+    }
+
+    /**
+     * Test method for {@link renderer.PixelManager#nextTile()}.
+     */
+    @Test
+    void testNextTile() {
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Image not divided evenly into tiles, wider than high - every pixel exactly once
+        for (int[] row : cover(37, 50, 16))
+            for (int count : row)
+                assertEquals(1, count, "Pixel not rendered exactly once");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Tile bigger than the image
+        for (int[] row : cover(5, 3, 32))
+            for (int count : row)
+                assertEquals(1, count, "Pixel not rendered exactly once");
+
+        // TC12: Tiles of a single pixel
+        for (int[] row : cover(4, 7, 1))
+            for (int count : row)
+                assertEquals(1, count, "Pixel not rendered exactly once");
+    }
+}
@@ -0,0 +1,65 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SamplerTest {
+
+    /**
+     * Test method for {@link renderer.Sampler#sample(int, int, int, double[])}.
+     */
+    @Test
+    void testSample() {
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: All the points of all the samplers are inside the pixel
+        for (Sampler sampler : Sampler.values()) {
+            double[] samples = new double[2 * 100];
+            sampler.sample(3, 7, 100, samples);
+            for (double sample : samples)
+                assertTrue(sample >= 0 && sample < 1, sampler + " point out of the pixel");
+        }
+
+        // TC02: Stratified points are in different column and row strips
+        double[] samples = new double[2 * 10];
+        Sampler.STRATIFIED.sample(0, 0, 10, samples);
+        boolean[] columns = new boolean[10];
+        boolean[] rows = new boolean[10];
+        for (int k = 0; k < 10; ++k) {
+            columns[(int) (samples[2 * k] * 10)] = true;
+            rows[(int) (samples[2 * k + 1] * 10)] = true;
+        }
+        for (int k = 0; k < 10; ++k)
+            assertTrue(columns[k] && rows[k], "Empty strip");
+
+        // TC03: Low discrepancy points are the same for the same pixel and differ between pixels
+        for (Sampler sampler : new Sampler[]{Sampler.HALTON, Sampler.SOBOL}) {
+            double[] first = new double[8];
+            double[] second = new double[8];
+            double[] other = new double[8];
+            sampler.sample(5, 9, 4, first);
+            sampler.sample(5, 9, 4, second);
+            sampler.sample(9, 5, 4, other);
+            assertArrayEquals(first, second, sampler + " points changed");
+            assertNotEquals(first[0], other[0], sampler + " points repeat in another pixel");
+        }
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: First 4 Sobol points are in different quarters of the pixel
+        Sampler.SOBOL.sample(12, 34, 4, samples);
+        boolean[] quarters = new boolean[4];
+        for (int k = 0; k < 4; ++k)
+            quarters[(samples[2 * k] < 0.5 ? 0 : 1) + (samples[2 * k + 1] < 0.5 ? 0 : 2)] = true;
+        for (boolean quarter : quarters)
+            assertTrue(quarter, "Empty quarter");
+
+        // TC12: Single point
+        for (Sampler sampler : Sampler.values()) {
+            sampler.sample(0, 0, 1, samples);
+            assertTrue(samples[0] >= 0 && samples[0] < 1 && samples[1] >= 0 && samples[1] < 1,
+                    sampler + " single point out of the pixel");
+        }
+    }
+}
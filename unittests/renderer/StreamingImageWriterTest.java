@@ -0,0 +1,122 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingImageWriterTest {
+
+    private final int nX = 30;
+    private final int nY = 20;
+
+    /**
+     * Gets the color of a pixel of the test image
+     *
+     * @param x X axis index of the pixel
+     * @param y Y axis index of the pixel
+     * @return the color
+     */
+    private static Color color(int x, int y) {
+        return new Color(x * 8, y * 12, (x + y) * 20);
+    }
+
+    /**
+     * Writes the pixels of the test image in tiles of 5x5 pixels in a random order
+     *
+     * @param imageWriter the image writer
+     */
+    private void writeTiles(ImageWriter imageWriter) {
+        List<Integer> tiles = new ArrayList<>();
+        for (int t = 0; t < nX / 5 * nY / 5; ++t)
+            tiles.add(t);
+        Collections.shuffle(tiles, new Random(3));
+        for (int t : tiles) {
+            int fromX = t % (nX / 5) * 5, fromY = t / (nX / 5) * 5;
+            for (int y = fromY; y < fromY + 5; ++y)
+                for (int x = fromX; x < fromX + 5; ++x)
+                    imageWriter.writePixel(x, y, color(x, y));
+        }
+    }
+
+    /**
+     * Test method for {@link renderer.StreamingImageWriter#writeToImage()}.
+     */
+    @Test
+    void testWriteToImage() throws IOException {
+        ImageWriter reference = new ImageWriter("streaming reference", nX, nY);
+        writeTiles(reference);
+        BufferedImage expected = reference.toImage();
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: PNG from tiles in a random order
+        StreamingImageWriter png = new StreamingImageWriter("streaming png", nX, nY, ImageFormat.PNG, 4);
+        writeTiles(png);
+        png.writeToImage();
+        BufferedImage actual = ImageIO.read(Path.of(ImageWriter.FOLDER_PATH, "streaming png.png").toFile());
+        for (int y = 0; y < nY; ++y)
+            for (int x = 0; x < nX; ++x)
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "Wrong PNG pixel");
+
+        // TC02: PPM - the complete bands are encoded before the image is written
+        Path ppmPath = Path.of(ImageWriter.FOLDER_PATH, "streaming ppm.ppm");
+        StreamingImageWriter ppm = new StreamingImageWriter("streaming ppm", nX, nY, ImageFormat.PPM, 4);
+        String header = "P6\n" + nX + " " + nY + "\n255\n";
+        for (int y = 0; y < 8; ++y)
+            for (int x = 0; x < nX; ++x)
+                ppm.writePixel(x, y, color(x, y));
+        assertEquals(header.length() + 3 * nX * 8, Files.size(ppmPath), "Complete bands were not encoded");
+        for (int y = 8; y < nY; ++y)
+            for (int x = 0; x < nX; ++x)
+                ppm.writePixel(x, y, color(x, y));
+        ppm.writeToImage();
+        byte[] bytes = Files.readAllBytes(ppmPath);
+        assertEquals(header.length() + 3 * nX * nY, bytes.length, "Wrong PPM size");
+        int offset = header.length() + 3 * (7 * nX + 11);
+        assertEquals(expected.getRGB(11, 7) & 0xFFFFFF,
+                (bytes[offset] & 0xFF) << 16 | (bytes[offset + 1] & 0xFF) << 8 | bytes[offset + 2] & 0xFF,
+                "Wrong PPM pixel");
+
+        // TC03: PFM - rows from the bottom up, colors without the limit of 255
+        StreamingImageWriter pfm = new StreamingImageWriter("streaming pfm", nX, nY, ImageFormat.PFM, 4);
+        writeTiles(pfm);
+        pfm.writeToImage();
+        bytes = Files.readAllBytes(Path.of(ImageWriter.FOLDER_PATH, "streaming pfm.pfm"));
+        header = "PF\n" + nX + " " + nY + "\n-1.0\n";
+        assertEquals(header.length() + 12 * nX * nY, bytes.length, "Wrong PFM size");
+        ByteBuffer data = ByteBuffer.wrap(bytes, header.length(), 12 * nX * nY).slice().order(ByteOrder.LITTLE_ENDIAN);
+        int index = 3 * ((nY - 1 - 19) * nX + 29); // pixel (29, 19) is in the first row of the file
+        assertEquals(960f / 255, data.getFloat(4 * (index + 2)), 1e-6, "Wrong PFM pixel");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Missing pixels are black, and writing again does nothing
+        StreamingImageWriter partial = new StreamingImageWriter("streaming partial", nX, nY, ImageFormat.PPM, 7);
+        partial.writePixel(0, 0, color(0, 0));
+        partial.writeToImage();
+        partial.writeToImage();
+        bytes = Files.readAllBytes(Path.of(ImageWriter.FOLDER_PATH, "streaming partial.ppm"));
+        assertEquals(("P6\n" + nX + " " + nY + "\n255\n").length() + 3 * nX * nY, bytes.length, "Wrong PPM size");
+        assertEquals(0, bytes[bytes.length - 1], "Missing pixel is not black");
+
+        // TC12: Bad band
+        assertThrows(IllegalArgumentException.class,
+                () -> new StreamingImageWriter("streaming bad", nX, nY, ImageFormat.PNG, 0), "Band without rows");
+
+        // TC13: Format of the created file can't be changed
+        assertThrows(IllegalStateException.class, () -> partial.setFormat(ImageFormat.PNG), "Changed the format");
+    }
+}
@@ -0,0 +1,80 @@
+package scene;
+
+import geometries.BVH;
+import geometries.BVHCache;
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SceneTest {
+
+    /**
+     * Test method for {@link scene.Scene#compile()}.
+     */
+    @Test
+    void testCompile() throws IOException {
+        Scene scene = new Scene("Compile Test Scene")
+                .setBackground(new Color(1, 2, 3))
+                .setAmbientLight(new AmbientLight(new Color(100, 100, 100), 0.5));
+        scene.geometries.add(new Sphere(new Point(0, 0, -10), 1d));
+        scene.lights.add(new PointLight(new Color(10, 10, 10), Point.ZERO));
+        CompiledScene compiled = scene.compile();
+        Ray ray = new Ray(Point.ZERO, new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Snapshot of the scene
+        assertSame(scene.background, compiled.background, "Wrong background");
+        assertEquals(50, compiled.ambientIntensity.getRed(), 1e-10, "Wrong ambient intensity");
+        assertEquals(1, compiled.lights.size(), "Wrong lights");
+        assertNotNull(compiled.geometries.findClosestGeoIntersection(ray), "Missing geometry");
+
+        // TC02: Later changes of the scene don't affect the snapshot
+        scene.geometries.add(new Sphere(new Point(0, 0, -5), 1d));
+        scene.lights.add(new PointLight(new Color(10, 10, 10), Point.ZERO));
+        scene.setBackground(Color.BLACK);
+        assertEquals(new Point(0, 0, -9), compiled.geometries.findClosestGeoIntersection(ray).point,
+                "Snapshot sees a later geometry");
+        assertEquals(1, compiled.lights.size(), "Snapshot sees a later light");
+        assertThrows(UnsupportedOperationException.class, () -> compiled.lights.clear(), "Lights are mutable");
+
+        // =============== Boundary Values Tests ==================
+
+        // TC11: Many geometries get a hierarchy
+        for (int i = 0; i < CompiledScene.BVH_THRESHOLD; ++i)
+            scene.geometries.add(new Sphere(new Point(i * 3, 0, -20), 1d));
+        assertInstanceOf(BVH.class, scene.compile().geometries, "No hierarchy over many geometries");
+
+        // TC12: Hierarchy from a cache - built on the first compile, loaded on the next ones
+        Path folder = Files.createTempDirectory("scene-cache");
+        try {
+            BVHCache cache = new BVHCache(folder);
+            scene.setAccelerationCache(cache);
+            Point hit = scene.compile().geometries.findClosestGeoIntersection(ray).point;
+            assertEquals(hit, scene.compile().geometries.findClosestGeoIntersection(ray).point, "Wrong cached hierarchy");
+            assertEquals(1, cache.getMisses(), "Wrong amount of built hierarchies");
+            assertEquals(1, cache.getHits(), "Wrong amount of loaded hierarchies");
+        } finally {
+            try (Stream<Path> files = Files.list(folder)) {
+                for (Path file : files.toList())
+                    Files.delete(file);
+            }
+            Files.delete(folder);
+        }
+
+        // TC13: Empty scene
+        assertNull(new Scene("Empty").compile().geometries.findClosestGeoIntersection(ray), "Empty scene has a hit");
+    }
+}